@@ -0,0 +1,85 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures converting a "git format-patch" patch to a mercurial patch ({@code writeGitPatchAsHgPatch}) for
+ * a small patch and for multi-MB patches (e.g. a PR that touches generated sources).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HgPatchBenchmark {
+
+    @Param({"4", "1024", "8192"})
+    private int patchKilobytes;
+
+    private Path patchDir;
+
+    @Setup
+    public void setup() throws IOException {
+        patchDir = Files.createTempDirectory("jfxmirror-hg-patch");
+        Files.write(patchDir.resolve("git.patch"), syntheticGitPatch(patchKilobytes * 1024).getBytes(UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(patchDir.resolve("git.patch"));
+        Files.deleteIfExists(patchDir.resolve("hg.patch"));
+        Files.deleteIfExists(patchDir);
+    }
+
+    @Benchmark
+    public Path writeGitPatchAsHgPatch() throws IOException {
+        return GhEventService.writeGitPatchAsHgPatch(patchDir);
+    }
+
+    /**
+     * Generates a patch shaped like the output of "git format-patch" of a single commit, with hunks
+     * spread over many files until it is about {@code size} bytes long.
+     */
+    static String syntheticGitPatch(int size) {
+        StringBuilder patch = new StringBuilder(size + 4096);
+        patch.append("From 3f2a9c1d5e7b8a6f4c2d0e1b3a5c7d9e1f3a5b7c Mon Sep 17 00:00:00 2001\n")
+                .append("From: Jane Doe <jane.doe@example.com>\n")
+                .append("Date: Mon, 5 Mar 2018 10:15:42 +0100\n")
+                .append("Subject: [PATCH] 8198765: Fix layout of nested TitledPanes\n\n")
+                .append("Contributed-by: Jane Doe\n")
+                .append("---\n")
+                .append(" .../src/main/java/javafx/scene/control/TitledPane.java | 12 +++++++-----\n")
+                .append(" 1 file changed, 7 insertions(+), 5 deletions(-)\n\n");
+        for (int file = 0; patch.length() < size; file++) {
+            String path = "modules/javafx.controls/src/main/java/javafx/scene/control/Generated" + file + ".java";
+            patch.append("diff --git a/").append(path).append(" b/").append(path).append('\n')
+                    .append("index 1a2b3c4..5d6e7f8 100644\n")
+                    .append("--- a/").append(path).append('\n')
+                    .append("+++ b/").append(path).append('\n');
+            for (int hunk = 0; hunk < 8; hunk++) {
+                patch.append("@@ -").append(hunk * 40 + 1).append(",7 +").append(hunk * 40 + 1).append(",7 @@\n")
+                        .append("     public void layoutChildren(double x, double y, double w, double h) {\n")
+                        .append("         final double width = snapSizeX(w);\n")
+                        .append("-        final double height = h;\n")
+                        .append("+        final double height = snapSizeY(h);\n")
+                        .append("         for (Node child : getManagedChildren()) {\n")
+                        .append("             child.resizeRelocate(x, y, width, height);\n")
+                        .append("         }\n");
+            }
+        }
+        return patch.append("-- \n2.16.2\n\n").toString();
+    }
+}
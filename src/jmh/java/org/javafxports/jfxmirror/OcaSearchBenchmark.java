@@ -0,0 +1,97 @@
+package org.javafxports.jfxmirror;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares looking up OCA signatures with {@link OcaSearchIndex} against the loops that were previously
+ * used by {@code fetchOcaStatus} (username lookup) and {@code searchOcaSignaturesFor} (name lookup).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OcaSearchBenchmark {
+
+    @Param({"1000", "20000"})
+    private int signatureCount;
+
+    private List<String> signatures;
+    private OcaSearchIndex searchIndex;
+    private String presentUsername;
+    private String presentName;
+
+    @Setup
+    public void setup() {
+        signatures = syntheticSignatures(signatureCount);
+        searchIndex = new OcaSearchIndex(signatures);
+        // Pick a line from the end of the list, which is the worst case for the linear loops.
+        presentUsername = "user" + (signatureCount - 1);
+        presentName = "Jean-Pierre Last" + (signatureCount - 1);
+    }
+
+    @Benchmark
+    public String legacyFindUsername() {
+        for (String ocaSignature : signatures) {
+            for (String split : ocaSignature.split(" - ")) {
+                if (split.equalsIgnoreCase(presentUsername)) {
+                    return ocaSignature;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String indexFindUsername() {
+        return searchIndex.findLine(presentUsername);
+    }
+
+    @Benchmark
+    public boolean legacySearchName() {
+        for (String ocaSignature : signatures) {
+            for (String split : ocaSignature.split("-")) {
+                if (split.trim().equalsIgnoreCase(presentName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean indexSearchName() {
+        return searchIndex.containsField(presentName);
+    }
+
+    @Benchmark
+    public List<String> indexSuggest() {
+        return searchIndex.suggest("Jean Pierre Lats" + (signatureCount / 2), 3);
+    }
+
+    @Benchmark
+    public OcaSearchIndex buildIndex() {
+        return new OcaSearchIndex(signatures);
+    }
+
+    /**
+     * Generates signature lines shaped like those on the OCA page, with some hyphenated and accented names.
+     */
+    static List<String> syntheticSignatures(int count) {
+        List<String> signatures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String first = i % 3 == 0 ? "Jean-Pierre" : i % 3 == 1 ? "Jos\u00e9" : "John";
+            signatures.add(first + " Last" + i + " - " + (i % 2 == 0 ? "OpenJFX" : "OpenJDK") + " - user" + i);
+        }
+        return signatures;
+    }
+}
@@ -0,0 +1,101 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures persisting the result of a check ({@link StatusPage#writeResult}), rendering the status
+ * page from it (with the timeline of its trace) and serving it from {@link StatusPageCache}.
+ * <p>
+ * "user.home" is pointed at a temporary directory, so results are written there instead of ~/jfxmirror.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatusPageBenchmark {
+
+    private String userHome;
+    private Path home;
+    private PullRequestContext pullRequestContext;
+    private PrResult result;
+    private Trace trace;
+    private Path shaDir;
+    private StatusPageCache statusPages;
+
+    @Setup
+    public void setup() throws IOException {
+        userHome = System.getProperty("user.home");
+        home = Files.createTempDirectory("jfxmirror-status-page");
+        System.setProperty("user.home", home.toString());
+
+        PullRequest pullRequest = new PullRequest("1234", "8198765: Fix layout of nested TitledPanes", "contributor",
+                "3f2a9c1d5e7b8a6f4c2d0e1b3a5c7d9e1f3a5b7c", "JDK-8198765", "9e8d7c6b5a4f3e2d1c0b9a8f7e6d5c4b3a2f1e0d",
+                3, "https://api.github.com/repos/javafxports/openjdk-jfx/pulls/1234/commits",
+                "https://api.github.com/repos/javafxports/openjdk-jfx/issues/1234/comments");
+        pullRequestContext = new PullRequestContext(pullRequest, pullRequest.getNumber(), pullRequest.getHeadSha(),
+                "https://api.github.com/repos/javafxports/openjdk-jfx/statuses/" + pullRequest.getHeadSha());
+        pullRequestContext.setPrStatus(PrStatus.FAILURE);
+        pullRequestContext.setOcaStatus(OcaStatus.SIGNED);
+        pullRequestContext.setJbsBugsReferenced(new HashSet<>(Arrays.asList("JDK-8198765", "JDK-8198766")));
+        pullRequestContext.setJbsBugsReferencedButNotFound(new HashSet<>(Arrays.asList("JDK-8198766")));
+        shaDir = Paths.get(home.toString(), "jfxmirror", "pr", pullRequest.getNumber(), pullRequest.getHeadSha());
+        List<Path> rejects = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rejects.add(shaDir.resolve("rejects").resolve("Generated" + i + ".java.rej"));
+        }
+        pullRequestContext.setRejects(rejects);
+        trace = Trace.start(pullRequest.getNumber(), pullRequest.getHeadSha());
+        for (String stage : Arrays.asList("syncMirror", "findLatestUpstreamCommit", "fetchCommits", "gitPatch",
+                "hgPatch", "ocaStatus", "jbsBugs", "syncUpstream", "applyPatch")) {
+            try (StageTimer timer = pullRequestContext.stage(stage)) {
+                Trace.startSpan("hg", "hg import --bypass").close();
+            }
+        }
+        trace.finish();
+
+        result = StatusPage.writeResult(pullRequestContext);
+        trace.write(shaDir);
+        statusPages = new StatusPageCache(8L * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setProperty("user.home", userHome);
+        try (Stream<Path> files = Files.walk(home)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public PrResult writeResult() throws IOException {
+        return StatusPage.writeResult(pullRequestContext);
+    }
+
+    @Benchmark
+    public String render() {
+        return StatusPage.render(result, trace);
+    }
+
+    @Benchmark
+    public StatusPageCache.CachedPage cachedPage() throws IOException {
+        return statusPages.get(shaDir);
+    }
+}
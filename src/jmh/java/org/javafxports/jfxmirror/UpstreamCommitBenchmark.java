@@ -0,0 +1,126 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Measures {@link LatestUpstreamCommit} against a synthetic (packed) mirror repository in which the
+ * latest "Merge from (root)" commit is buried under {@code depth} commits that were merged on GitHub: the
+ * first search (which walks the history) and a search when the refs have not moved since.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UpstreamCommitBenchmark {
+
+    private static final int UPSTREAM_COMMITS = 200;
+
+    @Param({"10", "1000", "20000"})
+    private int depth;
+
+    private Path repoDir;
+    private Repository repository;
+    private Git git;
+    private LatestUpstreamCommit searched;
+
+    @Setup
+    public void setup() throws IOException, GitAPIException {
+        // LatestUpstreamCommit logs the commit it found.
+        ((Logger) LoggerFactory.getLogger(LatestUpstreamCommit.class)).setLevel(Level.WARN);
+        repoDir = Files.createTempDirectory("jfxmirror-upstream-commit");
+        repository = FileRepositoryBuilder.create(repoDir.resolve(".git").toFile());
+        repository.create();
+
+        long time = 1_500_000_000L;
+        PersonIdent upstream = new PersonIdent("Upstream Committer", "upstream@example.com");
+        PersonIdent bot = new PersonIdent("javafxports-github-bot", "bot@example.com");
+        PersonIdent contributor = new PersonIdent("Contributor", "contributor@example.com");
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            ObjectId tree = inserter.insert(new TreeFormatter());
+            ObjectId upstreamTip = null;
+            ObjectId mirrorTip = null;
+            for (int i = 0; i < UPSTREAM_COMMITS; i++) {
+                upstreamTip = commit(inserter, tree, upstream, time++, "8" + (100000 + i) + ": Upstream fix " + i,
+                        upstreamTip);
+                if (i % 50 == 49) {
+                    mirrorTip = commit(inserter, tree, bot, time++, "Merge from (root)", mirrorTip, upstreamTip);
+                }
+            }
+            for (int i = 0; i < depth; i++) {
+                mirrorTip = commit(inserter, tree, contributor, time++, "Merge pull request #" + i, mirrorTip);
+            }
+            inserter.flush();
+            RefUpdate master = repository.updateRef(Constants.R_HEADS + "master");
+            master.setNewObjectId(mirrorTip);
+            master.forceUpdate();
+        }
+        git = new Git(repository);
+        git.gc().call();
+        searched = new LatestUpstreamCommit(repository);
+        searched.get();
+    }
+
+    private static ObjectId commit(ObjectInserter inserter, ObjectId tree, PersonIdent person, long time,
+                                   String message, ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent(person, time * 1000, 0);
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message);
+        for (ObjectId parent : parents) {
+            if (parent != null) {
+                commit.addParentId(parent);
+            }
+        }
+        return inserter.insert(commit);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        repository.close();
+        try (Stream<Path> files = Files.walk(repoDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public RevCommit findLatestUpstreamCommit() throws IOException {
+        return new LatestUpstreamCommit(repository).get();
+    }
+
+    @Benchmark
+    public RevCommit latestUpstreamCommitUnchanged() throws IOException {
+        return searched.get();
+    }
+}
@@ -0,0 +1,148 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures parsing GitHub webhook payloads ("pull_request" and "issue_comment" events, compared with
+ * reading the whole tree with Jackson) and extracting the JBS bugs referenced by a pull request.
+ * <p>
+ * The payloads are generated with the shape (and about the size) of the ones GitHub sends, most of which is
+ * fields jfxmirror_bot does not read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WebhookPayloadBenchmark {
+
+    private static final String REPO_URL = "https://api.github.com/repos/javafxports/openjdk-jfx";
+
+    @Param({"1", "50"})
+    private int commitCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] pullRequestPayload;
+    private byte[] issueCommentPayload;
+    private PullRequest pullRequest;
+    private List<PrCommit> commits;
+
+    @Setup
+    public void setup() throws IOException {
+        pullRequestPayload = pullRequestPayload().getBytes(UTF_8);
+        issueCommentPayload = issueCommentPayload().getBytes(UTF_8);
+        pullRequest = PullRequestEvent.parse(pullRequestPayload).getPullRequest();
+        commits = new ArrayList<>();
+        for (int i = 0; i < commitCount; i++) {
+            String message = i % 5 == 0 ? "JDK-" + (8198000 + i) + ": Fix layout of nested TitledPanes\n\n" +
+                    "Reviewed-by: reviewer" : "Address review comments (" + i + ")";
+            commits.add(new PrCommit(String.format("%040x", i + 1), message));
+        }
+    }
+
+    @Benchmark
+    public PullRequestEvent parsePullRequestEvent() throws IOException {
+        return PullRequestEvent.parse(pullRequestPayload);
+    }
+
+    @Benchmark
+    public JsonNode readPullRequestEventTree() throws IOException {
+        return objectMapper.readTree(pullRequestPayload);
+    }
+
+    @Benchmark
+    public IssueCommentEvent parseIssueCommentEvent() throws IOException {
+        return IssueCommentEvent.parse(issueCommentPayload);
+    }
+
+    @Benchmark
+    public Set<String> findReferencedJbsBugs() {
+        return GhEventService.findReferencedJbsBugs(pullRequest, commits);
+    }
+
+    private static String user(String login, int id) {
+        StringBuilder user = new StringBuilder("{\"login\":\"").append(login).append("\",\"id\":").append(id);
+        for (String url : new String[] {"avatar_url", "html_url", "followers_url", "following_url", "gists_url",
+                "starred_url", "subscriptions_url", "organizations_url", "repos_url", "events_url",
+                "received_events_url"}) {
+            user.append(",\"").append(url).append("\":\"https://api.github.com/users/").append(login).append('/')
+                    .append(url).append('"');
+        }
+        return user.append(",\"type\":\"User\",\"site_admin\":false}").toString();
+    }
+
+    private static String repository() {
+        StringBuilder repository = new StringBuilder("{\"id\":105463410,\"name\":\"openjdk-jfx\",")
+                .append("\"full_name\":\"javafxports/openjdk-jfx\",\"owner\":").append(user("javafxports", 1))
+                .append(",\"private\":false,\"description\":\"The Mercurial repository of OpenJFX, ")
+                .append("mirrored to git.\",\"fork\":false");
+        for (String url : new String[] {"forks_url", "keys_url", "collaborators_url", "teams_url", "hooks_url",
+                "issue_events_url", "events_url", "assignees_url", "branches_url", "tags_url", "blobs_url",
+                "git_tags_url", "git_refs_url", "trees_url", "statuses_url", "languages_url", "stargazers_url",
+                "contributors_url", "subscribers_url", "subscription_url", "commits_url", "git_commits_url",
+                "comments_url", "issue_comment_url", "contents_url", "compare_url", "merges_url", "archive_url",
+                "downloads_url", "issues_url", "pulls_url", "milestones_url", "notifications_url", "labels_url",
+                "releases_url", "deployments_url"}) {
+            repository.append(",\"").append(url).append("\":\"").append(REPO_URL).append('/').append(url)
+                    .append('"');
+        }
+        return repository.append(",\"stargazers_count\":1234,\"watchers_count\":1234,\"language\":\"Java\",")
+                .append("\"has_issues\":true,\"forks_count\":321,\"open_issues_count\":42,")
+                .append("\"default_branch\":\"develop\"}").toString();
+    }
+
+    private static String pullRequestPayload() {
+        String head = "3f2a9c1d5e7b8a6f4c2d0e1b3a5c7d9e1f3a5b7c";
+        return "{\"action\":\"synchronize\",\"number\":1234,\"pull_request\":{" +
+                "\"url\":\"" + REPO_URL + "/pulls/1234\",\"id\":172345678,\"number\":1234,\"state\":\"open\"," +
+                "\"locked\":false,\"title\":\"8198765: Fix layout of nested TitledPanes\"," +
+                "\"user\":" + user("contributor", 4242) + "," +
+                "\"body\":\"This fixes the layout of nested TitledPanes.\\r\\n\\r\\nNested panes were laid " +
+                "out with unsnapped heights.\"," +
+                "\"created_at\":\"2018-03-05T09:15:42Z\",\"updated_at\":\"2018-03-05T10:15:42Z\"," +
+                "\"merged_at\":null,\"merge_commit_sha\":null,\"assignee\":null,\"assignees\":[]," +
+                "\"requested_reviewers\":[],\"labels\":[],\"milestone\":null," +
+                "\"head\":{\"label\":\"contributor:JDK-8198765\",\"ref\":\"JDK-8198765\",\"sha\":\"" + head + "\"," +
+                "\"user\":" + user("contributor", 4242) + ",\"repo\":" + repository() + "}," +
+                "\"base\":{\"label\":\"javafxports:develop\",\"ref\":\"develop\"," +
+                "\"sha\":\"9e8d7c6b5a4f3e2d1c0b9a8f7e6d5c4b3a2f1e0d\"," +
+                "\"user\":" + user("javafxports", 1) + ",\"repo\":" + repository() + "}," +
+                "\"_links\":{\"self\":{\"href\":\"" + REPO_URL + "/pulls/1234\"}," +
+                "\"issue\":{\"href\":\"" + REPO_URL + "/issues/1234\"}," +
+                "\"comments\":{\"href\":\"" + REPO_URL + "/issues/1234/comments\"}," +
+                "\"commits\":{\"href\":\"" + REPO_URL + "/pulls/1234/commits\"}," +
+                "\"statuses\":{\"href\":\"" + REPO_URL + "/statuses/" + head + "\"}}," +
+                "\"author_association\":\"CONTRIBUTOR\",\"merged\":false,\"mergeable\":null," +
+                "\"comments\":3,\"review_comments\":1,\"commits\":3,\"additions\":7,\"deletions\":5," +
+                "\"changed_files\":1},\"repository\":" + repository() + "," +
+                "\"sender\":" + user("contributor", 4242) + "}";
+    }
+
+    private static String issueCommentPayload() {
+        return "{\"action\":\"created\",\"issue\":{\"url\":\"" + REPO_URL + "/issues/1234\"," +
+                "\"comments_url\":\"" + REPO_URL + "/issues/1234/comments\",\"id\":302345678,\"number\":1234," +
+                "\"title\":\"8198765: Fix layout of nested TitledPanes\",\"user\":" + user("contributor", 4242) +
+                ",\"labels\":[],\"state\":\"open\",\"comments\":4,\"pull_request\":{\"url\":\"" + REPO_URL +
+                "/pulls/1234\"},\"body\":\"This fixes the layout of nested TitledPanes.\"}," +
+                "\"comment\":{\"id\":370345678,\"user\":" + user("contributor", 4242) + "," +
+                "\"created_at\":\"2018-03-05T10:20:00Z\",\"body\":\"@javafxports-github-bot I have signed the OCA " +
+                "under the name \\\"Jane Doe\\\".\"},\"repository\":" + repository() + "," +
+                "\"sender\":" + user("contributor", 4242) + "}";
+    }
+}
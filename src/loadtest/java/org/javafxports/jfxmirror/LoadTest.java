@@ -0,0 +1,359 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how many pull requests per hour the bot can check, and how long checks take, without touching
+ * any external service: the bot is run (in its own JVM, with a fresh home directory) against a local
+ * mercurial "upstream" and git "mirror" built from fixtures (see {@link LoadTestFixtures}), with local
+ * stand-ins for GitHub, JBS and Oracle (see {@link StubServices}), and a stream of webhook events (see
+ * {@link WebhookStream}) is replayed against it at a fixed rate.
+ * <p>
+ * Requires "hg" (and "git") to be on the PATH. When done, prints a {@link LoadTestReport}.
+ */
+public class LoadTest {
+
+    private static final Duration BOT_STARTUP_TIMEOUT = Duration.ofMinutes(5);
+    private static final int WEBHOOK_READ_TIMEOUT_MILLIS = (int) TimeUnit.MINUTES.toMillis(30);
+
+    private static int prCount = 20;
+    private static double rate = 1;
+    private static int concurrency = 1;
+    private static Duration stubLatency = Duration.ofMillis(50);
+    private static Path eventsFile;
+    private static Path workDir;
+    private static boolean runWebrev;
+    private static boolean keepWorkDir;
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        parseArguments(args);
+        boolean temporaryWorkDir = workDir == null;
+        if (temporaryWorkDir) {
+            workDir = Files.createTempDirectory("jfxmirror-loadtest");
+        } else {
+            Files.createDirectories(workDir);
+        }
+
+        logger.debug("Generating fixtures in: " + workDir);
+        LoadTestFixtures fixtures = LoadTestFixtures.create(workDir, prCount);
+        List<String> ocaSigners = new ArrayList<>();
+        for (int contributor = 0; contributor < 10; contributor += 2) {
+            ocaSigners.add("Contributor " + contributor);
+        }
+
+        Process bot = null;
+        try (StubServices stubs = StubServices.start(freePort(), stubLatency, ocaSigners)) {
+            List<WebhookStream.WebhookEvent> events = eventsFile != null ?
+                    WebhookStream.read(eventsFile, fixtures.getPullRequests(), stubs.getGitHubApiUrl()) :
+                    WebhookStream.synthetic(fixtures.getPullRequests(), stubs.getGitHubApiUrl());
+
+            int botPort = freePort();
+            bot = startBot(fixtures, stubs, botPort);
+            String botUrl = "http://localhost:" + botPort;
+            awaitBot(bot, botUrl);
+
+            Map<String, Double> before = LoadTestReport.parseMetrics(get(botUrl + "/metrics"));
+            LoadTestReport report = new LoadTestReport();
+            long elapsedNanos = replay(events, botUrl + "/ghevent", report);
+            Map<String, Double> after = LoadTestReport.parseMetrics(get(botUrl + "/metrics"));
+            report.print(System.out, Duration.ofNanos(elapsedNanos), before, after, readTraces(fixtures),
+                    stubs.getRequestCounts());
+        } finally {
+            if (bot != null) {
+                stopBot(bot);
+            }
+            if (keepWorkDir || !temporaryWorkDir) {
+                logger.info("\u2713 Kept work directory (and the log of the bot, \"bot.log\"): " + workDir);
+            } else {
+                deleteRecursively(workDir);
+            }
+        }
+    }
+
+    /**
+     * Starts the bot in a new JVM (with the class path of this one), pointed at the fixtures and stand-ins.
+     */
+    private static Process startBot(LoadTestFixtures fixtures, StubServices stubs, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Duser.home=" + fixtures.getHomeDir());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Bot.class.getName());
+        command.add("--port");
+        command.add(Integer.toString(port));
+        if (!runWebrev) {
+            command.add("--lazy-webrev");
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("bot.log").toFile());
+        Map<String, String> environment = processBuilder.environment();
+        environment.put("JFXMIRROR_GH_TOKEN", "loadtest");
+        environment.remove("JFXMIRROR_GH_SECRET");
+        environment.put("JFXMIRROR_GH_API_URL", stubs.getGitHubApiUrl());
+        environment.put("JFXMIRROR_JBS_URL", stubs.getJiraUrl());
+        environment.put("JFXMIRROR_OCA_URL", stubs.getOcaUrl());
+        environment.put("JFXMIRROR_UPSTREAM_URL", fixtures.getUpstreamDir().toString());
+        environment.put("JFXMIRROR_MIRROR_URL", fixtures.getGithubDir().toUri().toString());
+        logger.debug("Starting bot on port " + port + " (log: " + workDir.resolve("bot.log") + ")...");
+        return processBuilder.start();
+    }
+
+    /**
+     * Waits until the bot has cloned its repositories and started serving requests.
+     */
+    private static void awaitBot(Process bot, String botUrl) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + BOT_STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!bot.isAlive()) {
+                throw new IOException("bot exited with code " + bot.exitValue() + " while starting, see: " +
+                        workDir.resolve("bot.log"));
+            }
+            try {
+                get(botUrl + "/metrics");
+                logger.info("\u2713 Bot started.");
+                return;
+            } catch (IOException e) {
+                TimeUnit.MILLISECONDS.sleep(500);
+            }
+        }
+        throw new IOException("bot did not start within " + BOT_STARTUP_TIMEOUT + ", see: " +
+                workDir.resolve("bot.log"));
+    }
+
+    private static void stopBot(Process bot) throws InterruptedException {
+        // Lets the shutdown hook of the bot run.
+        bot.destroy();
+        if (!bot.waitFor(30, TimeUnit.SECONDS)) {
+            bot.destroyForcibly();
+        }
+    }
+
+    /**
+     * Replays the given {@code events} against the bot, sending them at {@link #rate} events per second
+     * (as fast as possible if the rate is 0) on at most {@link #concurrency} connections, and returns how
+     * long it took until the bot responded to all of them.
+     */
+    private static long replay(List<WebhookStream.WebhookEvent> events, String webhookUrl, LoadTestReport report)
+            throws InterruptedException {
+        logger.debug("Replaying " + events.size() + " events at " + (rate > 0 ? rate + " events/s" : "full speed") +
+                " with concurrency " + concurrency + "...");
+        AtomicInteger nextDelivery = new AtomicInteger();
+        ExecutorService senders = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "webhookSender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        for (int i = 0; i < events.size(); i++) {
+            long due = rate > 0 ? start + (long) (i / rate * TimeUnit.SECONDS.toNanos(1)) : System.nanoTime();
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            WebhookStream.WebhookEvent event = events.get(i);
+            senders.execute(() -> {
+                int status = send(webhookUrl, event, "loadtest-" + nextDelivery.incrementAndGet());
+                report.record(event, status, System.nanoTime() - due);
+            });
+        }
+        senders.shutdown();
+        senders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Delivers the given {@code event} to the bot like GitHub does, and returns the HTTP status of the
+     * response (or -1 if it could not be delivered).
+     */
+    private static int send(String webhookUrl, WebhookStream.WebhookEvent event, String deliveryId) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(webhookUrl).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setReadTimeout(WEBHOOK_READ_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("X-GitHub-Event", event.getType());
+            connection.setRequestProperty("X-GitHub-Delivery", deliveryId);
+            connection.setFixedLengthStreamingMode(event.getPayload().length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(event.getPayload());
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                readFully(in);
+            }
+            return status;
+        } catch (IOException e) {
+            logger.error("\u2718 Could not deliver " + event.getLabel() + " event: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static String get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(1000);
+        if (connection.getResponseCode() != 200) {
+            throw new IOException(connection.getResponseCode() + " from: " + url);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return new String(readFully(in), UTF_8);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the traces the bot wrote for the checks it ran (~/jfxmirror/pr/{num}/{sha}/trace.json).
+     */
+    private static List<Trace> readTraces(LoadTestFixtures fixtures) throws IOException {
+        Path prDir = fixtures.getHomeDir().resolve("jfxmirror").resolve("pr");
+        if (!Files.isDirectory(prDir)) {
+            return new ArrayList<>();
+        }
+        List<Trace> traces = new ArrayList<>();
+        try (Stream<Path> traceFiles = Files.walk(prDir, 3)) {
+            for (Path traceFile : traceFiles.filter(path -> path.endsWith(Trace.FILE_NAME))
+                    .collect(Collectors.toList())) {
+                Trace trace = Trace.read(traceFile.getParent());
+                if (trace != null) {
+                    traces.add(trace);
+                }
+            }
+        }
+        return traces;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static void parseArguments(String[] args) {
+        Iterator<String> argsIterator = Stream.of(args).iterator();
+        while (argsIterator.hasNext()) {
+            String currentArg = argsIterator.next();
+            try {
+                switch (currentArg) {
+                    case "-h":
+                    case "--help":
+                        printUsageAndExit(0);
+                        break;
+                    case "--prs":
+                        prCount = Integer.parseInt(nextArg(argsIterator, currentArg));
+                        break;
+                    case "--rate":
+                        rate = Double.parseDouble(nextArg(argsIterator, currentArg));
+                        break;
+                    case "--concurrency":
+                        concurrency = Integer.parseInt(nextArg(argsIterator, currentArg));
+                        break;
+                    case "--stub-latency":
+                        stubLatency = Duration.ofMillis(Long.parseLong(nextArg(argsIterator, currentArg)));
+                        break;
+                    case "--events":
+                        eventsFile = Paths.get(nextArg(argsIterator, currentArg));
+                        break;
+                    case "--work-dir":
+                        workDir = Paths.get(nextArg(argsIterator, currentArg));
+                        break;
+                    case "--webrev":
+                        runWebrev = true;
+                        break;
+                    case "--keep":
+                        keepWorkDir = true;
+                        break;
+                    default:
+                        logger.error("\u2718 Unknown argument: " + currentArg);
+                        printUsageAndExit(1);
+                }
+            } catch (NumberFormatException e) {
+                logger.error("\u2718 Argument " + currentArg + " must be followed by a number.");
+                printUsageAndExit(2);
+            }
+        }
+        if (prCount < 1 || rate < 0 || concurrency < 1 || stubLatency.isNegative()) {
+            logger.error("\u2718 --prs and --concurrency must be positive, --rate and --stub-latency must not be " +
+                    "negative.");
+            printUsageAndExit(2);
+        }
+    }
+
+    private static String nextArg(Iterator<String> argsIterator, String currentArg) {
+        if (!argsIterator.hasNext()) {
+            logger.error("\u2718 Expecting a value to follow argument: " + currentArg);
+            printUsageAndExit(1);
+        }
+        return argsIterator.next();
+    }
+
+    private static void printUsageAndExit(int exitCode) {
+        PrintStream outStream = exitCode == 0 ? System.out : System.err;
+        outStream.println("Replays GitHub webhook events against jfxmirror_bot, with local stand-ins for every\n" +
+                "external service, and reports throughput and latency.\n\n" +
+                "Usage: ." + File.separator + "gradlew loadTest -PloadTestArgs=\"[options]\"\n\n" +
+                "  --prs {n}              Generate n pull requests (default: 20)\n" +
+                "  --rate {r}             Send r events per second, 0 for as fast as possible (default: 1)\n" +
+                "  --concurrency {c}      Send at most c events at a time (default: 1)\n" +
+                "  --stub-latency {ms}    Delay responses of the stand-ins by ms milliseconds (default: 50)\n" +
+                "  --events {file}        Replay the recorded events in file (one JSON object with an\n" +
+                "                         \"event\" and a \"payload\" per line) instead of generated ones\n" +
+                "  --work-dir {dir}       Generate the fixtures in dir (and keep it) instead of a temporary\n" +
+                "                         directory\n" +
+                "  --webrev               Run (a stand-in for) webrev.ksh for each check instead of using\n" +
+                "                         lazy webrevs (requires ksh)\n" +
+                "  --keep                 Keep the temporary work directory\n" +
+                "  -h, --help             Show this message and exit\n");
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,260 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.aragost.javahg.BaseRepository;
+import com.aragost.javahg.Repository;
+import com.aragost.javahg.RepositoryConfiguration;
+import com.aragost.javahg.commands.AddCommand;
+import com.aragost.javahg.commands.CommitCommand;
+
+/**
+ * The repositories and files a load test runs against, generated from scratch in a work directory:
+ * <ul>
+ *     <li>"upstream": a mercurial repository standing in for OpenJFX upstream (hg.openjdk.java.net)</li>
+ *     <li>"github": a git repository standing in for the GitHub mirror, with the same files as upstream
+ *     merged in by "javafxports-github-bot" and the head of each pull request at "refs/pull/{num}/head"</li>
+ *     <li>"home": the home directory of the bot, with stand-ins for "jcheck.py" and "webrev.ksh" (so that
+ *     nothing is downloaded)</li>
+ * </ul>
+ * Each pull request changes a few lines of one source file in one or more commits, and references a JBS bug
+ * (the bugs of every tenth pull request do not exist, see {@link StubServices}).
+ */
+class LoadTestFixtures {
+
+    static final int FIRST_BUG = 8200000;
+    private static final int SOURCE_FILES = 50;
+    private static final int LINES_PER_FILE = 200;
+    private static final int CONTRIBUTORS = 10;
+    private static final String SOURCE_DIR = "modules/javafx.base/src/main/java/javafx/loadtest";
+    private static final PersonIdent UPSTREAM_COMMITTER = new PersonIdent("Upstream Committer",
+            "upstream@example.com");
+    private static final PersonIdent MIRROR_BOT = new PersonIdent("javafxports-github-bot",
+            "bot@example.com");
+    private static final String JCHECK_EXTENSION = "# Stand-in for jcheck.py (load testing): accepts every change.\n" +
+            "cmdtable = {}\n" +
+            "try:\n" +
+            "    from mercurial import registrar\n" +
+            "    command = registrar.command(cmdtable)\n" +
+            "except (ImportError, AttributeError):\n" +
+            "    from mercurial import cmdutil\n" +
+            "    command = cmdutil.command(cmdtable)\n" +
+            "\n" +
+            "@command(b'jcheck', [], b'hg jcheck')\n" +
+            "def jcheck(ui, repo, *args, **opts):\n" +
+            "    return 0\n";
+    private static final String WEBREV_SCRIPT = "# Stand-in for webrev.ksh (load testing): writes an empty webrev.\n" +
+            "while [ $# -gt 0 ]; do\n" +
+            "    if [ \"$1\" = \"-o\" ]; then shift; out=\"$1\"; fi\n" +
+            "    shift\n" +
+            "done\n" +
+            "mkdir -p \"$out\" && echo \"<html><body>webrev</body></html>\" > \"$out/index.html\"\n";
+
+    private final Path upstreamDir;
+    private final Path githubDir;
+    private final Path homeDir;
+    private final List<FixturePullRequest> pullRequests;
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestFixtures.class);
+
+    private LoadTestFixtures(Path upstreamDir, Path githubDir, Path homeDir, List<FixturePullRequest> pullRequests) {
+        this.upstreamDir = upstreamDir;
+        this.githubDir = githubDir;
+        this.homeDir = homeDir;
+        this.pullRequests = pullRequests;
+    }
+
+    /**
+     * Generates the fixtures, with {@code prCount} pull requests, in the given (empty) {@code workDir}.
+     */
+    static LoadTestFixtures create(Path workDir, int prCount) throws IOException {
+        Objects.requireNonNull(workDir, "workDir must not be null");
+        Path upstreamDir = workDir.resolve("upstream");
+        Path githubDir = workDir.resolve("github");
+        Path homeDir = workDir.resolve("home");
+
+        logger.debug("Creating upstream mercurial repository: " + upstreamDir);
+        Files.createDirectories(upstreamDir);
+        writeSources(upstreamDir);
+        BaseRepository upstream = Repository.create(new RepositoryConfiguration(), upstreamDir.toFile());
+        try {
+            AddCommand.on(upstream).execute();
+            CommitCommand.on(upstream).user(UPSTREAM_COMMITTER.getName() + " <" +
+                    UPSTREAM_COMMITTER.getEmailAddress() + ">").message(FIRST_BUG - 1 + ": Initial import").execute();
+        } finally {
+            upstream.close();
+        }
+
+        logger.debug("Creating git mirror repository with " + prCount + " pull requests: " + githubDir);
+        List<FixturePullRequest> pullRequests = new ArrayList<>();
+        try (Git github = Git.init().setDirectory(githubDir.toFile()).call()) {
+            writeSources(githubDir);
+            github.add().addFilepattern(".").call();
+            github.commit().setMessage(FIRST_BUG - 1 + ": Initial import").setAuthor(UPSTREAM_COMMITTER)
+                    .setCommitter(UPSTREAM_COMMITTER).call();
+            RevCommit base = github.commit().setMessage("Merge from (root)").setAuthor(MIRROR_BOT)
+                    .setCommitter(MIRROR_BOT).setAllowEmpty(true).call();
+
+            for (int num = 1; num <= prCount; num++) {
+                pullRequests.add(createPullRequest(github, base, num));
+            }
+            github.checkout().setName("master").call();
+        } catch (GitAPIException e) {
+            throw new IOException(e);
+        }
+
+        Path botDir = homeDir.resolve("jfxmirror");
+        Files.createDirectories(botDir.resolve("webrev"));
+        Files.write(botDir.resolve("jcheck.py"), JCHECK_EXTENSION.getBytes(UTF_8));
+        Files.write(botDir.resolve("webrev").resolve("webrev.ksh"), WEBREV_SCRIPT.getBytes(UTF_8));
+        return new LoadTestFixtures(upstreamDir, githubDir, homeDir, Collections.unmodifiableList(pullRequests));
+    }
+
+    private static FixturePullRequest createPullRequest(Git github, RevCommit base, int num)
+            throws IOException, GitAPIException {
+        int bug = FIRST_BUG + num;
+        String login = "contributor" + (num % CONTRIBUTORS);
+        PersonIdent contributor = new PersonIdent("Contributor " + (num % CONTRIBUTORS), login + "@example.com");
+        String branch = "JDK-" + bug;
+        github.checkout().setCreateBranch(true).setName(branch).setStartPoint(base).call();
+
+        Path sourceFile = github.getRepository().getWorkTree().toPath().resolve(SOURCE_DIR)
+                .resolve(sourceFileName(num % SOURCE_FILES));
+        RevCommit head = null;
+        int commitCount = 1 + num % 3;
+        for (int commit = 0; commit < commitCount; commit++) {
+            List<String> lines = new ArrayList<>(Files.readAllLines(sourceFile, UTF_8));
+            int line = 10 + (num * 7 + commit * 31) % (LINES_PER_FILE - 20);
+            lines.set(line, "        int value" + line + " = " + num + "; // Changed by pull request #" + num);
+            Files.write(sourceFile, lines, UTF_8);
+            github.add().addFilepattern(".").call();
+            String message = commit == 0 ? "JDK-" + bug + ": Synthetic change " + num : "Address review comments";
+            head = github.commit().setMessage(message).setAuthor(contributor).setCommitter(contributor).call();
+        }
+
+        RefUpdate pullHead = github.getRepository().updateRef("refs/pull/" + num + "/head");
+        pullHead.setNewObjectId(head);
+        pullHead.forceUpdate();
+        github.checkout().setName("master").call();
+        github.branchDelete().setBranchNames(Constants.R_HEADS + branch).setForce(true).call();
+        return new FixturePullRequest(Integer.toString(num), bug + ": Synthetic change " + num, login,
+                head.getName(), branch, base.getName(), commitCount);
+    }
+
+    private static void writeSources(Path root) throws IOException {
+        Path jcheckDir = root.resolve(".jcheck");
+        Files.createDirectories(jcheckDir);
+        Files.write(jcheckDir.resolve("conf"), "project=openjfx\nbugids=dup\n".getBytes(UTF_8));
+
+        Path sourceDir = root.resolve(SOURCE_DIR);
+        Files.createDirectories(sourceDir);
+        for (int file = 0; file < SOURCE_FILES; file++) {
+            StringBuilder source = new StringBuilder(LINES_PER_FILE * 40);
+            String className = sourceFileName(file).replace(".java", "");
+            source.append("package javafx.loadtest;\n\npublic class ").append(className).append(" {\n");
+            source.append("    public int compute() {\n");
+            for (int line = 4; line < LINES_PER_FILE - 3; line++) {
+                source.append("        int value").append(line).append(" = ").append(line).append(";\n");
+            }
+            source.append("        return 0;\n    }\n}\n");
+            Files.write(sourceDir.resolve(sourceFileName(file)), source.toString().getBytes(UTF_8));
+        }
+    }
+
+    private static String sourceFileName(int file) {
+        return "Generated" + file + ".java";
+    }
+
+    /**
+     * Returns the mercurial repository the bot clones as upstream.
+     */
+    Path getUpstreamDir() {
+        return upstreamDir;
+    }
+
+    /**
+     * Returns the git repository the bot clones as its mirror, and fetches pull requests from.
+     */
+    Path getGithubDir() {
+        return githubDir;
+    }
+
+    /**
+     * Returns the directory the bot is run with as its home ("user.home").
+     */
+    Path getHomeDir() {
+        return homeDir;
+    }
+
+    List<FixturePullRequest> getPullRequests() {
+        return pullRequests;
+    }
+
+    /**
+     * A pull request whose head is at "refs/pull/{num}/head" of the git mirror.
+     */
+    static class FixturePullRequest {
+        private final String number;
+        private final String title;
+        private final String userLogin;
+        private final String headSha;
+        private final String headRef;
+        private final String baseSha;
+        private final int commitCount;
+
+        FixturePullRequest(String number, String title, String userLogin, String headSha, String headRef,
+                           String baseSha, int commitCount) {
+            this.number = number;
+            this.title = title;
+            this.userLogin = userLogin;
+            this.headSha = headSha;
+            this.headRef = headRef;
+            this.baseSha = baseSha;
+            this.commitCount = commitCount;
+        }
+
+        String getNumber() {
+            return number;
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        String getUserLogin() {
+            return userLogin;
+        }
+
+        String getHeadSha() {
+            return headSha;
+        }
+
+        String getHeadRef() {
+            return headRef;
+        }
+
+        String getBaseSha() {
+            return baseSha;
+        }
+
+        int getCommitCount() {
+            return commitCount;
+        }
+    }
+}
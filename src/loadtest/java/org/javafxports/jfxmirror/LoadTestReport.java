@@ -0,0 +1,173 @@
+package org.javafxports.jfxmirror;
+
+import static java.util.Locale.US;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The results of a load test: the latency of every webhook event that was replayed, and what the bot
+ * recorded about itself while handling them (its metrics before and after, and the traces of the checks).
+ * <p>
+ * The latency of an event is measured from when it was due to be sent (not when it was actually sent) to
+ * when the bot responded, so time spent queued behind earlier events counts towards it. The bot checks a
+ * pull request before responding to the event, so this is the latency of the check.
+ */
+class LoadTestReport {
+
+    // Guarded by "this".
+    private final Map<String, List<Long>> latencies = new TreeMap<>();
+    private final Map<String, Integer> failures = new TreeMap<>();
+    private int checks;
+
+    /**
+     * Records that the bot responded to the given {@code event} with the given HTTP {@code status} ({@code -1}
+     * if the request failed) after {@code latencyNanos}.
+     */
+    synchronized void record(WebhookStream.WebhookEvent event, int status, long latencyNanos) {
+        Objects.requireNonNull(event, "event must not be null");
+        latencies.computeIfAbsent(event.getLabel(), label -> new ArrayList<>()).add(latencyNanos);
+        if (status < 200 || status >= 300) {
+            failures.merge(event.getLabel(), 1, Integer::sum);
+        } else if (event.isCheck()) {
+            checks++;
+        }
+    }
+
+    /**
+     * Prints the report.
+     *
+     * @param elapsed how long it took to replay all events (and get all responses)
+     * @param before the metrics of the bot before the events were replayed
+     * @param after the metrics of the bot after all events were handled
+     * @param traces the traces of the checks that were run
+     * @param stubRequests the number of requests made to each of the stand-ins for external services
+     */
+    synchronized void print(PrintStream out, Duration elapsed, Map<String, Double> before, Map<String, Double> after,
+                            List<Trace> traces, Map<String, Long> stubRequests) {
+        double seconds = Math.max(elapsed.toNanos() / 1e9, 1e-9);
+        int events = latencies.values().stream().mapToInt(List::size).sum();
+        out.println();
+        out.println("=== Load test results ===");
+        out.printf(US, "Events replayed:    %d in %.1f s (%.2f events/s)%n", events, seconds, events / seconds);
+        out.printf(US, "Checks completed:   %d (%.1f PRs/hour)%n", checks, checks / seconds * 3600);
+        for (String result : new String[] {"success", "failure", "error"}) {
+            double count = delta(before, after, "jfxmirror_checks_total{result=\"" + result + "\"}");
+            out.printf(US, "  %-17s %.0f%n", result + ":", count);
+        }
+
+        out.println();
+        out.printf(US, "%-24s %7s %7s %10s %10s %10s%n", "Event", "count", "failed", "p50 (ms)", "p99 (ms)",
+                "max (ms)");
+        latencies.forEach((label, values) -> {
+            long[] sorted = sorted(values);
+            out.printf(US, "%-24s %7d %7d %10.1f %10.1f %10.1f%n", label, sorted.length,
+                    failures.getOrDefault(label, 0), millis(percentile(sorted, 50)), millis(percentile(sorted, 99)),
+                    millis(sorted[sorted.length - 1]));
+        });
+
+        out.println();
+        out.println("Stages (wall time from traces, CPU time of the JVM from metrics, and time spent in external");
+        out.println("processes and GitHub requests made by the stage):");
+        out.printf(US, "%-26s %6s %10s %10s %12s %14s%n", "Stage", "count", "p50 (ms)", "p99 (ms)",
+                "cpu/op (ms)", "external (ms)");
+        Map<String, List<Long>> stageDurations = new TreeMap<>();
+        Map<String, Long> externalNanos = new HashMap<>();
+        for (Trace trace : traces) {
+            List<Trace.Span> spans = trace.getSpans();
+            if (spans.isEmpty()) {
+                continue;
+            }
+            int rootId = spans.get(0).getId();
+            Map<Integer, String> stageOfSpan = new HashMap<>();
+            for (Trace.Span span : spans) {
+                if (span.getParentId() == rootId) {
+                    stageOfSpan.put(span.getId(), span.getName());
+                    stageDurations.computeIfAbsent(span.getName(), name -> new ArrayList<>())
+                            .add(span.getDurationNanos());
+                } else if (stageOfSpan.containsKey(span.getParentId())) {
+                    externalNanos.merge(stageOfSpan.get(span.getParentId()), span.getDurationNanos(), Long::sum);
+                }
+            }
+        }
+        stageDurations.forEach((stage, values) -> {
+            long[] sorted = sorted(values);
+            String label = "{stage=\"" + stage + "\"}";
+            double cpuCount = delta(before, after, "jfxmirror_stage_cpu_seconds_count" + label);
+            double cpuMillis = cpuCount == 0 ? Double.NaN :
+                    delta(before, after, "jfxmirror_stage_cpu_seconds_sum" + label) / cpuCount * 1000;
+            out.printf(US, "%-26s %6d %10.1f %10.1f %12.1f %14.1f%n", stage, sorted.length,
+                    millis(percentile(sorted, 50)), millis(percentile(sorted, 99)), cpuMillis,
+                    millis(externalNanos.getOrDefault(stage, 0L) / sorted.length));
+        });
+
+        out.println();
+        double cpuSeconds = delta(before, after, "process_cpu_seconds_total");
+        double gcSeconds = 0;
+        for (Map.Entry<String, Double> metric : after.entrySet()) {
+            if (metric.getKey().startsWith("jvm_gc_collection_seconds_total")) {
+                gcSeconds += delta(before, after, metric.getKey());
+            }
+        }
+        out.printf(US, "Bot JVM CPU:        %.1f s (%.0f%% of one core)%n", cpuSeconds, cpuSeconds / seconds * 100);
+        out.printf(US, "Bot JVM GC:         %.2f s%n", gcSeconds);
+        out.printf(US, "Bot JVM heap used:  %.0f MB (after), threads: %.0f%n",
+                after.getOrDefault("jvm_memory_bytes_used{area=\"heap\"}", 0d) / (1024 * 1024),
+                after.getOrDefault("jvm_threads_current", 0d));
+        out.println("Requests to stand-ins: " + stubRequests);
+    }
+
+    private static double delta(Map<String, Double> before, Map<String, Double> after, String metric) {
+        return after.getOrDefault(metric, 0d) - before.getOrDefault(metric, 0d);
+    }
+
+    private static long[] sorted(List<Long> values) {
+        long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the given {@code percentile} of the given (sorted, non-empty) values, by the nearest-rank method.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Parses metrics in the Prometheus text format into a map of each sample (its name and labels, as they
+     * appear in the text) to its value.
+     */
+    static Map<String, Double> parseMetrics(String text) {
+        Objects.requireNonNull(text, "text must not be null");
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = line.lastIndexOf(' ');
+            if (separator > 0) {
+                try {
+                    samples.put(line.substring(0, separator), Double.parseDouble(line.substring(separator + 1)));
+                } catch (NumberFormatException e) {
+                    // Not a sample, skip it.
+                }
+            }
+        }
+        return Collections.unmodifiableMap(samples);
+    }
+}
@@ -0,0 +1,255 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Local stand-ins for the external services the bot uses, served by one HTTP server:
+ * <ul>
+ *     <li>"/github": the GitHub API (creating statuses and comments)</li>
+ *     <li>"/jira": the search of the JIRA REST API (JBS), where bugs whose number ends in 7 do not exist
+ *     (so a query that references one is rejected, as JIRA does)</li>
+ *     <li>"/oca": Oracle's OCA signatures page (supporting conditional GETs)</li>
+ * </ul>
+ * Every response is delayed by a fixed latency to approximate talking to the real services, and the
+ * requests made to each service are counted.
+ */
+class StubServices implements AutoCloseable {
+
+    private static final Pattern BUG_PATTERN = Pattern.compile("JDK-(\\d+)");
+    private static final int WORKER_THREADS = 64;
+    private static final String OCA_ETAG = "\"loadtest-oca\"";
+
+    private final HttpServer httpServer;
+    private final String baseUrl;
+    private final Duration latency;
+    private final Map<String, LongAdder> requests = new LinkedHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final byte[] ocaPage;
+    private static final Logger logger = LoggerFactory.getLogger(StubServices.class);
+
+    private StubServices(HttpServer httpServer, String baseUrl, Duration latency, byte[] ocaPage) {
+        this.httpServer = httpServer;
+        this.baseUrl = baseUrl;
+        this.latency = latency;
+        this.ocaPage = ocaPage;
+        for (String service : new String[] {"github", "jira", "oca", "other"}) {
+            requests.put(service, new LongAdder());
+        }
+    }
+
+    /**
+     * Starts the stand-ins on the given {@code port} of localhost, delaying each response by {@code latency}.
+     * The OCA page lists the names of the given {@code ocaSigners}.
+     */
+    static StubServices start(int port, Duration latency, List<String> ocaSigners) throws IOException {
+        Objects.requireNonNull(latency, "latency must not be null");
+        Objects.requireNonNull(ocaSigners, "ocaSigners must not be null");
+        HttpServer httpServer = new HttpServer();
+        NetworkListener listener = new NetworkListener("stubs", "localhost", port);
+        listener.getTransport().setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+                .setPoolName("stubs").setCorePoolSize(WORKER_THREADS).setMaxPoolSize(WORKER_THREADS));
+        httpServer.addListener(listener);
+        StubServices stubs = new StubServices(httpServer, "http://localhost:" + port, latency,
+                ocaPage(ocaSigners));
+        httpServer.getServerConfiguration().addHttpHandler(new HttpHandler() {
+            @Override
+            public void service(Request request, Response response) throws Exception {
+                stubs.service(request, response);
+            }
+        }, "/");
+        httpServer.start();
+        logger.debug("Started stand-ins for GitHub, JBS and Oracle at: " + stubs.baseUrl);
+        return stubs;
+    }
+
+    String getGitHubApiUrl() {
+        return baseUrl + "/github";
+    }
+
+    String getJiraUrl() {
+        return baseUrl + "/jira";
+    }
+
+    String getOcaUrl() {
+        return baseUrl + "/oca";
+    }
+
+    /**
+     * Returns the number of requests made to each stand-in (and to unknown paths, as "other").
+     */
+    Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        requests.forEach((service, count) -> counts.put(service, count.sum()));
+        return counts;
+    }
+
+    private void service(Request request, Response response) throws IOException, InterruptedException {
+        String path = request.getRequestURI();
+        String service = path.startsWith("/github/") ? "github" : path.startsWith("/jira/") ? "jira" :
+                path.equals("/oca") ? "oca" : "other";
+        requests.get(service).increment();
+        if (!latency.isZero()) {
+            TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+        }
+        switch (service) {
+            case "github":
+                serveGitHub(request, response, path);
+                break;
+            case "jira":
+                serveJira(request, response, path);
+                break;
+            case "oca":
+                if (OCA_ETAG.equals(request.getHeader("If-None-Match"))) {
+                    response.setStatus(304);
+                } else {
+                    response.setHeader("ETag", OCA_ETAG);
+                    write(response, 200, "text/html; charset=utf-8", ocaPage);
+                }
+                break;
+            default:
+                write(response, 404, "text/plain", "not found".getBytes(UTF_8));
+        }
+    }
+
+    private void serveGitHub(Request request, Response response, String path) throws IOException {
+        response.setHeader("X-RateLimit-Limit", "5000");
+        response.setHeader("X-RateLimit-Remaining", "4999");
+        response.setHeader("X-RateLimit-Reset", Long.toString(System.currentTimeMillis() / 1000 + 3600));
+        drain(request.getInputStream());
+        if (request.getMethod() == Method.POST && (path.contains("/statuses/") || path.endsWith("/comments"))) {
+            ObjectNode created = JsonNodeFactory.instance.objectNode().put("id", nextId.getAndIncrement());
+            write(response, 201, "application/json", created.toString().getBytes(UTF_8));
+        } else {
+            // The commits of pull requests are read from the git mirror, so the commits endpoint is not needed.
+            write(response, 404, "application/json", "{\"message\":\"Not Found\"}".getBytes(UTF_8));
+        }
+    }
+
+    private void serveJira(Request request, Response response, String path) throws IOException {
+        if (!path.endsWith("/search")) {
+            write(response, 404, "application/json", "{\"errorMessages\":[\"Not Found\"]}".getBytes(UTF_8));
+            return;
+        }
+        // The JQL is in the query string of a GET, or in the body of a POST.
+        String query = request.getMethod() == Method.POST ? new String(drain(request.getInputStream()), UTF_8) :
+                URLDecoder.decode(request.getQueryString() == null ? "" : request.getQueryString(), "UTF-8");
+        Set<String> bugs = new TreeSet<>();
+        Matcher matcher = BUG_PATTERN.matcher(query);
+        while (matcher.find()) {
+            if (matcher.group(1).endsWith("7")) {
+                ObjectNode error = JsonNodeFactory.instance.objectNode();
+                error.putArray("errorMessages").add("An issue with key '" + matcher.group() +
+                        "' does not exist for field 'id'.");
+                error.putObject("errors");
+                write(response, 400, "application/json", error.toString().getBytes(UTF_8));
+                return;
+            }
+            bugs.add(matcher.group());
+        }
+
+        ObjectNode result = JsonNodeFactory.instance.objectNode()
+                .put("expand", "schema,names")
+                .put("startAt", 0)
+                .put("maxResults", Math.max(bugs.size(), 1))
+                .put("total", bugs.size());
+        ArrayNode issues = result.putArray("issues");
+        for (String bug : bugs) {
+            issues.add(jiraIssue(bug));
+        }
+        write(response, 200, "application/json", result.toString().getBytes(UTF_8));
+    }
+
+    private ObjectNode jiraIssue(String key) {
+        String self = getJiraUrl() + "/rest/api/2/";
+        String id = key.substring(4);
+        ObjectNode issue = JsonNodeFactory.instance.objectNode()
+                .put("expand", "")
+                .put("id", id)
+                .put("self", self + "issue/" + id)
+                .put("key", key);
+        ObjectNode fields = issue.putObject("fields");
+        fields.put("summary", "Synthetic bug " + key);
+        fields.putObject("issuetype").put("self", self + "issuetype/1").put("id", "1").put("name", "Bug")
+                .put("subtask", false).put("description", "A problem.").put("iconUrl", self + "bug.png");
+        fields.put("created", "2018-03-01T10:00:00.000+0000");
+        fields.put("updated", "2018-03-05T10:00:00.000+0000");
+        fields.putObject("project").put("self", self + "project/10100").put("id", "10100").put("key", "JDK")
+                .put("name", "JDK");
+        fields.putObject("status").put("self", self + "status/1").put("id", "1").put("name", "Open")
+                .put("description", "The issue is open.").put("iconUrl", self + "open.png");
+        fields.putArray("components").addObject().put("self", self + "component/10300").put("id", "10300")
+                .put("name", "javafx");
+        return issue;
+    }
+
+    /**
+     * Returns a page laid out like Oracle's OCA page: the signatures are listed (in {@code <li>}s) in every
+     * other {@code <ul>} of the first cell of a ".dataTable", starting with the fifth child of the cell.
+     */
+    private static byte[] ocaPage(List<String> ocaSigners) {
+        StringBuilder page = new StringBuilder("<html><body><table class=\"dataTable\"><tbody><tr><td>");
+        page.append("<h2>OCA Signatories</h2><p>Signatories</p><p>By last name</p><p>A</p>");
+        page.append("<ul>");
+        for (String signer : ocaSigners) {
+            page.append("<li>").append(signer).append(" - OpenJFX</li>");
+        }
+        page.append("</ul><p>XYZ</p><ul><li>Zed Zimmer - OpenJFX</li></ul>");
+        return page.append("</td></tr></tbody></table></body></html>").toString().getBytes(UTF_8);
+    }
+
+    private static byte[] drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(Response response, int status, String contentType, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(contentType);
+        response.setContentLength(body.length);
+        try (OutputStream out = response.getOutputStream()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        httpServer.shutdownNow();
+    }
+}
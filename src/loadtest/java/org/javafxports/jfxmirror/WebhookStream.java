@@ -0,0 +1,193 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A stream of GitHub webhook events ("pull_request" and "issue_comment") to replay against the bot, either
+ * generated for the pull requests of the fixtures or read from a recording.
+ * <p>
+ * A recording has one event per line: a JSON object with the "event" type (the "X-GitHub-Event" header)
+ * and the "payload" that was delivered. The GitHub API URLs in recorded payloads are rewritten to point at
+ * the stand-in for GitHub, and their pull requests are replaced with those of the fixtures.
+ */
+class WebhookStream {
+
+    private static final String GITHUB_API_URL = "https://api.github.com";
+    private static final String REPO_FULL_NAME = "javafxports/openjdk-jfx";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private WebhookStream() {}
+
+    /**
+     * Generates the events of the given {@code pullRequests}: each is opened, every fourth is edited after
+     * being opened, and the opener of every third comments on it (as they would to confirm their OCA
+     * signature), in the order GitHub would deliver them.
+     */
+    static List<WebhookEvent> synthetic(List<LoadTestFixtures.FixturePullRequest> pullRequests, String apiUrl) {
+        Objects.requireNonNull(pullRequests, "pullRequests must not be null");
+        Objects.requireNonNull(apiUrl, "apiUrl must not be null");
+        List<WebhookEvent> events = new ArrayList<>();
+        for (int i = 0; i < pullRequests.size(); i++) {
+            LoadTestFixtures.FixturePullRequest pullRequest = pullRequests.get(i);
+            events.add(pullRequestEvent("opened", pullRequest, apiUrl));
+            // Follow-ups are delivered a little later, interleaved with events of other pull requests.
+            if (i >= 2) {
+                LoadTestFixtures.FixturePullRequest earlier = pullRequests.get(i - 2);
+                int num = Integer.parseInt(earlier.getNumber());
+                if (num % 3 == 0) {
+                    events.add(issueCommentEvent(earlier, apiUrl, "@jfxmirror-bot Yes, that's me"));
+                }
+                if (num % 4 == 0) {
+                    events.add(pullRequestEvent("edited", earlier, apiUrl));
+                }
+            }
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Reads a recorded stream of events from the given {@code file}. The pull requests of the recording do
+     * not exist in the fixtures, so each is replaced (in the order they first appear) by one of the given
+     * {@code pullRequests}: its number, head and base are rewritten, everything else is replayed as recorded.
+     */
+    static List<WebhookEvent> read(Path file, List<LoadTestFixtures.FixturePullRequest> pullRequests,
+                                   String apiUrl) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        Objects.requireNonNull(pullRequests, "pullRequests must not be null");
+        Objects.requireNonNull(apiUrl, "apiUrl must not be null");
+        Map<String, LoadTestFixtures.FixturePullRequest> replacements = new HashMap<>();
+        List<WebhookEvent> events = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, UTF_8)) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JsonNode recorded = objectMapper.readTree(line);
+            if (!recorded.path("event").isTextual() || !recorded.path("payload").isObject()) {
+                throw new IOException("line " + lineNumber + " of " + file + " must be an object with an " +
+                        "\"event\" and a \"payload\"");
+            }
+            String type = recorded.get("event").asText();
+            ObjectNode payload = (ObjectNode) recorded.get("payload");
+            JsonNode number = type.equals("issue_comment") ? payload.path("issue").path("number") :
+                    payload.path("pull_request").path("number");
+            if (!number.isMissingNode() && !pullRequests.isEmpty()) {
+                LoadTestFixtures.FixturePullRequest pullRequest = replacements.computeIfAbsent(number.asText(),
+                        ignored -> pullRequests.get(replacements.size() % pullRequests.size()));
+                replacePullRequest(type, payload, pullRequest, apiUrl);
+            }
+            events.add(new WebhookEvent(type, type + "." + payload.path("action").asText(),
+                    payload.toString().replace(GITHUB_API_URL, apiUrl).getBytes(UTF_8)));
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    private static void replacePullRequest(String type, ObjectNode payload,
+                                           LoadTestFixtures.FixturePullRequest pullRequest, String apiUrl) {
+        String repoUrl = apiUrl + "/repos/" + REPO_FULL_NAME;
+        int number = Integer.parseInt(pullRequest.getNumber());
+        if (type.equals("issue_comment")) {
+            ((ObjectNode) payload.get("issue")).put("number", number)
+                    .put("comments_url", repoUrl + "/issues/" + number + "/comments");
+            return;
+        }
+        payload.put("number", number);
+        ObjectNode pr = (ObjectNode) payload.get("pull_request");
+        pr.put("number", number).put("commits", pullRequest.getCommitCount());
+        pr.with("head").put("ref", pullRequest.getHeadRef()).put("sha", pullRequest.getHeadSha());
+        pr.with("base").put("sha", pullRequest.getBaseSha());
+        ObjectNode links = pr.with("_links");
+        links.with("commits").put("href", repoUrl + "/pulls/" + number + "/commits");
+        links.with("comments").put("href", repoUrl + "/issues/" + number + "/comments");
+    }
+
+    private static WebhookEvent pullRequestEvent(String action, LoadTestFixtures.FixturePullRequest pullRequest,
+                                                 String apiUrl) {
+        String repoUrl = apiUrl + "/repos/" + REPO_FULL_NAME;
+        ObjectNode payload = JsonNodeFactory.instance.objectNode()
+                .put("action", action)
+                .put("number", Integer.parseInt(pullRequest.getNumber()));
+        ObjectNode pr = payload.putObject("pull_request");
+        pr.put("url", repoUrl + "/pulls/" + pullRequest.getNumber())
+                .put("number", Integer.parseInt(pullRequest.getNumber()))
+                .put("state", "open")
+                .put("title", pullRequest.getTitle())
+                .put("body", "Synthetic pull request for load testing.")
+                .put("commits", pullRequest.getCommitCount());
+        pr.putObject("user").put("login", pullRequest.getUserLogin());
+        pr.putObject("head").put("ref", pullRequest.getHeadRef()).put("sha", pullRequest.getHeadSha());
+        pr.putObject("base").put("ref", "master").put("sha", pullRequest.getBaseSha());
+        ObjectNode links = pr.putObject("_links");
+        links.putObject("commits").put("href", repoUrl + "/pulls/" + pullRequest.getNumber() + "/commits");
+        links.putObject("comments").put("href", repoUrl + "/issues/" + pullRequest.getNumber() + "/comments");
+        payload.putObject("repository").put("full_name", REPO_FULL_NAME);
+        payload.putObject("sender").put("login", pullRequest.getUserLogin());
+        return new WebhookEvent("pull_request", "pull_request." + action,
+                payload.toString().getBytes(UTF_8));
+    }
+
+    private static WebhookEvent issueCommentEvent(LoadTestFixtures.FixturePullRequest pullRequest, String apiUrl,
+                                                  String body) {
+        String repoUrl = apiUrl + "/repos/" + REPO_FULL_NAME;
+        ObjectNode payload = JsonNodeFactory.instance.objectNode().put("action", "created");
+        payload.putObject("issue")
+                .put("number", Integer.parseInt(pullRequest.getNumber()))
+                .put("comments_url", repoUrl + "/issues/" + pullRequest.getNumber() + "/comments");
+        ObjectNode comment = payload.putObject("comment").put("body", body);
+        comment.putObject("user").put("login", pullRequest.getUserLogin());
+        payload.putObject("repository").put("full_name", REPO_FULL_NAME);
+        return new WebhookEvent("issue_comment", "issue_comment.created", payload.toString().getBytes(UTF_8));
+    }
+
+    /**
+     * A webhook event: its type (the "X-GitHub-Event" header), a label it is reported under (the type and
+     * action) and its payload.
+     */
+    static class WebhookEvent {
+        private final String type;
+        private final String label;
+        private final byte[] payload;
+
+        WebhookEvent(String type, String label, byte[] payload) {
+            this.type = type;
+            this.label = label;
+            this.payload = payload;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        String getLabel() {
+            return label;
+        }
+
+        byte[] getPayload() {
+            return payload;
+        }
+
+        /**
+         * Returns whether the bot checks a pull request when it receives this event.
+         */
+        boolean isCheck() {
+            return label.equals("pull_request.opened") || label.equals("pull_request.edited") ||
+                    label.equals("pull_request.reopened");
+        }
+    }
+}
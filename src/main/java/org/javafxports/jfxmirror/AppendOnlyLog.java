@@ -0,0 +1,255 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A line-oriented, append-only log file that is safe to append to from multiple threads.
+ * <p>
+ * Appends are handed to a single writer thread which writes all of the records that are waiting at that
+ * point with one write followed by one fsync ("group commit"), so concurrent writers never interleave and
+ * share the cost of syncing. An append is only complete once its record is durable.
+ * <p>
+ * A crash can leave the last record partially written. Such a record is removed when the log is opened.
+ * Closing the log waits for the records appended before it to be written and synced.
+ */
+class AppendOnlyLog implements AutoCloseable {
+
+    // Queued by close(): the writer writes the records queued before it, and then stops.
+    private static final PendingRecord CLOSE = new PendingRecord("");
+
+    private final Path path;
+    private final BlockingQueue<PendingRecord> pending = new LinkedBlockingQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Thread writer;
+    private FileChannel channel;
+    private volatile boolean closed;
+    private static final Logger logger = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+    AppendOnlyLog(Path path) throws IOException {
+        Objects.requireNonNull(path, "path must not be null");
+        this.path = path;
+        truncateTornRecord(path);
+        this.channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+        this.writer = new Thread(this::writeLoop, "logWriter-" + path.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Removes a partially written record from the end of the log at the given {@code path} (if there is
+     * one), so that the next record is not appended to it.
+     */
+    private static void truncateTornRecord(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel logChannel = FileChannel.open(path, READ, WRITE)) {
+            long size = logChannel.size();
+            long end = size;
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            // Scan backwards (a chunk at a time) for the last line separator.
+            findEnd:
+            while (end > 0) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (logChannel.read(buffer, start + buffer.position()) == -1) {
+                        throw new IOException("unexpected end of: " + path);
+                    }
+                }
+                for (int i = buffer.limit() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        end = start + i + 1;
+                        break findEnd;
+                    }
+                }
+                end = start;
+            }
+            if (end < size) {
+                logger.warn("Removing partially written record at the end of: " + path);
+                logChannel.truncate(end);
+                logChannel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Returns all of the complete records in the log, oldest first.
+     */
+    List<String> readRecords() throws IOException {
+        byte[] contents = Files.readAllBytes(path);
+        List<String> records = new ArrayList<>();
+        int recordStart = 0;
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] == '\n') {
+                if (i > recordStart) {
+                    records.add(new String(contents, recordStart, i - recordStart, UTF_8));
+                }
+                recordStart = i + 1;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Appends the given {@code record} (which must not contain a line separator) to the log, returning
+     * once it has been written and synced to disk.
+     */
+    void append(String record) throws IOException {
+        Objects.requireNonNull(record, "record must not be null");
+        if (record.indexOf('\n') != -1 || record.indexOf('\r') != -1) {
+            throw new IllegalArgumentException("record must not contain a line separator: " + record);
+        }
+        if (closed) {
+            throw new IOException("log is closed: " + path);
+        }
+
+        PendingRecord pendingRecord = new PendingRecord(record);
+        pending.add(pendingRecord);
+        try {
+            pendingRecord.written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while appending to: " + path);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Atomically replaces the contents of the log with the given {@code records} (used for compaction).
+     * Appends that happen concurrently wait until the log has been replaced.
+     */
+    void rewrite(List<String> records) throws IOException {
+        Objects.requireNonNull(records, "records must not be null");
+
+        StringBuilder contents = new StringBuilder();
+        for (String record : records) {
+            contents.append(record).append('\n');
+        }
+        Path tempPath = path.resolveSibling(path.getFileName() + ".compact");
+        writeLock.lock();
+        try {
+            try (FileChannel tempChannel = FileChannel.open(tempPath, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                writeFully(tempChannel, ByteBuffer.wrap(contents.toString().getBytes(UTF_8)));
+                tempChannel.force(true);
+            }
+            channel.close();
+            try {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // Reopened whether or not the move succeeded, so a failed rewrite leaves the old log appendable.
+                channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+                Files.deleteIfExists(tempPath);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // The writer is not interrupted, that would close the channel in the middle of writing a batch.
+        pending.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pending.drainTo(batch);
+            int closeIndex = batch.indexOf(CLOSE);
+            if (closeIndex != -1) {
+                closing = true;
+                List<PendingRecord> afterClose = batch.subList(closeIndex, batch.size());
+                afterClose.forEach(record -> record.written.completeExceptionally(
+                        new IOException("log is closed: " + path)));
+                afterClose.clear();
+                if (batch.isEmpty()) {
+                    break;
+                }
+            }
+
+            StringBuilder contents = new StringBuilder();
+            for (PendingRecord record : batch) {
+                contents.append(record.record).append('\n');
+            }
+            writeLock.lock();
+            try {
+                writeFully(channel, ByteBuffer.wrap(contents.toString().getBytes(UTF_8)));
+                channel.force(false);
+                batch.forEach(record -> record.written.complete(null));
+            } catch (IOException | RuntimeException e) {
+                // Fail the batch rather than the writer, which would leave every later append waiting forever.
+                batch.forEach(record -> record.written.completeExceptionally(e));
+            } finally {
+                writeLock.unlock();
+            }
+            batch.clear();
+        }
+        // Fail anything that was appended after the log was closed.
+        PendingRecord record;
+        while ((record = pending.poll()) != null) {
+            record.written.completeExceptionally(new IOException("log is closed: " + path));
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static class PendingRecord {
+        private final String record;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private PendingRecord(String record) {
+            this.record = record;
+        }
+    }
+}
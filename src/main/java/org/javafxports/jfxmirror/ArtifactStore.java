@@ -0,0 +1,439 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Deduplicates the artifacts of checked pull requests (~/jfxmirror/pr/{num}/{sha}) by their content.
+ * <p>
+ * Once a SHA has been checked, each of its files is hashed (SHA-256) and stored once as a blob in
+ * ~/jfxmirror/blobs/{2 hex digits}/{hash}: if a blob with that hash already exists the file is replaced by
+ * a hard link to it, otherwise the file is hard linked into the store. The files of the SHA directory stay
+ * where they are (so they are still served directly), but identical files of consecutive SHAs share their
+ * storage. Each SHA directory gets a "manifest.json" listing the hash of each of its files.
+ * <p>
+ * A daily garbage collection first applies the retention policy (the artifacts of PRs that were closed
+ * more than {@link #CLOSED_PR_RETENTION} ago are deleted, and open PRs only keep their
+ * {@link #RETAINED_SHAS} most recent SHAs), then marks every blob referenced by a manifest and sweeps
+ * the rest. It runs concurrently with checks: blobs interned after the mark started are never swept, and
+ * since a SHA directory holds its own link to each blob, sweeping a blob never loses a file that is
+ * still in use. Because files are shared, the artifacts of a SHA are never written in place: they are written
+ * to a temporary file that is moved into place (which breaks the link), and a SHA directory is deleted
+ * before the SHA is checked again (see {@link #release(Path)}).
+ */
+class ArtifactStore implements AutoCloseable {
+
+    static final String MANIFEST_FILE = "manifest.json";
+    private static final Duration CLOSED_PR_RETENTION = Duration.ofDays(30);
+    private static final int RETAINED_SHAS = 5;
+    private static final long GC_INTERVAL_HOURS = 24;
+    /**
+     * SHA directories without a manifest (checked before the store existed) are interned by the garbage
+     * collection once they have not been modified for this long (so a check that is in progress is not
+     * interned).
+     */
+    private static final Duration LEGACY_QUIET_PERIOD = Duration.ofHours(1);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path blobDir;
+    private final Path prDir;
+    private final Supplier<Collection<PrState>> prStates;
+    private final BiConsumer<String, String> onDeleted;
+    private final Set<String> internedSinceMark = ConcurrentHashMap.newKeySet();
+    // Guarded by itself.
+    private final Map<Path, PendingIntern> pendingInterns = new HashMap<>();
+    private final ExecutorService interner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "artifactInterner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService collector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "artifactCollector");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactStore.class);
+
+    /**
+     * @param prStates supplies the current state of every PR, used by the retention policy
+     * @param onDeleted called with the PR number and SHA of the artifacts that are deleted (with a
+     * {@code null} SHA if all artifacts of the PR are deleted)
+     */
+    ArtifactStore(Path blobDir, Path prDir, Supplier<Collection<PrState>> prStates,
+                  BiConsumer<String, String> onDeleted) {
+        Objects.requireNonNull(blobDir, "blobDir must not be null");
+        Objects.requireNonNull(prDir, "prDir must not be null");
+        Objects.requireNonNull(prStates, "prStates must not be null");
+        Objects.requireNonNull(onDeleted, "onDeleted must not be null");
+        this.blobDir = blobDir;
+        this.prDir = prDir;
+        this.prStates = prStates;
+        this.onDeleted = onDeleted;
+    }
+
+    void start() {
+        collector.scheduleWithFixedDelay(() -> {
+            try {
+                collectGarbage();
+            } catch (IOException e) {
+                logger.error("\u2718 Could not collect garbage of artifact store: " + blobDir);
+                logger.debug("exception: ", e);
+            }
+        }, 1, GC_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Interns the files of the given {@code shaDir} in the background.
+     */
+    CompletableFuture<Void> internAsync(Path shaDir) {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        PendingIntern pendingIntern = new PendingIntern();
+        synchronized (pendingInterns) {
+            pendingInterns.put(shaDir, pendingIntern);
+        }
+        interner.execute(() -> {
+            try {
+                synchronized (pendingInterns) {
+                    if (pendingInterns.get(shaDir) != pendingIntern) {
+                        // Released (or queued again) before it started.
+                        return;
+                    }
+                    pendingIntern.started = true;
+                }
+                intern(shaDir);
+            } catch (IOException e) {
+                logger.error("\u2718 Could not store artifacts of: " + shaDir);
+                logger.debug("exception: ", e);
+            } finally {
+                synchronized (pendingInterns) {
+                    pendingInterns.remove(shaDir, pendingIntern);
+                }
+                pendingIntern.done.complete(null);
+            }
+        });
+        return pendingIntern.done;
+    }
+
+    /**
+     * Deletes the given {@code shaDir} before it is checked again. Its files may be hard links to blobs
+     * that are shared with other SHAs, so they must never be written in place. An intern of the directory
+     * that has not started yet is cancelled, one that is running is waited for (it links files to blobs).
+     */
+    void release(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        PendingIntern running;
+        synchronized (pendingInterns) {
+            running = pendingInterns.get(shaDir);
+            if (running != null && !running.started) {
+                pendingInterns.remove(shaDir);
+                running = null;
+            }
+        }
+        if (running != null) {
+            try {
+                running.done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for artifacts of " + shaDir +
+                        " to be stored");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+        // With or without a manifest: a directory whose intern failed part way may still hold links.
+        if (Files.exists(shaDir)) {
+            deleteShaDir(shaDir);
+        }
+    }
+
+    /**
+     * Stores each file of the given {@code shaDir} as a blob (replacing files whose content is already
+     * stored with links to it) and writes the manifest of the directory.
+     *
+     * @return the manifest, mapping the path of each file (relative to {@code shaDir}) to its hash
+     */
+    Map<String, String> intern(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        if (!Files.isDirectory(shaDir)) {
+            // The check failed before it produced any artifacts.
+            return new TreeMap<>();
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(shaDir)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().equals(MANIFEST_FILE))
+                    .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                    .collect(Collectors.toList());
+        }
+        Map<String, String> manifest = new TreeMap<>();
+        long dedupedBytes = 0;
+        for (Path file : files) {
+            String hash = hash(file);
+            // Must be recorded before the blob can be seen by a concurrent sweep.
+            internedSinceMark.add(hash);
+            Path blob = blobPath(hash);
+            if (linkToBlob(file, blob)) {
+                dedupedBytes += Files.size(file);
+            }
+            manifest.put(shaDir.relativize(file).toString().replace('\\', '/'), hash);
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("created", System.currentTimeMillis());
+        ObjectNode manifestFiles = json.putObject("files");
+        manifest.forEach(manifestFiles::put);
+        Path tempFile = shaDir.resolve(MANIFEST_FILE + ".tmp");
+        Files.write(tempFile, json.toString().getBytes(UTF_8));
+        Files.move(tempFile, shaDir.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Stored {} artifact(s) of {}, {} bytes were already stored.", files.size(),
+                prDir.relativize(shaDir), dedupedBytes);
+        return manifest;
+    }
+
+    /**
+     * Makes {@code file} and {@code blob} the same file.
+     *
+     * @return {@code true} if the blob already existed (so {@code file} was a duplicate)
+     */
+    private static boolean linkToBlob(Path file, Path blob) throws IOException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (Files.exists(blob)) {
+                if (Files.isSameFile(file, blob)) {
+                    return true;
+                }
+                Path link = file.resolveSibling(file.getFileName() + ".link.tmp");
+                Files.deleteIfExists(link);
+                try {
+                    Files.createLink(link, blob);
+                } catch (NoSuchFileException e) {
+                    // The blob was swept in the meantime, store this file instead.
+                    continue;
+                }
+                Files.move(link, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            }
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.createLink(blob, file);
+                return false;
+            } catch (FileAlreadyExistsException e) {
+                // Another SHA with the same file was interned in the meantime, link to its blob instead.
+            }
+        }
+        throw new IOException("could not link " + file + " to " + blob);
+    }
+
+    /**
+     * Applies the retention policy and then deletes every blob that is not referenced by a manifest.
+     */
+    void collectGarbage() throws IOException {
+        applyRetention();
+
+        // Mark.
+        internedSinceMark.clear();
+        Set<String> marked = new HashSet<>();
+        long quietSince = System.currentTimeMillis() - LEGACY_QUIET_PERIOD.toMillis();
+        for (Path shaDir : shaDirs()) {
+            Path manifest = shaDir.resolve(MANIFEST_FILE);
+            try {
+                if (Files.exists(manifest)) {
+                    JsonNode json = objectMapper.readTree(Files.readAllBytes(manifest));
+                    for (Iterator<JsonNode> hashes = json.path("files").elements(); hashes.hasNext(); ) {
+                        marked.add(hashes.next().asText());
+                    }
+                } else if (Files.getLastModifiedTime(shaDir).toMillis() < quietSince) {
+                    marked.addAll(intern(shaDir).values());
+                }
+            } catch (IOException e) {
+                // Can not tell which blobs this directory references, so do not sweep anything.
+                throw new IOException("could not read manifest of: " + shaDir, e);
+            }
+        }
+
+        // Sweep.
+        int swept = 0;
+        long sweptBytes = 0;
+        List<Path> blobs;
+        try (Stream<Path> walk = Files.walk(blobDir)) {
+            blobs = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        for (Path blob : blobs) {
+            String hash = blob.getFileName().toString();
+            if (!marked.contains(hash) && !internedSinceMark.contains(hash)) {
+                long size = Files.size(blob);
+                if (Files.deleteIfExists(blob)) {
+                    swept++;
+                    sweptBytes += size;
+                }
+            }
+        }
+        logger.debug("Artifact store: " + marked.size() + " blob(s) referenced, swept " + swept + " blob(s) (" +
+                sweptBytes + " bytes).");
+    }
+
+    /**
+     * Deletes the artifacts of PRs that were closed more than {@link #CLOSED_PR_RETENTION} ago, and all
+     * but the {@link #RETAINED_SHAS} most recent SHAs (always keeping the last checked SHA) of the others.
+     */
+    private void applyRetention() throws IOException {
+        Map<String, PrState> states = new HashMap<>();
+        for (PrState state : prStates.get()) {
+            states.put(state.getPrNum(), state);
+        }
+        long closedBefore = System.currentTimeMillis() - CLOSED_PR_RETENTION.toMillis();
+        if (!Files.isDirectory(prDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> prNumDirs = Files.newDirectoryStream(prDir, Files::isDirectory)) {
+            for (Path prNumDir : prNumDirs) {
+                PrState state = states.get(prNumDir.getFileName().toString());
+                if (state != null && state.getClosedMillis() != 0 && state.getClosedMillis() < closedBefore) {
+                    logger.debug("Deleting artifacts of PR #" + state.getPrNum() + " (closed).");
+                    deleteRecursively(prNumDir);
+                    onDeleted.accept(state.getPrNum(), null);
+                    continue;
+                }
+                List<Path> shaDirs = new ArrayList<>();
+                try (DirectoryStream<Path> dirs = Files.newDirectoryStream(prNumDir, Files::isDirectory)) {
+                    dirs.forEach(shaDirs::add);
+                }
+                if (shaDirs.size() <= RETAINED_SHAS) {
+                    continue;
+                }
+                Map<Path, Long> lastModified = new HashMap<>();
+                for (Path shaDir : shaDirs) {
+                    lastModified.put(shaDir, Files.getLastModifiedTime(shaDir).toMillis());
+                }
+                shaDirs.sort(Comparator.comparing(lastModified::get).reversed());
+                for (Path shaDir : shaDirs.subList(RETAINED_SHAS, shaDirs.size())) {
+                    if (state == null || !shaDir.getFileName().toString().equals(state.getLastSha())) {
+                        logger.debug("Deleting artifacts of " + prDir.relativize(shaDir) + " (superseded).");
+                        deleteShaDir(shaDir);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Path> shaDirs() throws IOException {
+        List<Path> shaDirs = new ArrayList<>();
+        if (!Files.isDirectory(prDir)) {
+            return shaDirs;
+        }
+        try (DirectoryStream<Path> prNumDirs = Files.newDirectoryStream(prDir, Files::isDirectory)) {
+            for (Path prNumDir : prNumDirs) {
+                try (DirectoryStream<Path> dirs = Files.newDirectoryStream(prNumDir, Files::isDirectory)) {
+                    dirs.forEach(shaDirs::add);
+                }
+            }
+        }
+        return shaDirs;
+    }
+
+    private Path blobPath(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private void deleteShaDir(Path shaDir) throws IOException {
+        deleteRecursively(shaDir);
+        onDeleted.accept(shaDir.getParent().getFileName().toString(), shaDir.getFileName().toString());
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * An intern of a SHA directory that was queued by {@link #internAsync(Path)}.
+     */
+    private static class PendingIntern {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        // Guarded by pendingInterns.
+        private boolean started;
+    }
+
+    @Override
+    public void close() {
+        collector.shutdownNow();
+        interner.shutdown();
+        try {
+            interner.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,24 +4,34 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.ServerConfiguration;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainer;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.logging.LoggingFeature;
+import org.glassfish.jersey.server.ContainerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
 import org.slf4j.Logger;
@@ -41,12 +51,31 @@ import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
  */
 public class Bot {
 
-    protected static Client httpClient;
+    protected static GitHubClient gitHubClient;
+    protected static StatusPublisher statusPublisher;
+    protected static WebhookSignature webhookSignature;
     protected static Repository upstreamRepo;
     protected static org.eclipse.jgit.lib.Repository mirrorRepo;
     private static HttpServer httpServer;
     protected static URI baseUri;
+    protected static boolean lazyWebrev;
+    protected static boolean traceRequests;
+    protected static WebrevPageCache webrevPageCache;
+    protected static StatusPageCache statusPages;
+    protected static OcaSignatureIndex ocaSignatures;
+    protected static OcaSignerStore ocaSigners;
+    protected static PrStateStore prStates;
+    protected static ArtifactStore artifactStore;
+    protected static PrResultIndex prResults;
+    protected static PrProgress prProgress;
+    protected static Metrics metrics;
+    protected static JbsClient jbsClient;
+    protected static JbsIssueCache jbsIssues;
+    protected static InFlightChecks inFlightChecks;
+    protected static LatestUpstreamCommit latestUpstreamCommit;
+    private static WarmSnapshot warmSnapshot;
     private static int port = 8433;
+    private static Duration drainTimeout = Duration.ofSeconds(60);
     private static final String JCHECK_URL = "http://cr.openjdk.java.net/~kcr/jcheck/bin/jcheck.py";
     private static final String JCHECK_CONF_URL = "http://cr.openjdk.java.net/%7Ekcr/jcheck/conf";
     private static final String WEBREV_URL = "http://hg.openjdk.java.net/code-tools/webrev/raw-file/tip/webrev.ksh";
@@ -56,6 +85,15 @@ public class Bot {
     // private static final String MIRROR_REPO_URL = "https://github.com/javafxports/openjdk-jfx";
     private static final String MIRROR_REPO_URL = "https://github.com/brcolow/openjdk-jfx"; // FIXME: For testing
     private static final Path MIRROR_REPO_PATH = Paths.get(USER_HOME, "jfxmirror", "mirror");
+    private static final Path WEBREV_CACHE_PATH = Paths.get(USER_HOME, "jfxmirror", "cache", "webrev");
+    private static final long WEBREV_CACHE_MEMORY_BYTES = 32L * 1024 * 1024;
+    private static final long WEBREV_CACHE_DISK_BYTES = 1024L * 1024 * 1024;
+    private static final long STATUS_PAGE_CACHE_BYTES = 8L * 1024 * 1024;
+    // How long cancelled checks get to roll back the repositories, after the drain timeout.
+    private static final Duration CANCEL_GRACE = Duration.ofSeconds(10);
+    // JGit's defaults (10 MiB of pack windows) are too small for the OpenJFX repository.
+    private static final long PACKED_GIT_LIMIT_BYTES = 64L * 1024 * 1024;
+    private static final int DELTA_BASE_CACHE_LIMIT_BYTES = 16 * 1024 * 1024;
     private static final Logger logger = LoggerFactory.getLogger(Bot.class);
 
     private Bot() {}
@@ -64,6 +102,10 @@ public class Bot {
         parseArguments(args);
         baseUri = URI.create("http://localhost:" + port + "/");
 
+        // Reading the snapshot of the caches, and the OCA signatures, overlaps with opening the repositories.
+        Path warmSnapshotPath = Paths.get(USER_HOME, "jfxmirror", "warm-snapshot.bin");
+        CompletableFuture<WarmSnapshot.Loaded> loadedSnapshot = WarmSnapshot.load(warmSnapshotPath);
+
         if (System.getenv("JFXMIRROR_GH_TOKEN") == null) {
             logger.error("\u2718 \"JFXMIRROR_GH_TOKEN\" environment variable not set.");
             logger.debug("This must be set to your personal access token created for jfxmirror_bot.");
@@ -71,7 +113,19 @@ public class Bot {
             System.exit(1);
         }
 
-        httpClient = ClientBuilder.newClient();
+        gitHubClient = new GitHubClient(System.getenv("JFXMIRROR_GH_TOKEN"),
+                serviceUrl("JFXMIRROR_GH_API_URL", GitHubClient.API_URL));
+
+        if (System.getenv("JFXMIRROR_GH_SECRET") == null) {
+            logger.warn("\"JFXMIRROR_GH_SECRET\" environment variable not set, GitHub events will not be verified.");
+            logger.debug("This should be set to the secret of the webhook configured for jfxmirror_bot.");
+        } else {
+            webhookSignature = new WebhookSignature(System.getenv("JFXMIRROR_GH_SECRET"));
+        }
+
+        ocaSignatures = new OcaSignatureIndex(Paths.get(USER_HOME, "jfxmirror", "oca-signatures.txt"),
+                serviceUrl("JFXMIRROR_OCA_URL", OcaSignatureIndex.OCA_URL));
+        ocaSignatures.start();
 
         // It would be nice to use https://developer.github.com/v3/oauth_authorizations/#check-an-authorization
         // for checking the validity of the githubAccessToken, but that requires registering an OAuth App (and that
@@ -81,7 +135,7 @@ public class Bot {
         if (!Files.exists(MIRROR_REPO_PATH)) {
             // Probably the first time running, clone the git mirror repository.
             try (Git ignored = Git.cloneRepository()
-                    .setURI(MIRROR_REPO_URL)
+                    .setURI(serviceUrl("JFXMIRROR_MIRROR_URL", MIRROR_REPO_URL))
                     .setDirectory(MIRROR_REPO_PATH.toFile())
                     .call()) {
                 logger.debug("Git mirror repository not found.");
@@ -93,6 +147,10 @@ public class Bot {
             }
         }
 
+        WindowCacheConfig windowCacheConfig = new WindowCacheConfig();
+        windowCacheConfig.setPackedGitLimit(PACKED_GIT_LIMIT_BYTES);
+        windowCacheConfig.setDeltaBaseCacheLimit(DELTA_BASE_CACHE_LIMIT_BYTES);
+        windowCacheConfig.install();
         try {
             mirrorRepo = new FileRepositoryBuilder()
                     .setGitDir(MIRROR_REPO_PATH.resolve(".git").toFile())
@@ -130,7 +188,8 @@ public class Bot {
 
             logger.debug("Cloning upstream OpenJFX mercurial repository...");
             logger.debug("This may take a while (like 20 or more minutes) as the OpenJFX repository is large.");
-            upstreamRepo = Repository.clone(repoConf, UPSTREAM_REPO_PATH.toFile(), UPSTREAM_REPO_URL);
+            upstreamRepo = Repository.clone(repoConf, UPSTREAM_REPO_PATH.toFile(),
+                    serviceUrl("JFXMIRROR_UPSTREAM_URL", UPSTREAM_REPO_URL));
 
             // Add the necessary hg config for using jcheck and the strip extension.
             Path hgRcPath = upstreamRepo.getDirectory().toPath().resolve(".hg").resolve("hgrc");
@@ -174,6 +233,32 @@ public class Bot {
             logger.info("\u2713 Found jcheck config file: " + jcheckConfPath);
         }
 
+        // A check that was cancelled when shutting down (or that was running when the bot was killed) may have
+        // left an imported changeset or a checked out PR branch behind.
+        try {
+            GhEventService.restoreRepositories();
+        } catch (IOException e) {
+            exitWithError("Could not restore upstream hg and git mirror repositories.", e, 1);
+        }
+
+        // The first check after a restart would otherwise pay for loading the pack index and reading the history
+        // of the mirror (to find the latest upstream commit), warm JGit up in the background. A check that comes
+        // in before the warm-up is done waits for it (see LatestUpstreamCommit), the HTTP server does not.
+        latestUpstreamCommit = new LatestUpstreamCommit(mirrorRepo);
+        Thread jgitWarmUp = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                latestUpstreamCommit.get();
+                logger.debug("Warmed up git mirror repository in {} ms.",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not warm up git mirror repository.");
+                logger.debug("exception: ", e);
+            }
+        }, "jgitWarmUp");
+        jgitWarmUp.setDaemon(true);
+        jgitWarmUp.start();
+
         logger.debug("Checking for \"webrev.ksh\"...");
         Path webrevPath = Paths.get(USER_HOME, "jfxmirror", "webrev");
         if (!Files.exists(webrevPath)) {
@@ -208,6 +293,67 @@ public class Bot {
         } else {
             logger.info("\u2713 Found OCA signature file: \"" + ocaFile + "\"");
         }
+        try {
+            ocaSigners = OcaSignerStore.open(ocaFile);
+            logger.debug("Loaded " + ocaSigners.size() + " known OCA signers.");
+        } catch (IOException e) {
+            exitWithError("Could not load OCA signature file: \"" + ocaFile + "\"", e, 1);
+        }
+
+        java.nio.file.Path prStateFile = Paths.get(USER_HOME, "jfxmirror", "pr-state.log");
+        try {
+            prStates = PrStateStore.open(prStateFile, Paths.get(USER_HOME, "jfxmirror", "pr"));
+        } catch (IOException e) {
+            exitWithError("Could not load PR state file: \"" + prStateFile + "\"", e, 1);
+        }
+        prResults = new PrResultIndex();
+        try {
+            prResults.load(Paths.get(USER_HOME, "jfxmirror", "pr"));
+        } catch (IOException e) {
+            exitWithError("Could not load PR results.", e, 1);
+        }
+        prProgress = new PrProgress();
+        prProgress.start();
+        inFlightChecks = new InFlightChecks(Paths.get(USER_HOME, "jfxmirror", "checkpoint.json"));
+
+        artifactStore = new ArtifactStore(Paths.get(USER_HOME, "jfxmirror", "blobs"),
+                Paths.get(USER_HOME, "jfxmirror", "pr"), prStates::all, prResults::remove);
+        artifactStore.start();
+
+        java.nio.file.Path statusOutboxFile = Paths.get(USER_HOME, "jfxmirror", "status-outbox.json");
+        statusPublisher = new StatusPublisher(gitHubClient, statusOutboxFile);
+        try {
+            statusPublisher.start();
+        } catch (IOException e) {
+            exitWithError("Could not load PR status outbox: \"" + statusOutboxFile + "\"", e, 1);
+        }
+
+        jbsClient = new JbsClient(URI.create(serviceUrl("JFXMIRROR_JBS_URL", JbsClient.JBS_URI.toString())));
+        jbsIssues = new JbsIssueCache(jbsClient::fetchIssues);
+        jbsIssues.start();
+
+        statusPages = new StatusPageCache(STATUS_PAGE_CACHE_BYTES);
+
+        WarmSnapshot.Loaded loaded = loadedSnapshot.join();
+        if (loaded.getSavedMillis() != 0) {
+            loaded.restore("jbs", jbsIssues::readSnapshot);
+            loaded.restore("statusPages", statusPages::readSnapshot);
+            logger.info("\u2713 Restored caches from warm snapshot saved at: " +
+                    Instant.ofEpochMilli(loaded.getSavedMillis()));
+        }
+        warmSnapshot = new WarmSnapshot(warmSnapshotPath);
+        warmSnapshot.register("jbs", jbsIssues::writeSnapshot);
+        warmSnapshot.register("statusPages", statusPages::writeSnapshot);
+        warmSnapshot.start();
+
+        if (lazyWebrev) {
+            logger.debug("Lazy webrevs enabled, webrev pages will be rendered when first requested.");
+            webrevPageCache = new WebrevPageCache(WEBREV_CACHE_PATH, WEBREV_CACHE_MEMORY_BYTES,
+                    WEBREV_CACHE_DISK_BYTES);
+        }
+
+        metrics = new Metrics();
+        registerMetrics(metrics);
 
         // Jersey uses java.util.logging - bridge to slf4.
         SLF4JBridgeHandler.removeHandlersForRootLogger();
@@ -216,13 +362,25 @@ public class Bot {
         ResourceConfig resourceConfig = new ResourceConfig()
                 .packages("org.javafxports.jfxmirror")
                 .property(ServerProperties.WADL_FEATURE_DISABLE, true)
-                .property(ServerProperties.TRACING, "ALL")
-                .property(ServerProperties.TRACING_THRESHOLD, "VERBOSE")
-                .register(LoggingFeature.class)
                 .register(JacksonJaxbJsonProvider.class);
-        httpServer = GrizzlyHttpServerFactory.createHttpServer(baseUri, resourceConfig);
+        if (traceRequests) {
+            // Tracing and logging every request (and its entity) is expensive, so it is only done on request.
+            logger.debug("Request tracing enabled, Jersey will log every request and response.");
+            resourceConfig.property(ServerProperties.TRACING, "ALL")
+                    .property(ServerProperties.TRACING_THRESHOLD, "VERBOSE")
+                    .register(LoggingFeature.class);
+        }
+        // Artifacts under ~/jfxmirror/pr are served straight from Grizzly, in front of the Jersey application.
+        GrizzlyHttpContainer jerseyContainer = ContainerFactory.createContainer(GrizzlyHttpContainer.class,
+                resourceConfig);
+        httpServer = GrizzlyHttpServerFactory.createHttpServer(baseUri, jerseyContainer, false, null, false);
+        ServerConfiguration serverConfiguration = httpServer.getServerConfiguration();
+        serverConfiguration.removeHttpHandler(jerseyContainer);
+        serverConfiguration.addHttpHandler(new StaticArtifactHandler(Paths.get(USER_HOME, "jfxmirror", "pr"),
+                jerseyContainer), "/");
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            drainChecks();
             cleanup();
             // Print the ANSI reset escape code so that, after terminating, the user's prompt is not tampered with.
             System.out.println("\u001B[0m");
@@ -231,6 +389,8 @@ public class Bot {
         try {
             httpServer.start();
             logger.debug("HTTP server started, press Ctrl+C to shut down.");
+            GhEventService ghEventService = new GhEventService();
+            inFlightChecks.resume(ghEventService::resumeCheck);
             Thread.currentThread().join();
         } catch (Exception e) {
             logger.debug("exception: ", e);
@@ -270,29 +430,201 @@ public class Bot {
                         }
                     }
                     break;
+                case "-l":
+                case "--lazy-webrev":
+                    lazyWebrev = true;
+                    break;
+                case "-t":
+                case "--trace-http":
+                    traceRequests = true;
+                    break;
+                case "-d":
+                case "--drain-timeout":
+                    if (!argsIterator.hasNext()) {
+                        logger.error("\u2718 Expecting number of seconds to follow argument: " + currentArg);
+                        printUsageAndExit(1);
+                    }
+                    else {
+                        try {
+                            currentArg = argsIterator.next();
+                            drainTimeout = Duration.ofSeconds(Long.parseLong(currentArg));
+                            if (drainTimeout.isNegative()) {
+                                logger.error("\u2718 Drain timeout must not be negative but was: " + currentArg);
+                                printUsageAndExit(2);
+                            }
+                        } catch (NumberFormatException e) {
+                            logger.error("\u2718 Drain timeout must be a number but was: " + currentArg);
+                            printUsageAndExit(2);
+                        }
+                    }
+                    break;
             }
         }
     }
 
+    /**
+     * Returns the URL of an external service (or repository) from the given environment variable if it is set
+     * (e.g. to use local stand-ins for GitHub, JBS and Oracle when load testing), otherwise {@code defaultUrl}.
+     */
+    private static String serviceUrl(String environmentVariable, String defaultUrl) {
+        String url = System.getenv(environmentVariable);
+        if (url == null || url.isEmpty()) {
+            return defaultUrl;
+        }
+        logger.debug("Using \"" + environmentVariable + "\": " + url);
+        return url;
+    }
+
     private static void printUsageAndExit(int exitCode) {
         PrintStream outStream = exitCode == 0 ? System.out : System.err;
         outStream.println("A bot that helps contributors to the OpenJFX GitHub repository\n" +
                 "get their pull requests accepted in to the OpenJFX upstream mercurial repository.\n\n" +
-                "Usage (1): ." + File.separator + "gradlew run [ -p {port} | -h ]\n" +
-                "Usage (2): (nohup) java -jar jfxmirror_bot.jar [ -p {port} | -h ]\n\n" +
-                "  -h, --help      Show this message and exit\n" +
-                "  -p, --port      The port (1-65535) that this bot should listen on for incoming\n" +
-                "                  HTTP requests from GitHub\n\n");
+                "Usage (1): ." + File.separator + "gradlew run [ -p {port} | -l | -t | -d {seconds} | -h ]\n" +
+                "Usage (2): (nohup) java -jar jfxmirror_bot.jar [ -p {port} | -l | -t | -d {seconds} | -h ]\n\n" +
+                "  -h, --help          Show this message and exit\n" +
+                "  -p, --port          The port (1-65535) that this bot should listen on for incoming\n" +
+                "                      HTTP requests from GitHub\n" +
+                "  -l, --lazy-webrev   Only store the changeset of each PR and render webrev pages\n" +
+                "                      when they are first requested (instead of running webrev.ksh)\n" +
+                "  -t, --trace-http    Log every HTTP request and response, with Jersey tracing\n" +
+                "                      (for debugging, this slows down every request)\n" +
+                "  -d, --drain-timeout How long (in seconds, default 60) running checks are given to\n" +
+                "                      finish when shutting down, before they are cancelled and\n" +
+                "                      checkpointed to be resumed after the restart\n\n" +
+                "For structured (JSON lines) logging in production, run with:\n" +
+                "  -Dlogback.configurationFile=logback-production.xml\n\n");
         System.exit(exitCode);
     }
 
+    /**
+     * Exposes the queues and the counters that the components of jfxmirror_bot already maintain (caches,
+     * clients of external services) as metrics.
+     */
+    private static void registerMetrics(Metrics metrics) {
+        metrics.gauge("jfxmirror_checks_in_flight", "Pull request checks in progress.")
+                .labels().set(prProgress::getInFlightCount);
+        metrics.gauge("jfxmirror_status_outbox_size", "PR statuses waiting to be published to GitHub.")
+                .labels().set(statusPublisher::size);
+        metrics.gauge("jfxmirror_checks_deferred", "Pull request checks deferred until after a restart.")
+                .labels().set(inFlightChecks::deferredSize);
+        metrics.gauge("jfxmirror_progress_subscribers", "Clients streaming the progress of checks.")
+                .labels().set(prProgress::getSubscriberCount);
+        metrics.gauge("jfxmirror_pr_results", "Checked SHAs with a result.")
+                .labels().set(prResults::size);
+
+        Metrics.Family<Metrics.Sample> cacheHits = metrics.sampledCounter("jfxmirror_cache_hits_total",
+                "Cache hits, by cache.", "cache");
+        Metrics.Family<Metrics.Sample> cacheMisses = metrics.sampledCounter("jfxmirror_cache_misses_total",
+                "Cache misses, by cache.", "cache");
+        cacheHits.labels("jbs").set(jbsIssues::getHits);
+        cacheMisses.labels("jbs").set(jbsIssues::getMisses);
+        cacheHits.labels("status_page").set(statusPages::getHits);
+        cacheMisses.labels("status_page").set(statusPages::getMisses);
+        cacheHits.labels("github_etag").set(gitHubClient::getNotModified);
+        metrics.gauge("jfxmirror_cache_entries", "Entries in a cache, by cache.", "cache")
+                .labels("jbs").set(jbsIssues::size);
+        metrics.gauge("jfxmirror_cache_bytes", "Size of a cache in bytes, by cache.", "cache")
+                .labels("status_page").set(statusPages::getBytes);
+        metrics.sampledCounter("jfxmirror_jbs_stale_hits_total",
+                "JBS issues served past their expiry because JBS was unavailable.")
+                .labels().set(jbsIssues::getStaleHits);
+
+        metrics.sampledCounter("jfxmirror_external_requests_total", "Requests to external services.",
+                "service").labels("github").set(gitHubClient::getRequests);
+        metrics.sampledCounter("jfxmirror_external_retries_total", "Retried requests to external services.",
+                "service").labels("github").set(gitHubClient::getRetries);
+        Metrics.Family<Metrics.Sample> externalErrors = metrics.sampledCounter("jfxmirror_external_errors_total",
+                "Requests to external services that failed.", "service");
+        externalErrors.labels("github").set(gitHubClient::getFailures);
+        externalErrors.labels("jbs").set(jbsIssues::getFetchFailures);
+
+        // The resources used by the JVM (the external processes it runs are not included).
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            metrics.sampledCounter("process_cpu_seconds_total", "CPU time used by the JVM in seconds.").labels()
+                    .set(() -> ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime() / 1e9);
+        }
+        Metrics.Family<Metrics.Sample> memoryUsed = metrics.gauge("jvm_memory_bytes_used",
+                "Memory used by the JVM in bytes, by area.", "area");
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memoryUsed.labels("heap").set(() -> memory.getHeapMemoryUsage().getUsed());
+        memoryUsed.labels("nonheap").set(() -> memory.getNonHeapMemoryUsage().getUsed());
+        Metrics.Family<Metrics.Sample> gcTime = metrics.sampledCounter("jvm_gc_collection_seconds_total",
+                "Time spent in garbage collection in seconds, by collector.", "gc");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcTime.labels(gc.getName()).set(() -> gc.getCollectionTime() / 1e3);
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        metrics.gauge("jvm_threads_current", "Live threads of the JVM.").labels().set(threads::getThreadCount);
+    }
+
     private static void exitWithError(String errorMessage, Exception exception, int exitCode) {
         logger.error("\u2718 " + errorMessage);
         logger.debug("exception: ", exception);
         System.exit(exitCode);
     }
 
+    /**
+     * Lets the checks that are running finish (up to the drain timeout) before shutting down, and checkpoints
+     * the ones that do not, see {@link InFlightChecks}. The HTTP server keeps running meanwhile, so that events
+     * delivered while draining are deferred instead of lost.
+     */
+    private static void drainChecks() {
+        if (inFlightChecks == null) {
+            return;
+        }
+        try {
+            inFlightChecks.drain(drainTimeout, CANCEL_GRACE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     protected static void cleanup() {
+        if (ocaSignatures != null) {
+            ocaSignatures.stop();
+        }
+        if (ocaSigners != null) {
+            try {
+                ocaSigners.close();
+            } catch (IOException e) {
+                logger.error("\u2718 Could not close OCA signature file.");
+                logger.debug("exception: ", e);
+            }
+        }
+        if (statusPublisher != null) {
+            statusPublisher.stop();
+        }
+        if (gitHubClient != null) {
+            gitHubClient.close();
+        }
+        if (warmSnapshot != null) {
+            warmSnapshot.stop();
+        }
+        if (jbsIssues != null) {
+            jbsIssues.stop();
+        }
+        if (jbsClient != null) {
+            try {
+                jbsClient.close();
+            } catch (IOException e) {
+                logger.debug("exception: ", e);
+            }
+        }
+        if (prProgress != null) {
+            prProgress.stop();
+        }
+        if (artifactStore != null) {
+            artifactStore.close();
+        }
+        if (prStates != null) {
+            try {
+                prStates.close();
+            } catch (IOException e) {
+                logger.error("\u2718 Could not close PR state file.");
+                logger.debug("exception: ", e);
+            }
+        }
         if (mirrorRepo != null) {
             mirrorRepo.close();
         }
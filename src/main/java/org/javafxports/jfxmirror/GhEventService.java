@@ -1,7 +1,6 @@
 package org.javafxports.jfxmirror;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.StandardOpenOption.APPEND;
 import static java.util.Locale.US;
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
 import static org.javafxports.jfxmirror.OcaStatus.FOUND_PENDING;
@@ -9,12 +8,14 @@ import static org.javafxports.jfxmirror.OcaStatus.NOT_FOUND_PENDING;
 import static org.javafxports.jfxmirror.OcaStatus.SIGNED;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -25,10 +26,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import javax.mail.Header;
 import javax.mail.MessagingException;
@@ -36,46 +38,40 @@ import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
-import javax.ws.rs.client.Entity;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.errors.EmtpyCommitException;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.transport.RefSpec;
 import org.glassfish.grizzly.http.server.Request;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-import org.jsoup.select.Selector;
+import org.glassfish.jersey.server.ChunkedOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import com.aragost.javahg.Changeset;
 import com.aragost.javahg.commands.IdentifyCommand;
+import com.aragost.javahg.commands.LogCommand;
 import com.aragost.javahg.commands.PullCommand;
 import com.aragost.javahg.commands.UpdateCommand;
 import com.aragost.javahg.ext.mq.StripCommand;
-import com.atlassian.jira.rest.client.api.JiraRestClient;
-import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
-import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.SearchResult;
-import com.atlassian.jira.rest.client.auth.AnonymousAuthenticationHandler;
-import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
-import com.atlassian.util.concurrent.Promise;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Sets;
@@ -87,18 +83,120 @@ public class GhEventService {
     private static final String USER_HOME = System.getProperty("user.home");
     private static final java.nio.file.Path STATIC_BASE = Paths.get(USER_HOME, "jfxmirror");
     private static final String OS_NAME = System.getProperty("os.name").toLowerCase(US);
-    private static final String GITHUB_API = "https://api.github.com";
-    private static final String GH_ACCEPT = "application/vnd.github.v3+json";
-    private static final String GH_ACCESS_TOKEN = System.getenv("jfxmirror_gh_token");
-    private static final String OCA_SEP = "@@@";
+    private static final int MAX_OCA_SUGGESTIONS = 3;
     private static final Pattern BUG_PATTERN = Pattern.compile("JDK-\\d\\d\\d\\d\\d\\d\\d");
     private static final Pattern DOUBLE_QUOTE_PATTERN = Pattern.compile("\"([^\"]*)\"");
     private static final Pattern FIRST_COMMENT_PATTERN = Pattern.compile("Yes,? that'?s me", CASE_INSENSITIVE);
-    private static final JiraRestClientFactory CLIENT_FACTORY = new AsynchronousJiraRestClientFactory();
     private static final Logger logger = LoggerFactory.getLogger(GhEventService.class);
 
     /**
-     * Handles requests to static files from ~/jfxmirror/pr, such as ~/jfxmirror/pr/{num}/{sha}/index.html.
+     * Handles requests for "webrev.zip" of a PR by building the zip from the webrev directory (or, for lazy
+     * webrevs, the rendered pages) and streaming it straight to the response.
+     */
+    @GET
+    @Path("/pr/{num}/{sha}/webrev.zip")
+    public Response serveWebrevZip(@PathParam("num") String num, @PathParam("sha") String sha) {
+        java.nio.file.Path shaDir = resolveShaDir(num, sha);
+        if (shaDir == null || !WebrevZip.exists(shaDir)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        StreamingOutput zip = out -> WebrevZip.write(shaDir, out);
+        Response.ResponseBuilder response = Response.ok(zip)
+                .header("Content-Type", "application/zip")
+                .header("Content-Disposition", "attachment; filename=\"webrev.zip\"");
+        try {
+            Long contentLength = WebrevZip.cachedContentLength(shaDir);
+            if (contentLength != null) {
+                response.header("Content-Length", contentLength);
+            }
+        } catch (IOException e) {
+            // The zip is sent chunked instead.
+            logger.debug("exception: ", e);
+        }
+        return response.build();
+    }
+
+    /**
+     * Same as {@link #serveWebrevZip(String, String)} but without building the zip (unless its length
+     * is not known yet).
+     */
+    @HEAD
+    @Path("/pr/{num}/{sha}/webrev.zip")
+    public Response serveWebrevZipHead(@PathParam("num") String num, @PathParam("sha") String sha) {
+        java.nio.file.Path shaDir = resolveShaDir(num, sha);
+        if (shaDir == null || !WebrevZip.exists(shaDir)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        try {
+            return Response.ok()
+                    .header("Content-Type", "application/zip")
+                    .header("Content-Length", WebrevZip.contentLength(shaDir))
+                    .build();
+        } catch (IOException e) {
+            logger.error("\u2718 Could not determine length of webrev.zip for: " + shaDir);
+            logger.debug("exception: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Handles requests for the status page of a PR (~/jfxmirror/pr/{num}/{sha}/), which is rendered from the
+     * result of checking that SHA (or served from {@link Bot#statusPages}).
+     */
+    @GET
+    @Path("/pr/{num}/{sha}{index:(/|/index.html)?}")
+    public Response serveStatusPage(@PathParam("num") String num, @PathParam("sha") String sha,
+                                    @PathParam("index") String index,
+                                    @HeaderParam("Accept-Encoding") String acceptEncoding,
+                                    @HeaderParam("If-None-Match") String ifNoneMatch) {
+        java.nio.file.Path shaDir = resolveShaDir(num, sha);
+        if (shaDir == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (index.isEmpty()) {
+            // The links on the status page are relative to the directory.
+            return Response.status(Response.Status.MOVED_PERMANENTLY)
+                    .header("Location", "/pr/" + num + "/" + sha + "/").build();
+        }
+        StatusPageCache.CachedPage page;
+        try {
+            page = Bot.statusPages.get(shaDir);
+        } catch (IOException e) {
+            logger.error("\u2718 Could not render status page: " + shaDir);
+            logger.debug("exception: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+        if (page == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (page.getEtag().equals(ifNoneMatch)) {
+            return Response.notModified(page.getEtag()).header("Vary", "Accept-Encoding").build();
+        }
+        Response.ResponseBuilder response = Response.ok()
+                .header("Content-Type", "text/html; charset=UTF-8")
+                .header("ETag", page.getEtag())
+                .header("Cache-Control", "no-cache")
+                .header("Vary", "Accept-Encoding");
+        if (StaticArtifactHandler.acceptsGzip(acceptEncoding)) {
+            return response.entity(page.getGzipped()).header("Content-Encoding", "gzip").build();
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(page.getGzipped()))) {
+            ByteArrayOutputStream html = new ByteArrayOutputStream(page.getGzipped().length * 4);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                html.write(buffer, 0, read);
+            }
+            return response.entity(html.toByteArray()).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Handles requests to files under ~/jfxmirror/pr that do not exist on disk (existing files are served
+     * by {@link StaticArtifactHandler} before the request reaches Jersey), which are the pages of lazy
+     * webrevs.
      * <p>
      * Assume jfxmirror_bot's HTTP server is listening on port 8433 and the URL is http://server.com. In that
      * case this endpoint is triggered when requesting an URL of the form:
@@ -106,55 +204,236 @@ public class GhEventService {
      * {@code http://server.com:8433/pr/{some}/{path}/file.ext}
      * <p>
      * Where the path after "/pr/" can be of arbitrary depth. In the above case this method will be called with
-     * {@code path = "{some}/{path}/file"} and {@code ext = "ext"} and will return (serve) the file at
-     * {@code ~/jfxmirror/pr/{some}/{path}/file.ext}.
+     * {@code path = "{some}/{path}/file"} and {@code ext = "ext"}.
      */
     @GET
     @Path("/pr/{path:.*}.{ext}")
     public Response serveFile(@PathParam("path") String path, @PathParam("ext") String ext) {
-        String contentType = "text/html";
-        if (ext.equalsIgnoreCase("patch") || ext.equalsIgnoreCase("txt")) {
-            contentType = "text/plain";
-        }
-        if (ext.equalsIgnoreCase("zip")) {
-            contentType = "application/zip";
+        if (Bot.lazyWebrev) {
+            String page = path + "." + ext;
+            byte[] webrevPage = renderWebrevPage(page);
+            if (webrevPage != null) {
+                return webrevPageResponse(page, webrevPage);
+            }
         }
-        return Response.ok(STATIC_BASE.resolve("pr").resolve(path + "." + ext).toFile())
-                .header("Content-Type", contentType).build();
+        return Response.status(Response.Status.NOT_FOUND).build();
     }
 
     /**
-     * Handles requests to static directories from ~/jfxmirror/pr, such as ~/jfxmirror/pr/{num}/{sha} by
-     * returning the "index.html" contained therein (if it exists).
-     * <p>
      * Same as {@link #serveFile(String, String)} except instead of requesting a specific file, a directory
      * is requested and we act like a webserver that returns the index.html contained therein.
      */
     @GET
     @Path("/pr/{path:.*}")
     public Response serveIndex(@PathParam("path") String path) {
-        return Response.ok(STATIC_BASE.resolve("pr").resolve(path).resolve("index.html").toFile())
-                .header("Content-Type", "text/html").build();
+        if (Bot.lazyWebrev) {
+            String page = path.endsWith("/") ? path + "index.html" : path + "/index.html";
+            byte[] webrevPage = renderWebrevPage(page);
+            if (webrevPage != null) {
+                return webrevPageResponse(page, webrevPage);
+            }
+        }
+        return Response.status(Response.Status.NOT_FOUND).build();
+    }
+
+    /**
+     * Returns what is known about PR #{@code num} as JSON: its state, the results of its checked SHAs
+     * (most recent first) and, if it is being checked right now, the progress of that run.
+     */
+    @GET
+    @Path("/api/pr/{num:[0-9]+}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response servePrApi(@PathParam("num") String num, @HeaderParam("If-None-Match") String ifNoneMatch) {
+        PrState state = Bot.prStates.get(num);
+        List<PrResult> results = Bot.prResults.resultsOf(num);
+        ObjectNode running = Bot.prProgress.inFlight(num);
+        if (state.getUpdatedMillis() == 0 && results.isEmpty() && running == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        ObjectNode json = state.toJsonNode();
+        ArrayNode resultsJson = json.putArray("results");
+        for (PrResult result : results) {
+            resultsJson.addObject()
+                    .put("sha", result.getSha())
+                    .put("status", result.getStatus().name().toLowerCase(US))
+                    .put("created", result.getCreatedMillis())
+                    .put("url", "/api/pr/" + num + "/" + result.getSha());
+        }
+        if (running != null) {
+            json.set("running", running);
+        }
+        return jsonResponse(json.toString().getBytes(UTF_8), null, ifNoneMatch);
+    }
+
+    /**
+     * Returns the result of checking the given {@code sha} of PR #{@code num} as JSON (with the progress
+     * of the run if it is being checked right now).
+     */
+    @GET
+    @Path("/api/pr/{num:[0-9]+}/{sha:[0-9a-fA-F]+}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response servePrShaApi(@PathParam("num") String num, @PathParam("sha") String sha,
+                                  @HeaderParam("If-None-Match") String ifNoneMatch) {
+        PrResultIndex.Entry entry = Bot.prResults.get(num, sha);
+        ObjectNode running = Bot.prProgress.inFlight(num);
+        if (running != null && running.path("sha").asText().equals(sha)) {
+            ObjectNode json = entry == null ?
+                    JsonNodeFactory.instance.objectNode().put("pr", num).put("sha", sha) :
+                    entry.getResult().toJsonNode();
+            json.set("running", running);
+            return jsonResponse(json.toString().getBytes(UTF_8), null, ifNoneMatch);
+        }
+        if (entry == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return jsonResponse(entry.getJson(), entry.getEtag(), ifNoneMatch);
+    }
+
+    /**
+     * Streams the progress of the runs of PR #{@code num} as Server-Sent Events, starting with the events
+     * of its in-flight run (if any).
+     */
+    @GET
+    @Path("/api/pr/{num:[0-9]+}/events")
+    @Produces("text/event-stream")
+    public Response servePrEvents(@PathParam("num") String num) {
+        return streamProgress(num);
+    }
+
+    /**
+     * Streams the progress of the runs of all PRs as Server-Sent Events.
+     */
+    @GET
+    @Path("/api/events")
+    @Produces("text/event-stream")
+    public Response serveEvents() {
+        return streamProgress(null);
+    }
+
+    /**
+     * Returns the metrics of jfxmirror_bot in the Prometheus text format.
+     */
+    @GET
+    @Path("/metrics")
+    @Produces("text/plain")
+    public Response serveMetrics() {
+        return Response.ok(Bot.metrics.scrape())
+                .header("Content-Type", "text/plain; version=0.0.4; charset=UTF-8")
+                .header("Cache-Control", "no-cache")
+                .build();
+    }
+
+    private static Response streamProgress(String prNum) {
+        ChunkedOutput<String> events = new ChunkedOutput<>(String.class);
+        boolean subscribed = Bot.prProgress.subscribe(prNum, new PrProgress.Subscriber() {
+            @Override
+            public void send(String event) throws IOException {
+                events.write(event);
+            }
+
+            @Override
+            public void close() throws IOException {
+                events.close();
+            }
+        });
+        if (!subscribed) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", 60).build();
+        }
+        return Response.ok(events)
+                .header("Content-Type", "text/event-stream; charset=UTF-8")
+                .header("Cache-Control", "no-cache")
+                .build();
+    }
+
+    private static Response jsonResponse(byte[] json, String etag, String ifNoneMatch) {
+        if (etag == null) {
+            etag = PrResultIndex.etagOf(json);
+        }
+        if (etag.equals(ifNoneMatch)) {
+            return Response.notModified(etag).build();
+        }
+        return Response.ok(json)
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .header("ETag", etag)
+                .header("Cache-Control", "no-cache")
+                .build();
+    }
+
+    /**
+     * Returns the directory ~/jfxmirror/pr/{num}/{sha} or {@code null} if the given {@code num} and
+     * {@code sha} would resolve to a path outside of ~/jfxmirror/pr.
+     */
+    private static java.nio.file.Path resolveShaDir(String num, String sha) {
+        java.nio.file.Path prDir = STATIC_BASE.resolve("pr");
+        java.nio.file.Path shaDir = prDir.resolve(num).resolve(sha).normalize();
+        if (!shaDir.startsWith(prDir) || shaDir.getNameCount() != prDir.getNameCount() + 2) {
+            return null;
+        }
+        return shaDir;
+    }
+
+    /**
+     * Renders (or fetches from the cache) the lazy webrev page at the given {@code path} (relative to
+     * ~/jfxmirror/pr) which must be of the form {@code {num}/{sha}/webrev/{page}}.
+     *
+     * @return the webrev page or {@code null} if {@code path} does not refer to a page of a lazy webrev
+     */
+    /**
+     * The content type of a webrev page follows its name (the ".patch" pages are plain text, only the
+     * rendered pages are HTML), the same as for the files {@link StaticArtifactHandler} serves from disk.
+     */
+    private static Response webrevPageResponse(String page, byte[] webrevPage) {
+        return Response.ok(webrevPage)
+                .header("Content-Type", StaticArtifactHandler.contentTypeOf(page))
+                .header("X-Content-Type-Options", "nosniff")
+                .build();
+    }
+
+    private static byte[] renderWebrevPage(String path) {
+        String[] parts = path.split("/", 4);
+        if (parts.length < 3 || !parts[2].equals("webrev")) {
+            return null;
+        }
+        java.nio.file.Path shaDir = resolveShaDir(parts[0], parts[1]);
+        if (shaDir == null || !WebrevIndex.exists(shaDir)) {
+            return null;
+        }
+        String page = parts.length == 4 ? parts[3] : "index.html";
+        try {
+            return Bot.webrevPageCache.get(path, () -> WebrevRenderer.render(WebrevIndex.read(shaDir), page,
+                    parts[0], parts[1]));
+        } catch (IOException e) {
+            logger.error("\u2718 Could not render webrev page: " + path);
+            logger.debug("exception: ", e);
+            return null;
+        }
     }
 
     /**
      * Handles incoming GitHub webhook events. This endpoint is expected to be the payload URL of the
      * webhook configured for jfxmirror_bot.
+     * <p>
+     * The payload is read as raw bytes (so that its signature can be verified) and only the fields that
+     * are needed are extracted from it, instead of binding the whole payload to a JSON tree.
      */
     @POST
     @Path("/ghevent")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response handleGhEvent(ObjectNode event,
+    public Response handleGhEvent(InputStream payload,
                                   @Context Request request,
                                   @Context ContainerRequestContext requestContext) {
-        // TODO: Verify that the request is actually from github?
-        // TODO: Currently we are using ngrok for testing, so these are not github. Inspect them for real when we use
-        // a publicly visible server.
-        logger.debug("Remote addr: " + request.getRemoteAddr());
-        logger.debug("Remote host: " + request.getRemoteHost());
-        logger.debug("Remote user: " + request.getRemoteUser());
-        logger.debug("Sceme: " + request.getScheme());
+        // Every line logged while handling this event is attributed to its delivery (see LogContext).
+        LogContext.put(LogContext.DELIVERY, requestContext.getHeaderString("X-GitHub-Delivery"));
+        try {
+            return dispatchGhEvent(payload, request, requestContext);
+        } finally {
+            LogContext.clear();
+        }
+    }
+
+    private Response dispatchGhEvent(InputStream payload, Request request, ContainerRequestContext requestContext) {
+        logger.debug("Remote addr: {}", request.getRemoteAddr());
         MultivaluedMap<String, String> headers = requestContext.getHeaders();
         if (!headers.containsKey("X-GitHub-Event") || headers.get("X-GitHub-Event").size() != 1) {
             logger.error("Got POST to /pr but request did not have \"X-GitHub-Event\" header");
@@ -164,25 +443,49 @@ public class GhEventService {
         }
 
         String gitHubEvent = headers.getFirst("X-GitHub-Event");
+        String eventType = gitHubEvent.toLowerCase(US);
+        Bot.metrics.events.labels(eventType.equals("ping") || eventType.equals("issue_comment") ||
+                eventType.equals("pull_request") ? eventType : "other").increment();
 
-        switch (gitHubEvent.toLowerCase(US)) {
+        byte[] eventPayload;
+        try {
+            if (Bot.webhookSignature != null) {
+                eventPayload = Bot.webhookSignature.readVerified(payload, requestContext.getLength(),
+                        headers.getFirst("X-Hub-Signature"));
+            } else {
+                eventPayload = WebhookSignature.readUnverified(payload, requestContext.getLength());
+            }
+        } catch (WebhookSignature.InvalidSignatureException e) {
+            logger.error("\u2718 Rejected GitHub event from " + request.getRemoteAddr() + ": " + e.getMessage());
+            return Response.status(Response.Status.FORBIDDEN).entity(new ObjectNode(JsonNodeFactory.instance)
+                    .put("error", e.getMessage()))
+                    .type(MediaType.APPLICATION_JSON_TYPE).build();
+        } catch (IOException e) {
+            logger.error("\u2718 Could not read GitHub event payload.");
+            logger.debug("exception: ", e);
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        switch (eventType) {
             case "ping":
                 logger.info("\u2713 Pinged by GitHub, webhook appears to be correctly configured.");
                 return Response.ok().entity("pong").build();
             case "issue_comment":
-                return handleComment(event);
+                IssueCommentEvent commentEvent;
+                try {
+                    commentEvent = IssueCommentEvent.parse(eventPayload);
+                } catch (IOException e) {
+                    return badPayload(gitHubEvent, e);
+                }
+                return handleComment(commentEvent);
             case "pull_request":
-                final String tipBeforeImport = IdentifyCommand.on(Bot.upstreamRepo).id().rev("-1").execute();
-                // Make sure to always roll the hg repository back, otherwise handling subsequent PR events will break.
+                PullRequestEvent pullRequestEvent;
                 try {
-                    return handlePullRequest(event, tipBeforeImport);
-                } catch (Exception e) {
-                    logger.error("\u2718 Encountered unexpected exception while processing pull request.");
-                    logger.debug("exception: ", e);
-                    rollback(tipBeforeImport);
-                    resetGitRepo();
-                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+                    pullRequestEvent = PullRequestEvent.parse(eventPayload);
+                } catch (IOException e) {
+                    return badPayload(gitHubEvent, e);
                 }
+                return handlePullRequestEvent(pullRequestEvent, eventPayload);
             default:
                 logger.debug("Got POST to /pr but \"X-GitHub-Event\" header was not one of \"ping\", " +
                         "\"pull_request\", \"issue_comment\" but was: " + gitHubEvent);
@@ -195,11 +498,82 @@ public class GhEventService {
         }
     }
 
+    /**
+     * Handles a "pull_request" event (with the given payload, as delivered), checking the pull request if it
+     * was opened or edited. While shutting down the event is deferred until after the restart instead, see
+     * {@link InFlightChecks}.
+     */
+    private Response handlePullRequestEvent(PullRequestEvent pullRequestEvent, byte[] eventPayload) {
+        PullRequest pullRequest = pullRequestEvent.getPullRequest();
+        if (!Bot.inFlightChecks.begin(pullRequest.getNumber(), pullRequest.getHeadSha(),
+                MDC.get(LogContext.DELIVERY), eventPayload)) {
+            return Response.status(Response.Status.ACCEPTED).entity(new ObjectNode(JsonNodeFactory.instance)
+                    .put("message", "shutting down, the event will be handled after the restart"))
+                    .type(MediaType.APPLICATION_JSON_TYPE).build();
+        }
+        try {
+            final String tipBeforeImport = IdentifyCommand.on(Bot.upstreamRepo).id().rev("-1").execute();
+            // Make sure to always roll the hg repository back, otherwise handling subsequent PR events will break.
+            try {
+                return handlePullRequest(pullRequestEvent, tipBeforeImport);
+            } catch (InFlightChecks.CancelledException e) {
+                // The check is resumed after the restart, so its status stays "pending".
+                logger.info("Check of PR #{} was cancelled, it will be resumed after the restart.",
+                        pullRequest.getNumber());
+                Thread.interrupted();
+                try {
+                    restoreRepositories();
+                } catch (IOException restoreException) {
+                    logger.error("\u2718 Could not restore repositories after cancelling check, they will be " +
+                            "restored on the next start.");
+                    logger.debug("exception: ", restoreException);
+                }
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            } catch (Exception e) {
+                logger.error("\u2718 Encountered unexpected exception while processing pull request.");
+                logger.debug("exception: ", e);
+                Bot.prProgress.finish(pullRequest.getNumber(), PrStatus.ERROR);
+                rollback(tipBeforeImport);
+                resetGitRepo();
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+            }
+        } finally {
+            Trace.clearCurrent();
+            Bot.inFlightChecks.end();
+        }
+    }
+
+    /**
+     * Runs a check that was cancelled (or deferred) when jfxmirror_bot was last shut down, see
+     * {@link InFlightChecks#resume}.
+     */
+    void resumeCheck(InFlightChecks.Check check) {
+        Objects.requireNonNull(check, "check must not be null");
+        LogContext.put(LogContext.DELIVERY, check.getDelivery());
+        try {
+            logger.debug("Resuming check of PR #{} ({}).", check.getPrNum(), check.getSha());
+            handlePullRequestEvent(PullRequestEvent.parse(check.getPayload()), check.getPayload());
+        } catch (IOException e) {
+            logger.error("\u2718 Could not parse checkpointed event of PR #" + check.getPrNum() + ".");
+            logger.debug("exception: ", e);
+        } finally {
+            LogContext.clear();
+        }
+    }
+
+    private static Response badPayload(String gitHubEvent, IOException exception) {
+        logger.error("\u2718 Could not parse \"" + gitHubEvent + "\" event payload.");
+        logger.debug("exception: ", exception);
+        return Response.status(Response.Status.BAD_REQUEST).entity(new ObjectNode(JsonNodeFactory.instance)
+                .put("error", "malformed \"" + gitHubEvent + "\" event payload"))
+                .type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
     /**
      * https://developer.github.com/v3/activity/events/types/#issuecommentevent
      */
-    private Response handleComment(ObjectNode commentEvent) {
-        switch (commentEvent.get("action").asText().toLowerCase(US)) {
+    private Response handleComment(IssueCommentEvent commentEvent) {
+        switch (commentEvent.getAction().toLowerCase(US)) {
             case "created":
             case "edited":
                 break;
@@ -208,45 +582,16 @@ public class GhEventService {
                 return Response.ok().build();
         }
 
-        boolean commentOnPrWeCareAbout = false;
-        OcaStatus ocaStatus = null;
-        File[] prDirs = Paths.get(USER_HOME, "jfxmirror", "pr")
-                .toFile().listFiles(File::isDirectory);
-        if (prDirs != null) {
-            for (File prDir : prDirs) {
-                if (prDir.getName().equals(commentEvent.get("issue").get("number").asText())) {
-                    if (Files.exists(prDir.toPath().resolve(".oca"))) {
-                        try {
-                            String status = new String(Files.readAllBytes(prDir.toPath().resolve(".oca")), UTF_8);
-                            if (status.equals(FOUND_PENDING.name().toLowerCase(US))) {
-                                ocaStatus = FOUND_PENDING;
-                                commentOnPrWeCareAbout = true;
-                                break;
-                            } else if (status.equals(NOT_FOUND_PENDING.name().toLowerCase(US))) {
-                                ocaStatus = NOT_FOUND_PENDING;
-                                commentOnPrWeCareAbout = true;
-                                break;
-                            } else if (status.equals(SIGNED.name().toLowerCase(US))) {
-                                // We already know the user who opened the PR that this comment is on has signed the
-                                // OCA, so we have nothing to do.
-                                return Response.ok().build();
-                            }
-                        } catch (IOException e) {
-                            logger.error("\u2718 Could not read OCA marker file.");
-                            logger.debug("exception: ", e);
-                            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
-                        }
-                    }
-                }
-            }
-        }
-
-        if (!commentOnPrWeCareAbout) {
+        String prNum = commentEvent.getIssueNumber();
+        OcaStatus ocaStatus = Bot.prStates.get(prNum).getOcaStatus();
+        if (ocaStatus == null || ocaStatus == SIGNED) {
+            // Either this comment is not on a PR we have checked, or we already know the user who opened the PR
+            // has signed the OCA, so we have nothing to do.
             return Response.ok().build();
         }
 
-        String issueBody = commentEvent.get("issue").get("body").asText().trim();
-        if (!issueBody.startsWith("@" + BOT_USERNAME)) {
+        String commentBody = commentEvent.getCommentBody().trim();
+        if (!commentBody.startsWith("@" + BOT_USERNAME)) {
             // Not a comment directed at us.
             return Response.ok().build();
         }
@@ -255,21 +600,18 @@ public class GhEventService {
         // 1.) @jfxmirror_bot Yes, that's me
         // 2.) @jfxmirror_bot I have signed the OCA under the name \"name\"
         // 3.) @jfxmirror_bot I have now signed the OCA using my GitHub username
-        String comment = issueBody.replaceFirst("@" + BOT_USERNAME + " ", "");
+        String comment = commentBody.replaceFirst("@" + BOT_USERNAME + " ", "");
 
-        String username = commentEvent.get("comment").get("user").get("login").asText();
-        String issueUrl = commentEvent.get("issue").get("url").asText();
+        String username = commentEvent.getCommenterLogin();
+        String commentsUrl = commentEvent.getCommentsUrl();
         String reply = "@" + username + " ";
-        java.nio.file.Path ocaFile = Paths.get(USER_HOME, "jfxmirror", "oca.txt");
-        java.nio.file.Path ocaMarkerFile = Paths.get(USER_HOME, "jfxmirror", "pr",
-                commentEvent.get("issue").get("number").asText(), ".oca");
 
         Matcher firstPatternMatcher = FIRST_COMMENT_PATTERN.matcher(comment);
         if (ocaStatus == FOUND_PENDING && firstPatternMatcher.find()) {
             reply += OcaReplies.replyWhenUserConfirmsIdentity();
             try {
-                Files.write(ocaMarkerFile, SIGNED.name().toLowerCase(US).getBytes(UTF_8));
-                Files.write(ocaFile, (username + OCA_SEP + username + "\n").getBytes(UTF_8), APPEND);
+                Bot.prStates.update(prNum, state -> state.withOcaStatus(SIGNED));
+                Bot.ocaSigners.addSigner(username, username);
             } catch (IOException e) {
                 logger.error("\u2718 Could not update OCA status.");
                 logger.debug("exception: ", e);
@@ -284,10 +626,11 @@ public class GhEventService {
                     boolean foundName = searchOcaSignaturesFor(name);
                     if (foundName) {
                         reply += OcaReplies.replyWhenFoundName(name);
-                        Files.write(ocaMarkerFile, SIGNED.name().toLowerCase(US).getBytes(UTF_8));
-                        Files.write(ocaFile, (username + OCA_SEP + name + "\n").getBytes(UTF_8), APPEND);
+                        Bot.prStates.update(prNum, state -> state.withOcaStatus(SIGNED));
+                        Bot.ocaSigners.addSigner(username, name);
                     } else {
-                        reply += OcaReplies.replyWhenNotFoundName(name, BOT_USERNAME);
+                        reply += OcaReplies.replyWhenNotFoundName(name, BOT_USERNAME,
+                                Bot.ocaSignatures.getSearchIndex().suggest(name, MAX_OCA_SUGGESTIONS));
                     }
                 } catch (IOException e) {
                     logger.error("\u2718 Could not download OCA signatures page.");
@@ -303,8 +646,8 @@ public class GhEventService {
                 boolean foundUsername = searchOcaSignaturesFor(username);
                 if (foundUsername) {
                     reply += OcaReplies.replyWhenFoundUsername();
-                    Files.write(ocaMarkerFile, SIGNED.name().toLowerCase(US).getBytes(UTF_8));
-                    Files.write(ocaFile, (username + OCA_SEP + username + "\n").getBytes(UTF_8), APPEND);
+                    Bot.prStates.update(prNum, state -> state.withOcaStatus(SIGNED));
+                    Bot.ocaSigners.addSigner(username, username);
                 } else {
                     reply += OcaReplies.replyWhenNotFoundUsername(username, BOT_USERNAME);
                 }
@@ -318,16 +661,18 @@ public class GhEventService {
             reply += OcaReplies.replyWhenCantUnderstandResponse();
         }
 
-        try (Response commentResponse = Bot.httpClient.target(issueUrl)
-                .request()
-                .header("Authorization", "token " + GH_ACCESS_TOKEN)
-                .accept(GH_ACCEPT)
-                .post(Entity.json(JsonNodeFactory.instance.objectNode().put("body", reply)))) {
-            if (commentResponse.getStatus() == 404) {
-                logger.error("\u2718 Could not post comment on PR #" + commentEvent.get("issue").get("number"));
-                logger.debug("GitHub response: " + commentResponse.readEntity(String.class));
+        try {
+            GitHubResponse commentResponse = Bot.gitHubClient.post(commentsUrl,
+                    JsonNodeFactory.instance.objectNode().put("body", reply).toString());
+            if (!commentResponse.isSuccessful()) {
+                logger.error("\u2718 Could not post comment on PR #" + prNum);
+                logger.debug("GitHub response: " + commentResponse.getBody());
                 return Response.status(Response.Status.BAD_REQUEST).build();
             }
+        } catch (IOException e) {
+            logger.error("\u2718 Could not post comment on PR #" + prNum);
+            logger.debug("exception: ", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
 
         return Response.ok().build();
@@ -336,48 +681,65 @@ public class GhEventService {
     /**
      * https://developer.github.com/v3/activity/events/types/#pullrequestevent
      */
-    private Response handlePullRequest(ObjectNode pullRequestEvent, String tipBeforeImport) {
-        String action = pullRequestEvent.get("action").asText();
+    private Response handlePullRequest(PullRequestEvent pullRequestEvent, String tipBeforeImport) {
+        String action = pullRequestEvent.getAction();
 
         // "assigned", "unassigned", "review_requested", "review_request_removed", "labeled", "unlabeled", "opened",
         // "edited", "closed", or "reopened"
         switch (action.toLowerCase(US)) {
             case "opened":
             case "edited":
+                break;
             case "reopened":
+            case "closed":
+                // The artifacts of closed PRs are only retained for a while (see ArtifactStore).
+                boolean closed = action.equalsIgnoreCase("closed");
+                try {
+                    Bot.prStates.update(pullRequestEvent.getPullRequest().getNumber(),
+                            state -> state.withClosed(closed));
+                } catch (IOException e) {
+                    logger.error("\u2718 Could not record that PR #" +
+                            pullRequestEvent.getPullRequest().getNumber() + " was " + action + ".");
+                    logger.debug("exception: ", e);
+                }
+                if (closed) {
+                    return Response.ok().build();
+                }
                 break;
             default:
                 // Nothing to do.
                 return Response.ok().build();
         }
 
-        JsonNode pullRequest = pullRequestEvent.get("pull_request");
-        String prNum = pullRequest.get("number").asText();
-        String prShaHead = pullRequest.get("head").get("sha").asText();
-        logger.debug("New event: Pull request #" + prNum + " " + action + ".");
-        String[] repoFullName = pullRequestEvent.get("repository").get("full_name").asText().split("/");
-        String statusUrl = String.format("%s/repos/%s/%s/statuses/%s", GITHUB_API,
+        PullRequest pullRequest = pullRequestEvent.getPullRequest();
+        String prNum = pullRequest.getNumber();
+        String prShaHead = pullRequest.getHeadSha();
+        logger.debug("New event: Pull request #{} {}.", prNum, action);
+        String[] repoFullName = pullRequestEvent.getRepoFullName().split("/");
+        String statusUrl = String.format("%s/repos/%s/%s/statuses/%s", Bot.gitHubClient.getApiUrl(),
                 repoFullName[0], repoFullName[1], prShaHead);
         PullRequestContext pullRequestContext = new PullRequestContext(pullRequest, prNum, prShaHead, statusUrl);
+        pullRequestContext.setProgress(Bot.prProgress.start(prNum, prShaHead));
+        pullRequestContext.setTrace(Trace.start(prNum, prShaHead));
 
         // Set the status of the PR to pending while we do the necessary checks.
-        setPrStatus(PrStatus.PENDING, prNum, prShaHead, statusUrl, "Checking for upstream mergeability...", null);
+        setPrStatus(PrStatus.PENDING, prNum, prShaHead, statusUrl, "Checking for upstream mergeability...");
 
-        // Create directory that will contain the git and hg patches.
+        // Create directory that will contain the git and hg patches. The artifacts of a previous run of the
+        // same SHA are shared with other SHAs (see ArtifactStore) and must not be overwritten in place.
         java.nio.file.Path patchDir = Paths.get(USER_HOME, "jfxmirror", "pr", prNum, prShaHead, "patch");
-        if (!Files.exists(patchDir)) {
-            try {
-                Files.createDirectories(patchDir);
-            } catch (IOException e) {
-                return setError(pullRequestContext, tipBeforeImport, "Could not create patches directory.", e);
-            }
+        try {
+            Bot.artifactStore.release(patchDir.getParent());
+            Files.createDirectories(patchDir);
+        } catch (IOException e) {
+            return setError(pullRequestContext, tipBeforeImport, "Could not create patches directory.", e);
         }
 
         Git git = new Git(Bot.mirrorRepo);
 
         String mirrorBaseBranch = "master"; // FIXME: May want to switch to "develop"
         // Update the local git repository (fetching any new changes from github remote).
-        try {
+        try (StageTimer stage = pullRequestContext.stage("syncMirror")) {
             git.fetch().setRemote("origin").setRefSpecs("refs/heads/" + mirrorBaseBranch).call();
             git.rebase().setUpstream("refs/heads/" + mirrorBaseBranch).call();
         } catch (GitAPIException e) {
@@ -387,34 +749,41 @@ public class GhEventService {
         // The git mirror repository can lag behind the upstream hg repository because it is only synced daily. So,
         // first we need to find the most recent commit from upstream that has been merged in to the mirror.
         RevCommit latestUpstreamCommit;
-        try {
-            latestUpstreamCommit = findLatestUpstreamCommit(git);
+        try (StageTimer stage = pullRequestContext.stage("findLatestUpstreamCommit")) {
+            latestUpstreamCommit = Bot.latestUpstreamCommit.get();
         }
         catch (IOException e) {
             return setError(pullRequestContext, tipBeforeImport,
                     "Could not determine latest upstream commit in mirror.", e);
         }
 
-        // Fetch the commits array from the pull request JSON sent by GitHub.
-        JsonNode commitsJson;
-        try {
-            commitsJson = fetchCommitsJson(pullRequest);
+        // Fetch the head of the pull request in to the local git repository, and read the commits of the pull
+        // request from it.
+        List<PrCommit> commits;
+        try (StageTimer stage = pullRequestContext.stage("fetchCommits")) {
+            fetchPullRequestHead(git, pullRequestContext);
+            commits = PrCommitProvider.commitsOf(Bot.mirrorRepo, pullRequest);
         }
         catch (IOException e) {
-            return setError(pullRequestContext, tipBeforeImport, "Could not read commits JSON.", e);
+            return setError(pullRequestContext, tipBeforeImport, "Could not read commits of PR.", e);
         }
 
+        // Start validating the JBS bugs referenced by this PR, it is not needed until the status page is created.
+        Set<String> jbsBugsReferenced = findReferencedJbsBugs(pullRequest, commits);
+        CompletableFuture<Map<String, JbsIssue>> jbsIssues = Bot.jbsIssues.lookup(jbsBugsReferenced);
+
         // Construct a diff between "latestUpstreamCommit" (the most recent commit from upstream that has been
         // merged in to the mirror) and the changes introduced in the PR, producing a git formatted patch file.
-        try {
-            writePullRequestAsPatch(git, pullRequestContext, commitsJson, patchDir);
+        try (StageTimer stage = pullRequestContext.stage("gitPatch")) {
+            writePullRequestAsPatch(git, pullRequestContext, commits, patchDir);
         } catch (IOException e) {
-            if (e.getCause().getClass().equals(EmtpyCommitException.class)) {
+            if (e.getCause() instanceof EmtpyCommitException) {
                 // If the commit is empty that means this PR only touches blacklisted files, so it has no intention
                 // of being merged to upstream, so we can stop now.
                 logger.debug("This PR only has changes to blacklisted files, so skipping upstream mergeability checks.");
                 setPrStatus(PrStatus.SUCCESS, prNum, prShaHead, statusUrl,
-                        "PR has no changes meant for upstream.", tipBeforeImport);
+                        "PR has no changes meant for upstream.");
+                recordPrState(pullRequestContext, PrStatus.SUCCESS);
                 return Response.ok().build();
             }
 
@@ -423,14 +792,14 @@ public class GhEventService {
 
         // Convert the git formatted patch file to an hg formatted patch file.
         java.nio.file.Path hgPatchPath;
-        try {
+        try (StageTimer stage = pullRequestContext.stage("hgPatch")) {
             hgPatchPath = writeGitPatchAsHgPatch(patchDir);
         } catch (IOException e) {
             return setError(pullRequestContext, tipBeforeImport, "Could not convert git patch to hg patch.", e);
         }
 
         // If necessary, check if user who opened the PR has signed the OCA.
-        try {
+        try (StageTimer stage = pullRequestContext.stage("ocaStatus")) {
             fetchOcaStatus(pullRequestContext);
         } catch (IOException e) {
             return setError(pullRequestContext, tipBeforeImport,
@@ -438,14 +807,21 @@ public class GhEventService {
         }
 
         // See if there is a JBS bug associated with this PR.
-        findReferencedJbsBugs(pullRequestContext, commitsJson);
+        try (StageTimer stage = pullRequestContext.stage("jbsBugs")) {
+            Map<String, JbsIssue> issues = jbsIssues.join();
+            pullRequestContext.setJbsBugsReferenced(jbsBugsReferenced);
+            pullRequestContext.setJbsBugsReferencedButNotFound(jbsBugsReferenced.stream()
+                    .filter(jbsBug -> issues.containsKey(jbsBug) && !issues.get(jbsBug).isOpenJavaFxBug())
+                    .collect(Collectors.toSet()));
+            pullRequestContext.setJbsBugsUnverified(Sets.difference(jbsBugsReferenced, issues.keySet()));
+        }
 
         // TODO: Find "latestUpstreamCommit" in the mercurial repository and set tip to that before importing patch.
         // The rationale is so the diff generated by git format-patch will apply cleanly to hg because they are both
         // diffed against the same commit (namely: "latestUpstreamCommit").
 
         // Update our local upstream repository (i.e. fetch new changesets from the hg.openjdk.java.net/openjfx remote).
-        try {
+        try (StageTimer stage = pullRequestContext.stage("syncUpstream")) {
             // hg pull && hg update
             PullCommand.on(Bot.upstreamRepo).execute();
             UpdateCommand.on(Bot.upstreamRepo).execute();
@@ -456,7 +832,7 @@ public class GhEventService {
         // Apply the hg patch to the tip of openjfx remote, since this whole check is about
         // "mergeability", that would ensure that conflicts don't happen when merging to upstream.
         // Apply the hg patch to our local upstream hg repo.
-        try {
+        try (StageTimer stage = pullRequestContext.stage("applyPatch")) {
             List<java.nio.file.Path> originalRejects = applyHgPatch(hgPatchPath);
             if (!originalRejects.isEmpty()) {
                 List<java.nio.file.Path> copiedRejects = new ArrayList<>(originalRejects.size());
@@ -472,9 +848,11 @@ public class GhEventService {
                 }
                 pullRequestContext.setRejects(copiedRejects);
                 pullRequestContext.setPrStatus(PrStatus.FAILURE);
-                StatusPage.createStatusPageHtml(pullRequestContext);
+                Bot.prResults.put(StatusPage.writeResult(pullRequestContext));
+                rollback(tipBeforeImport);
                 setPrStatus(PrStatus.FAILURE, pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead(),
-                        pullRequestContext.getStatusUrl(), "Could not merge PR into upstream.", tipBeforeImport);
+                        pullRequestContext.getStatusUrl(), "Could not merge PR into upstream.");
+                recordPrState(pullRequestContext, PrStatus.FAILURE);
                 return Response.ok().build();
             }
         } catch (IOException e) {
@@ -487,35 +865,41 @@ public class GhEventService {
         // TODO: In what cases does this fail?
         if (!previousCommit.equals(tipBeforeImport)) {
             logger.error("\u2718 The tip before importing is not equal to the previous commit!");
-            setPrStatus(PrStatus.ERROR, prNum, prShaHead, statusUrl, "Upstream hg repository error.", null);
+            setPrStatus(PrStatus.ERROR, prNum, prShaHead, statusUrl, "Upstream hg repository error.");
+            recordPrState(pullRequestContext, PrStatus.ERROR);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
 
         // Run jcheck against the PR's changes (http://openjdk.java.net/projects/code-tools/jcheck/).
-        try {
+        try (StageTimer stage = pullRequestContext.stage("jcheck")) {
             runJCheck(pullRequestContext);
         } catch (IOException e) {
             return setError(pullRequestContext, tipBeforeImport, "Could not run jcheck.", e);
         }
 
         // Generate a webrev with the PR's changes.
-        try {
-            generateWebRev(pullRequestContext, previousCommit);
+        try (StageTimer stage = pullRequestContext.stage("webrev")) {
+            if (Bot.lazyWebrev) {
+                generateLazyWebRev(pullRequestContext);
+            } else {
+                generateWebRev(pullRequestContext, previousCommit);
+            }
         } catch (IOException e) {
             return setError(pullRequestContext, tipBeforeImport, "Could not generate webrev for PR.", e);
         }
 
         // If we get this far, then we can set PR status to success.
         pullRequestContext.setPrStatus(PrStatus.SUCCESS);
-        setPrStatus(PrStatus.SUCCESS, prNum, prShaHead, statusUrl, "Ready to merge with upstream.", tipBeforeImport);
+        setPrStatus(PrStatus.SUCCESS, prNum, prShaHead, statusUrl, "Ready to merge with upstream.");
 
         // Create the status page "pr/{prNum}/{prShaHead}/index.html" from the above data (that is linked to by
         // the jfxmirror_bot PR status check).
-        try {
-            StatusPage.createStatusPageHtml(pullRequestContext);
+        try (StageTimer stage = pullRequestContext.stage("statusPage")) {
+            Bot.prResults.put(StatusPage.writeResult(pullRequestContext));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        recordPrState(pullRequestContext, PrStatus.SUCCESS);
 
         // Rollback upstream hg repository to "tipBeforeImport".
         // TODO: Instead of doing this, we could create a temporary branch to work on before importing the GH PR.
@@ -528,25 +912,13 @@ public class GhEventService {
         ProcessBuilder importBuilder = new ProcessBuilder("hg", "import", hgPatchPath.toString(), "--bypass")
                 .redirectErrorStream(true)
                 .directory(Bot.upstreamRepo.getDirectory());
-        Process hgImport = importBuilder.start();
-        String hgOut = new String(hgImport.getInputStream().readAllBytes(), UTF_8);
+        ProcessResult hgImport = ProcessRunner.run("hg", importBuilder, Duration.ofMinutes(1));
         final List<java.nio.file.Path> rejects = new ArrayList<>();
-        if (hgOut.contains("abort: patch failed to apply")) {
+        if (hgImport.getOutput().contains("abort: patch failed to apply")) {
             logger.debug("Mercurial patch did not apply cleanly, searching for rejects...");
             rejects.addAll(Files.find(Bot.upstreamRepo.getDirectory().toPath(), 30, (p, bfa) ->
-                    bfa.isRegularFile() && p.toString().endsWith(".rej")).collect(Collectors.toList());
+                    bfa.isRegularFile() && p.toString().endsWith(".rej")).collect(Collectors.toList()));
         }
-        try {
-            boolean finished = hgImport.waitFor(1, TimeUnit.MINUTES);
-            if (!finished) {
-                hgImport.destroyForcibly();
-                throw new IOException("could not apply hg patch in 1 minute");
-            }
-        } catch (InterruptedException e) {
-            hgImport.destroyForcibly();
-            throw new IOException(e);
-        }
-        hgImport.destroy();
         return rejects;
     }
 
@@ -557,148 +929,133 @@ public class GhEventService {
         Objects.requireNonNull(errorMessage, "errorMessage must not be null");
         Objects.requireNonNull(exception, "exception must not be null");
 
+        // A check that failed because it was cancelled (e.g. its process was interrupted) is not an error.
+        InFlightChecks.throwIfCancelled(exception);
+        rollback(tipBeforeImport);
         setPrStatus(PrStatus.ERROR, pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead(),
-                pullRequestContext.getStatusUrl(), errorMessage, tipBeforeImport);
+                pullRequestContext.getStatusUrl(), errorMessage);
+        recordPrState(pullRequestContext, PrStatus.ERROR);
         logger.error("\u2718 " + errorMessage);
         logger.debug("exception: ", exception);
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
     }
 
     /**
-     * Checks to see if any JBS bugs are associated with the given pull request and updates the
-     * {@code pullRequestContext} accordingly. JBS bugs are determined to be associated with a pull
-     * request if any of the following places contain the text "JDK-xxxxxxx" where xxxxxxx is some number:
+     * Records the outcome of checking the given pull request (along with how long each stage took) in its
+     * {@link PrState}.
+     */
+    private static void recordPrState(PullRequestContext pullRequestContext, PrStatus result) {
+        try {
+            Bot.prStates.update(pullRequestContext.getPrNum(), state -> state.withResult(
+                    pullRequestContext.getPrShaHead(), result, pullRequestContext.getStageTimings()));
+        } catch (IOException e) {
+            logger.error("\u2718 Could not record state of PR #" + pullRequestContext.getPrNum() + ".");
+            logger.debug("exception: ", e);
+        }
+        java.nio.file.Path shaDir = Paths.get(USER_HOME, "jfxmirror", "pr", pullRequestContext.getPrNum(),
+                pullRequestContext.getPrShaHead());
+        Trace trace = pullRequestContext.getTrace();
+        if (trace != null) {
+            trace.finish();
+            try {
+                trace.write(shaDir);
+            } catch (IOException e) {
+                logger.error("\u2718 Could not write trace of PR #" + pullRequestContext.getPrNum() + ".");
+                logger.debug("exception: ", e);
+            }
+        }
+        Bot.artifactStore.internAsync(shaDir);
+        if (pullRequestContext.getProgress() != null) {
+            pullRequestContext.getProgress().finish(result);
+        }
+        Bot.metrics.recordCheck(result, pullRequestContext.getStageTimings(), pullRequestContext.getStageCpuTimes(),
+                pullRequestContext.getElapsed());
+    }
+
+    /**
+     * Returns the JBS bugs that are associated with the given pull request. JBS bugs are determined to be
+     * associated with a pull request if any of the following places contain the text "JDK-xxxxxxx" where
+     * xxxxxxx is some number:
      * <ol>
      * <li> Each commit message of the commits that make up this PR.
      * <li> The PR title.
      * <li> The branch name of this PR.
      * </ol>
      */
-    private static void findReferencedJbsBugs(PullRequestContext pullRequestContext, JsonNode commitsJson) {
-        Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
-        Objects.requireNonNull(commitsJson, "commitsJson must not be null");
+    static Set<String> findReferencedJbsBugs(PullRequest pullRequest, List<PrCommit> commits) {
+        Objects.requireNonNull(pullRequest, "pullRequest must not be null");
+        Objects.requireNonNull(commits, "commits must not be null");
 
         logger.debug("Checking if this PR is associated with any JBS bugs...");
         Set<String> jbsBugsReferenced = new HashSet<>();
 
         // Check if any commit messages of this PR contain a JBS bug (like JDK-xxxxxxx).
-        for (JsonNode commitJson : commitsJson) {
-            String commitMessage = commitJson.get("commit").get("message").asText();
-            Matcher bugPatternMatcher = BUG_PATTERN.matcher(commitMessage);
+        for (PrCommit commit : commits) {
+            Matcher bugPatternMatcher = BUG_PATTERN.matcher(commit.getMessage());
             if (bugPatternMatcher.find()) {
                 jbsBugsReferenced.add(bugPatternMatcher.group(0));
             }
         }
 
         // Check if the branch name of the PR contains a JBS bug.
-        String prBranchName = pullRequestContext.getPullRequest().get("head").get("ref").asText();
+        String prBranchName = pullRequest.getHeadRef();
         Matcher bugMatcher = BUG_PATTERN.matcher(prBranchName);
         if (bugMatcher.find()) {
             jbsBugsReferenced.add(bugMatcher.group(0));
         }
 
         // Check if the PR title contains a JBS bug.
-        String prTitle = pullRequestContext.getPullRequest().get("title").asText();
+        String prTitle = pullRequest.getTitle();
         bugMatcher = BUG_PATTERN.matcher(prTitle);
         if (bugMatcher.find()) {
             jbsBugsReferenced.add(bugMatcher.group(0));
         }
-
-        Set<String> jbsBugsReferencedAndFound = new HashSet<>();
-        try (JiraRestClient jiraRestClient = CLIENT_FACTORY.create(URI.create("https://bugs.openjdk.java.net"),
-                new AnonymousAuthenticationHandler())) {
-            for (String jbsBug : jbsBugsReferenced) {
-                Promise<SearchResult> searchJqlPromise = jiraRestClient.getSearchClient().searchJql(
-                        "project = JDK AND status IN ('Open', 'In Progress', 'New', 'Provisional') " +
-                                "AND component = javafx AND id = " + jbsBug);
-                Set<Issue> issues = Sets.newHashSet(searchJqlPromise.claim().getIssues());
-                if (!issues.isEmpty()) {
-                    jbsBugsReferencedAndFound.add(jbsBug);
-                }
-            }
-            pullRequestContext.setJbsBugsReferenced(jbsBugsReferenced);
-            pullRequestContext.setJbsBugsReferencedButNotFound(Sets.difference(
-                    jbsBugsReferenced, jbsBugsReferencedAndFound));
-        } catch (IOException e) {
-            logger.debug("exception: ", e);
-            throw new RuntimeException(e);
-        }
+        return jbsBugsReferenced;
     }
 
     private static void fetchOcaStatus(PullRequestContext pullRequestContext) throws IOException {
         Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
 
-        String username = pullRequestContext.getPullRequest().get("user").get("login").asText();
-        java.nio.file.Path ocaMarkerFile = Paths.get(USER_HOME, "jfxmirror", "pr",
-                pullRequestContext.getPrNum(), ".oca");
-        OcaStatus ocaStatus = NOT_FOUND_PENDING;
-        if (Files.exists(ocaMarkerFile)) {
-            String ocaMarkerContents = new String(Files.readAllBytes(ocaMarkerFile), UTF_8);
-            ocaStatus = OcaStatus.valueOf(ocaMarkerContents.toUpperCase(Locale.US));
-            logger.debug("Already checked if \"" + username + "\" has signed the OCA.");
+        String username = pullRequestContext.getPullRequest().getUserLogin();
+        String prNum = pullRequestContext.getPrNum();
+        OcaStatus ocaStatus = Bot.prStates.get(prNum).getOcaStatus();
+        if (ocaStatus != null) {
+            logger.debug("Already checked if \"{}\" has signed the OCA.", username);
         } else {
-            logger.debug("Checking if \"" + username + "\" has signed the OCA...");
-            java.nio.file.Path ocaFile = Paths.get(USER_HOME, "jfxmirror", "oca.txt");
-            String ocaName;
-            List<String> ocaFileLines = Files.readAllLines(ocaFile, UTF_8);
-            for (String line : ocaFileLines) {
-                String[] gitHubUsernameOcaName = line.split(OCA_SEP);
-                if (gitHubUsernameOcaName.length != 2) {
-                    throw new IOException("OCA signature file malformed (expecting separator \"" + OCA_SEP + "\")");
-                }
-
-                if (gitHubUsernameOcaName[0].equals(username)) {
-                    ocaName = gitHubUsernameOcaName[1];
-                    logger.info("\u2713 User who opened PR is known to have signed OCA under the name: " + ocaName);
-                    // Write a marker file for OCA status.
-                    Files.write(ocaMarkerFile, SIGNED.name().toLowerCase(US).getBytes(UTF_8));
-                    ocaStatus = SIGNED;
-                    break;
-                }
+            logger.debug("Checking if \"{}\" has signed the OCA...", username);
+            String ocaName = Bot.ocaSigners.getOcaName(username);
+            if (ocaName != null) {
+                logger.info("\u2713 User who opened PR is known to have signed OCA under the name: " + ocaName);
+                ocaStatus = SIGNED;
+                Bot.prStates.update(prNum, state -> state.withOcaStatus(SIGNED));
             }
-            if (ocaStatus != SIGNED) {
+            if (ocaStatus == null) {
                 // We have no record that the user who opened this PR signed the OCA so let's check Oracle's OCA
                 // page to see if we can find their username.
-                boolean foundUsername = false;
-                String ocaLine = null;
-                List<String> ocaSignatures = fetchOcaSignatures();
-                for (String ocaSignature : ocaSignatures) {
-                    // FIXME: This is a really imperfect way to do this, but it was the best I could think of quickly.
-                    for (String split : ocaSignature.split(" - ")) {
-                        if (split.equalsIgnoreCase(username)) {
-                            foundUsername = true;
-                            ocaLine = ocaSignature;
-                            break;
-                        }
-                    }
-                }
+                String ocaLine = Bot.ocaSignatures.getSearchIndex().findLine(username);
+                boolean foundUsername = ocaLine != null;
 
-                String commentsUrl = pullRequestContext.getPullRequest().get("_links").get("comments")
-                        .get("href").asText();
+                String commentsUrl = pullRequestContext.getPullRequest().getCommentsUrl();
                 String comment = "@" + username + " ";
                 if (foundUsername) {
-                    Files.write(ocaMarkerFile, FOUND_PENDING.name().toLowerCase(US).getBytes(UTF_8));
                     ocaStatus = FOUND_PENDING;
                     logger.debug("Found GitHub username of user who opened PR on OCA signature list.");
                     comment += OcaComments.commentWhenFoundUsername(ocaLine, BOT_USERNAME);
                 } else {
-                    Files.write(ocaMarkerFile, NOT_FOUND_PENDING.name().toLowerCase(US).getBytes(UTF_8));
                     ocaStatus = NOT_FOUND_PENDING;
                     // Post comment on PR telling them we could not find their github username listed on OCA signature
                     // page, ask them if they have signed it.
                     comment += OcaComments.commentWhenNotFoundUsername();
                 }
                 comment += OcaComments.defaultComment(BOT_USERNAME);
-
-                try (Response commentResponse = Bot.httpClient.target(commentsUrl)
-                        .request()
-                        .header("Authorization", "token " + GH_ACCESS_TOKEN)
-                        .accept(GH_ACCEPT)
-                        .post(Entity.json(JsonNodeFactory.instance.objectNode().put("body", comment).toString()))) {
-                    if (commentResponse.getStatus() == 404) {
-                        throw new IOException("404 from github, trying to post comment on PR: " +
-                                commentResponse.readEntity(String.class));
-                    }
+                OcaStatus checkedOcaStatus = ocaStatus;
+                Bot.prStates.update(prNum, state -> state.withOcaStatus(checkedOcaStatus));
+
+                GitHubResponse commentResponse = Bot.gitHubClient.post(commentsUrl,
+                        JsonNodeFactory.instance.objectNode().put("body", comment).toString());
+                if (!commentResponse.isSuccessful()) {
+                    throw new IOException(commentResponse.getStatus() + " from github, trying to post comment on PR: " +
+                            commentResponse.getBody());
                 }
             }
         }
@@ -734,78 +1091,108 @@ public class GhEventService {
                     "-N", "-m", webrevBugArgs[0], webrevBugArgs[1],
                     "-o", webRevOutputPath.toString());
         }
-        webrevBuilder.directory(Bot.upstreamRepo.getDirectory());
-        Process webrev = null;
-        try {
-            webrevBuilder.inheritIO();
-            logger.debug("Generating webrev for PR #" + pullRequestContext.getPrNum() +
-                    " (" + pullRequestContext.getPrShaHead() + ")...");
-            webrev = webrevBuilder.start();
-            boolean finished = webrev.waitFor(2, TimeUnit.MINUTES);
-            if (!finished) {
-                webrev.destroyForcibly();
-                throw new IOException("could not generate webrev in 2 minutes");
-            }
-        } catch (SecurityException | InterruptedException e) {
-            if (webrev != null) {
-                webrev.destroyForcibly();
-            }
-            throw new IOException(e);
+        WebrevZip.invalidate(webRevOutputPath);
+        if (Bot.webrevPageCache != null) {
+            Bot.webrevPageCache.evict(pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead());
         }
-        webrev.destroy();
+        webrevBuilder.directory(Bot.upstreamRepo.getDirectory()).redirectErrorStream(true);
+        logger.debug("Generating webrev for PR #{} ({})...", pullRequestContext.getPrNum(),
+                pullRequestContext.getPrShaHead());
+        ProcessResult webrev = ProcessRunner.run("webrev", webrevBuilder, Duration.ofMinutes(2));
+        if (webrev.getExitCode() != 0) {
+            logger.debug("webrev output: {}", webrev.getOutput());
+            throw new IOException("webrev exited with code: " + webrev.getExitCode());
+        }
+        // "webrev.zip" is built from the webrev directory when it is requested, don't keep a second copy.
+        Files.deleteIfExists(webRevOutputPath.resolve("webrev.zip"));
+        StaticArtifactHandler.precompress(webRevOutputPath);
+    }
+
+    /**
+     * Instead of generating every page of the webrev up front (which is what {@link #generateWebRev} does)
+     * only export the imported changeset and index it so that each webrev page can be rendered when
+     * it is first requested.
+     */
+    private static void generateLazyWebRev(PullRequestContext pullRequestContext) throws IOException {
+        Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
+
+        java.nio.file.Path shaDir = Paths.get(USER_HOME, "jfxmirror", "pr",
+                pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead());
+        logger.debug("Exporting changeset for lazy webrev of PR #{} ({})...", pullRequestContext.getPrNum(),
+                pullRequestContext.getPrShaHead());
+        WebrevZip.invalidate(shaDir);
+        if (Bot.webrevPageCache != null) {
+            Bot.webrevPageCache.evict(pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead());
+        }
+        // hg export --git --rev tip --output {shaDir}/webrev.changeset.tmp (moved into place, hg would write a
+        // shared changeset in place, see ArtifactStore)
+        java.nio.file.Path tempChangeset = shaDir.resolve(WebrevIndex.CHANGESET_FILE + ".tmp");
+        ProcessBuilder exportBuilder = new ProcessBuilder("hg", "export", "--git", "--rev", "tip",
+                "--output", tempChangeset.toString())
+                .directory(Bot.upstreamRepo.getDirectory());
+        ProcessResult hgExport = ProcessRunner.run("hg", exportBuilder, Duration.ofMinutes(1));
+        if (hgExport.getExitCode() != 0) {
+            throw new IOException("hg export exited with code " + hgExport.getExitCode() + ": " +
+                    hgExport.getErrorOutput());
+        }
+        Files.move(tempChangeset, shaDir.resolve(WebrevIndex.CHANGESET_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        WebrevIndex webrevIndex = WebrevIndex.create(shaDir);
+        logger.debug("Indexed {} changed file(s) for lazy webrev.", webrevIndex.getEntries().size());
     }
 
     private static void runJCheck(PullRequestContext pullRequestContext) throws IOException {
         Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
 
-        logger.debug("Running jcheck on PR #" + pullRequestContext.getPrNum() +
-                " (" + pullRequestContext.getPrShaHead() + ")...");
+        logger.debug("Running jcheck on PR #{} ({})...", pullRequestContext.getPrNum(),
+                pullRequestContext.getPrShaHead());
         java.nio.file.Path jcheckOutputPath = Paths.get(USER_HOME, "jfxmirror", "pr",
                 pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead(), "jcheck.txt");
-        Files.write(jcheckOutputPath, "".getBytes(), StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
         ProcessBuilder jcheckBuilder = new ProcessBuilder("hg", "jcheck")
                 .directory(Bot.upstreamRepo.getDirectory())
-                .redirectError(jcheckOutputPath.toFile())
-                .redirectOutput(jcheckOutputPath.toFile());
-        Process jcheck = jcheckBuilder.start();
+                .redirectErrorStream(true);
+        ProcessRunner.run("hg", jcheckBuilder, Duration.ofMinutes(1), jcheckOutputPath);
+    }
+
+    /**
+     * Fetches the head of the given pull request from GitHub into the branch "pr-{prShaHead}" of the local
+     * git repository.
+     */
+    private static void fetchPullRequestHead(Git git, PullRequestContext pullRequestContext) throws IOException {
+        Objects.requireNonNull(git, "git must not be null");
+        Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
+
         try {
-            boolean finished = jcheck.waitFor(1, TimeUnit.MINUTES);
-            if (!finished) {
-                jcheck.destroyForcibly();
-                throw new IOException("could not run jcheck in 1 minute");
-            }
-        } catch (InterruptedException e) {
-            jcheck.destroyForcibly();
+            git.fetch().setRemote("origin").setRefSpecs(new RefSpec(
+                    "refs/pull/" + pullRequestContext.getPrNum() + "/head:refs/heads/" + "pr-" +
+                            pullRequestContext.getPrShaHead())).call();
+        } catch (GitAPIException e) {
             throw new IOException(e);
         }
-        jcheck.destroy();
     }
 
     private static void writePullRequestAsPatch(Git git, PullRequestContext pullRequestContext,
-                                                JsonNode commitsJson, java.nio.file.Path patchDir) throws IOException {
+                                                List<PrCommit> commits, java.nio.file.Path patchDir) throws IOException {
         Objects.requireNonNull(git, "git must not be null");
         Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
-        Objects.requireNonNull(commitsJson, "commitsJson must not be null");
+        Objects.requireNonNull(commits, "commits must not be null");
         Objects.requireNonNull(patchDir, "patchDir must not be null");
 
         StringBuilder commitMessagesConcat = new StringBuilder();
-        for (JsonNode commitJson : commitsJson) {
-            commitMessagesConcat.append(commitJson.get("commit").get("message").asText());
+        for (PrCommit commit : commits) {
+            commitMessagesConcat.append(commit.getMessage());
         }
 
-        Process gitProcess = null;
         try {
-            // Fetch and checkout pull request.
-            git.fetch().setRemote("origin").setRefSpecs(new RefSpec(
-                    "refs/pull/" + pullRequestContext.getPrNum() + "/head:refs/heads/" + "pr-" +
-                            pullRequestContext.getPrShaHead())).call();
+            // Checkout pull request (fetched by fetchPullRequestHead).
             git.checkout().setName("pr-" + pullRequestContext.getPrShaHead()).call();
             RevCommit latestCommitOfPr = git.log().setMaxCount(1).call().iterator().next();
 
-            // Squash all commits in the PR to one (concatenate commit messages).
-            git.reset().setMode(ResetCommand.ResetType.SOFT).setRef(Bot.mirrorRepo.resolve(
-                    "HEAD^" + commitsJson.size()).getName()).call();
+            // Squash all commits in the PR to one (concatenate commit messages) by resetting to the commit the PR
+            // branched off of.
+            git.reset().setMode(ResetCommand.ResetType.SOFT).setRef(PrCommitProvider.mergeBase(Bot.mirrorRepo,
+                    pullRequestContext.getPrShaHead(),
+                    pullRequestContext.getPullRequest().getBaseSha()).getName()).call();
             // Remove any "blacklisted" files (files that are specific to the mirror git repository (such as CI infrastructure,
             // GitHub contributing/README files, etc.) From what we could determine, jgit does not support globs
             // (e.g. ".ci/**"), so every file must be listed individually.
@@ -821,79 +1208,16 @@ public class GhEventService {
             // here because jgit does not make it easy to write a patch file.
             ProcessBuilder gitProcessBuilder = new ProcessBuilder("git", "format-patch", "-1", squashedCommit.getName(),
                     "--stdout", "--minimal")
-                    .directory(Bot.mirrorRepo.getDirectory().toPath().getParent().toFile())
-                    .redirectError(patchDir.resolve("git.patch").toFile())
-                    .redirectOutput(patchDir.resolve("git.patch").toFile());
-            gitProcess = gitProcessBuilder.start();
-            boolean finished = gitProcess.waitFor(30, TimeUnit.SECONDS);
-            if (!finished) {
-                gitProcess.destroyForcibly();
-                throw new IOException("could not run \"git format-patch\" in 30 seconds");
-            }
-            gitProcess.destroy();
-        } catch (GitAPIException | InterruptedException e) {
-            if (gitProcess != null) {
-                gitProcess.destroyForcibly();
+                    .directory(Bot.mirrorRepo.getDirectory().toPath().getParent().toFile());
+            ProcessResult formatPatch = ProcessRunner.run("git", gitProcessBuilder, Duration.ofSeconds(30),
+                    patchDir.resolve("git.patch"));
+            if (formatPatch.getExitCode() != 0) {
+                throw new IOException("\"git format-patch\" exited with code " + formatPatch.getExitCode() + ": " +
+                        formatPatch.getErrorOutput());
             }
-            throw new IOException(e);
-        }
-    }
-
-    private static JsonNode fetchCommitsJson(JsonNode pullRequest) throws IOException {
-        Objects.requireNonNull(pullRequest, "pullRequest must not be null");
-
-        String commitsUrl = pullRequest.get("_links").get("commits").get("href").asText();
-        try (Response commitsResponse = Bot.httpClient.target(commitsUrl + "?per_page=250")
-                .request()
-                .header("Authorization", "token " + GH_ACCESS_TOKEN)
-                .accept(GH_ACCEPT)
-                .get()) {
-            return new ObjectMapper().readTree(commitsResponse.readEntity(String.class));
-        }
-    }
-
-    private static RevCommit findLatestUpstreamCommit(Git git) throws IOException {
-        Objects.requireNonNull(git, "git must not be null");
-
-        RevCommit mostRecentUpstreamCommit = null;
-        RevCommit latestMergeCommit = null;
-
-        Iterable<RevCommit> commits;
-        try {
-            commits = git.log().all().call();
         } catch (GitAPIException e) {
             throw new IOException(e);
         }
-
-        for (RevCommit commit : commits) {
-            if (commit.getAuthorIdent().getName().equalsIgnoreCase("javafxports-github-bot") &&
-                    commit.getShortMessage().equalsIgnoreCase("Merge from (root)")) {
-                latestMergeCommit = commit;
-                break;
-            }
-        }
-
-        if (latestMergeCommit == null) {
-            throw new IOException("could not find commit with author: \"javafxports-github-bot\" " +
-                    "and message: \"Merge from (root)\"");
-        }
-
-        for (RevCommit commit : latestMergeCommit.getParents()) {
-            if (!commit.getAuthorIdent().getName().equalsIgnoreCase("javafxports-github-bot") &&
-                    !commit.getShortMessage().contains("Merge from (root)")) {
-                logger.info("\u2713 Found latest merge commit by " + commit.getAuthorIdent().getName() +
-                        ": \"" + commit.getShortMessage() + "\" (" + commit.getName() + ")");
-                mostRecentUpstreamCommit = commit;
-                break;
-            }
-        }
-
-        if (mostRecentUpstreamCommit == null) {
-            throw new IOException("could not find commit with author NOT equal to: \"javafxports-github-bot\" " +
-                    "and message NOT equal to: \"Merge from (root)\" in parents of latest merge commit");
-        }
-
-        return mostRecentUpstreamCommit;
     }
 
     /**
@@ -917,6 +1241,36 @@ public class GhEventService {
         }
     }
 
+    /**
+     * Restores the upstream hg repository and the git mirror to a clean state, whatever state a check left
+     * them in (e.g. if it was cancelled, or the bot was killed while running it): strips the changesets that
+     * were imported (they are drafts, unlike the public changesets pulled from upstream), and checks out
+     * "master" of the git mirror at "origin/master", deleting the branches the heads of PRs were fetched to.
+     * Must not be called while a check is running.
+     */
+    static void restoreRepositories() throws IOException {
+        List<Changeset> imported = LogCommand.on(Bot.upstreamRepo).rev("draft()").execute();
+        if (!imported.isEmpty()) {
+            logger.debug("Stripping {} imported changeset(s) from upstream hg repository...", imported.size());
+            // hg strip --rev "draft()" --no-backup
+            StripCommand.on(Bot.upstreamRepo).rev("draft()").noBackup().execute();
+        }
+
+        try (Git git = new Git(Bot.mirrorRepo)) {
+            git.checkout().setName("master").setForce(true).call();
+            git.reset().setMode(ResetCommand.ResetType.HARD).setRef("refs/remotes/origin/master").call();
+            List<String> prBranches = git.branchList().call().stream()
+                    .map(Ref::getName)
+                    .filter(name -> name.startsWith(Constants.R_HEADS + "pr-"))
+                    .collect(Collectors.toList());
+            if (!prBranches.isEmpty()) {
+                git.branchDelete().setBranchNames(prBranches.toArray(new String[0])).setForce(true).call();
+            }
+        } catch (GitAPIException e) {
+            throw new IOException(e);
+        }
+    }
+
     private static void resetGitRepo() {
         logger.debug("Reseting git repository to \"origin/master\"...");
         try (Git git = new Git(Bot.mirrorRepo)) {
@@ -928,77 +1282,29 @@ public class GhEventService {
     }
 
     private boolean searchOcaSignaturesFor(String query) throws IOException {
-        List<String> ocaSignatures = fetchOcaSignatures();
-        for (String ocaSignature : ocaSignatures) {
-            for (String split : ocaSignature.split("-")) {
-                if (split.trim().equalsIgnoreCase(query)) {
-                    return true;
-                }
-            }
+        if (Bot.ocaSignatures.getSearchIndex().containsField(query)) {
+            return true;
         }
-        return false;
-    }
-
-    /**
-     * Fetches, extracts, and then returns the OCA signatures from Oracle's website.
-     */
-    private static List<String> fetchOcaSignatures() throws IOException {
-        List<String> signatures = new ArrayList<>();
-        try {
-            Document doc = Jsoup.connect("http://www.oracle.com/technetwork/community/oca-486395.html").get();
-            // If the HTML of the oca-486395.html page changes, this selector will need to change. It should select
-            // each <ul> that corresponds to a letter (A-W) or "XYZ" which groups the signatures alphabetically by
-            // last name.
-            Elements signatoryLetters = doc.select(".dataTable > tbody:nth-child(1) > tr:nth-child(1) > td:nth-child(1) > ul:nth-child(2n+5)");
-            for (Element signatoryLetter : signatoryLetters) {
-                Elements signatories = signatoryLetter.select("li");
-                for (Element signatory : signatories) {
-                    signatures.add(signatory.text());
-                }
-            }
-        } catch (Selector.SelectorParseException e) {
-            logger.error("\u2718 Could not extract list of OCA signatures.");
-            logger.debug("Check the CSS selector as the HTML of the OCA page may have changed.");
-            logger.debug("exception: ", e);
-            throw new IOException(e);
-        }
-
-        return signatures;
+        // The user may have only just been added to the OCA page, so make sure we are not looking at a stale copy.
+        Bot.ocaSignatures.refreshIfStale();
+        return Bot.ocaSignatures.getSearchIndex().containsField(query);
     }
 
     /**
      * Set the status of the "jfxmirror_bot" status check using the GitHub API for the given pull request.
+     * <p>
+     * The status is published asynchronously by {@link Bot#statusPublisher}, so this does not wait for GitHub.
      */
     private static void setPrStatus(PrStatus status, String prNum, String prShaHead, String statusUrl,
-                                    String description, String tipBeforeImport) {
+                                    String description) {
         Objects.requireNonNull(status, "status must not be null");
         Objects.requireNonNull(prNum, "prNum must not be null");
         Objects.requireNonNull(prShaHead, "prShaHead must not be null");
         Objects.requireNonNull(statusUrl, "statusUrl must not be null");
         Objects.requireNonNull(description, "description must not be null");
 
-        if (status != PrStatus.SUCCESS && tipBeforeImport != null) {
-            rollback(tipBeforeImport);
-        }
-        ObjectNode pendingStatus = JsonNodeFactory.instance.objectNode();
-        pendingStatus.put("state", status.toString().toLowerCase(US));
-        pendingStatus.put("target_url", Bot.baseUri.resolve("pr/" + prNum + "/" + prShaHead + "/index.html")
-                .toASCIIString());
-        pendingStatus.put("description", description);
-        pendingStatus.put("context", BOT_USERNAME);
-
-        try (Response statusResponse = Bot.httpClient.target(statusUrl)
-                .request()
-                .header("Authorization", "token " + GH_ACCESS_TOKEN)
-                .accept(GH_ACCEPT)
-                .post(Entity.json(pendingStatus.toString()))) {
-            if (statusResponse.getStatus() == 404) {
-                logger.error("GitHub API authentication failed, are you sure the \"jfxmirror_gh_token\"\n" +
-                        "environment variable is set correctly?");
-                Bot.cleanup();
-                System.exit(1);
-            }
-        }
+        Bot.statusPublisher.publish(statusUrl, BOT_USERNAME, status,
+                Bot.baseUri.resolve("pr/" + prNum + "/" + prShaHead + "/index.html").toASCIIString(), description);
     }
 
     /**
@@ -1007,7 +1313,7 @@ public class GhEventService {
      * <p>
      * Based on https://github.com/mozilla/moz-git-tools/blob/master/git-patch-to-hg-patch
      */
-    private static java.nio.file.Path writeGitPatchAsHgPatch(java.nio.file.Path patchDir) throws IOException {
+    static java.nio.file.Path writeGitPatchAsHgPatch(java.nio.file.Path patchDir) throws IOException {
         Objects.requireNonNull(patchDir, "patchDir must not be null");
 
         if (!patchDir.resolve("git.patch").toFile().exists()) {
@@ -1028,7 +1334,11 @@ public class GhEventService {
                     "# Date " + headers.get("Date") + "\n\n" +
                     emailMessage.getSubject().replaceAll("^\\[PATCH( \\d+/\\d+)?\\] ", "") + "\n\n" +
                     emailMessage.getContent().toString().replaceAll("--\\s?\\n[0-9\\.]+\\n$", "");
-            Files.write(patchDir.resolve("hg.patch"), hgPatch.getBytes(UTF_8));
+            // Not written in place, a patch from a previous run of this SHA may be shared (see ArtifactStore).
+            java.nio.file.Path tempPatch = patchDir.resolve("hg.patch.tmp");
+            Files.write(tempPatch, hgPatch.getBytes(UTF_8));
+            Files.move(tempPatch, patchDir.resolve("hg.patch"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
             return patchDir.resolve("hg.patch");
         } catch (MessagingException e) {
             throw new IOException(e);
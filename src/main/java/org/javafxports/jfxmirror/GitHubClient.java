@@ -0,0 +1,270 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The client that all requests to the GitHub API are made with.
+ * <p>
+ * Connections are pooled (and kept alive) by Apache HttpClient. GET responses that carry an ETag are
+ * cached, and later GETs of the same URL are made conditional ("If-None-Match") so that an unchanged
+ * resource is served from the cache (a "304 Not Modified" does not count against the rate limit). Every
+ * request first takes a token from a {@link GitHubRateLimiter} that is updated from the rate limit headers
+ * of each response. Transient failures (I/O errors, 5xx responses and rate limiting) are retried with
+ * jittered exponential backoff. POSTs are not idempotent (e.g. posting a comment), so they are only
+ * retried if the request can not have been processed (could not connect or was rate limited).
+ */
+class GitHubClient implements AutoCloseable {
+
+    static final String API_URL = "https://api.github.com";
+    private static final String ACCEPT = "application/vnd.github.v3+json";
+    private static final int MAX_CONNECTIONS = 20;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_CACHED_RESPONSES = 512;
+    private static final int RATE_LIMIT_BURST = 10;
+
+    private final String token;
+    private final String apiUrl;
+    private final Client client;
+    private final GitHubRateLimiter rateLimiter = new GitHubRateLimiter(RATE_LIMIT_BURST);
+    private final Map<String, GitHubResponse> etagCache = new LinkedHashMap<String, GitHubResponse>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, GitHubResponse> eldest) {
+            return size() > MAX_CACHED_RESPONSES;
+        }
+    };
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private static final Logger logger = LoggerFactory.getLogger(GitHubClient.class);
+
+    /**
+     * Creates a client of the GitHub API at the given {@code apiUrl} (normally {@link #API_URL}, but e.g. a
+     * stand-in for GitHub when load testing).
+     */
+    GitHubClient(String token, String apiUrl) {
+        Objects.requireNonNull(token, "token must not be null");
+        Objects.requireNonNull(apiUrl, "apiUrl must not be null");
+        this.token = token;
+        this.apiUrl = apiUrl;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+        ClientConfig clientConfig = new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                .property(ClientProperties.CONNECT_TIMEOUT, CONNECT_TIMEOUT_MILLIS)
+                .property(ClientProperties.READ_TIMEOUT, READ_TIMEOUT_MILLIS);
+        this.client = ClientBuilder.newClient(clientConfig);
+    }
+
+    /**
+     * Returns the URL of the GitHub API (without a trailing slash), that the URLs of resources are relative to.
+     */
+    String getApiUrl() {
+        return apiUrl;
+    }
+
+    GitHubResponse get(String url) throws IOException {
+        Objects.requireNonNull(url, "url must not be null");
+        return execute("GET", url, null);
+    }
+
+    /**
+     * POSTs the given JSON {@code body} to the given {@code url}.
+     */
+    GitHubResponse post(String url, String body) throws IOException {
+        Objects.requireNonNull(url, "url must not be null");
+        Objects.requireNonNull(body, "body must not be null");
+        return execute("POST", url, body);
+    }
+
+    private GitHubResponse execute(String method, String url, String body) throws IOException {
+        try (Trace.Span span = Trace.startSpan("github", method + " " + url)) {
+            return executeWithRetries(method, url, body);
+        }
+    }
+
+    private GitHubResponse executeWithRetries(String method, String url, String body) throws IOException {
+        boolean idempotent = body == null;
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire();
+            requests.incrementAndGet();
+            GitHubResponse cached = null;
+            Invocation.Builder request = client.target(url).request()
+                    .header("Authorization", "token " + token)
+                    .accept(ACCEPT);
+            if (idempotent) {
+                synchronized (etagCache) {
+                    cached = etagCache.get(url);
+                }
+                if (cached != null) {
+                    request.header("If-None-Match", cached.getHeader("ETag"));
+                }
+            }
+
+            GitHubResponse response;
+            try (Response rawResponse = body == null ? request.method(method) :
+                    request.method(method, Entity.entity(body, MediaType.APPLICATION_JSON_TYPE))) {
+                response = new GitHubResponse(rawResponse.getStatus(),
+                        rawResponse.hasEntity() ? rawResponse.readEntity(String.class) : "",
+                        headersOf(rawResponse), false);
+            } catch (ProcessingException e) {
+                boolean retryable = idempotent || e.getCause() instanceof ConnectException;
+                if (!retryable || attempt == MAX_ATTEMPTS) {
+                    failures.incrementAndGet();
+                    throw new IOException("could not " + method + " " + url, e);
+                }
+                logger.debug("Could not {} {} (attempt {}), retrying.", method, url, attempt, e);
+                retries.incrementAndGet();
+                backoff(attempt, null);
+                continue;
+            }
+
+            updateRateLimit(response);
+            if (response.getStatus() == 304 && cached != null) {
+                notModified.incrementAndGet();
+                return cached.asCached();
+            }
+            boolean rateLimited = isRateLimited(response);
+            boolean serverError = response.getStatus() >= 500;
+            if ((rateLimited || (serverError && idempotent)) && attempt < MAX_ATTEMPTS) {
+                logger.debug("{} {} returned {} (attempt {}), retrying.", method, url, response.getStatus(),
+                        attempt);
+                retries.incrementAndGet();
+                backoff(attempt, parseLong(response.getHeader("Retry-After")));
+                continue;
+            }
+            if (rateLimited || serverError) {
+                failures.incrementAndGet();
+            }
+            if (idempotent && response.isSuccessful() && response.getHeader("ETag") != null) {
+                synchronized (etagCache) {
+                    etagCache.put(url, response);
+                }
+            }
+            return response;
+        }
+    }
+
+    /**
+     * GitHub signals both its primary and its secondary ("abuse") rate limits with a 403 (or 429), along
+     * with either an exhausted "X-RateLimit-Remaining" or a "Retry-After".
+     */
+    private static boolean isRateLimited(GitHubResponse response) {
+        if (response.getStatus() == 429) {
+            return true;
+        }
+        return response.getStatus() == 403 && (response.getHeader("Retry-After") != null ||
+                "0".equals(response.getHeader("X-RateLimit-Remaining")));
+    }
+
+    private void updateRateLimit(GitHubResponse response) {
+        rateLimiter.update(parseLong(response.getHeader("X-RateLimit-Remaining")),
+                parseLong(response.getHeader("X-RateLimit-Reset")),
+                isRateLimited(response) ? parseLong(response.getHeader("Retry-After")) : null);
+    }
+
+    /**
+     * Sleeps for a random time between zero and an exponentially growing bound ("full jitter"), but for at
+     * least {@code retryAfterSeconds} if GitHub asked for it (the rate limiter also enforces that for other
+     * requests).
+     */
+    private static void backoff(int attempt, Long retryAfterSeconds) throws InterruptedIOException {
+        long bound = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        long sleepMillis = ThreadLocalRandom.current().nextLong(bound + 1);
+        if (retryAfterSeconds != null) {
+            sleepMillis = Math.max(sleepMillis, TimeUnit.SECONDS.toMillis(retryAfterSeconds));
+        }
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while backing off");
+        }
+    }
+
+    private static Map<String, String> headersOf(Response response) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey().toLowerCase(Locale.US), header.getValue().get(0));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Returns the number of requests that were sent (including retries).
+     */
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Returns the number of requests that failed for good (after retrying, if they were retried).
+     */
+    long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Returns the number of GETs that were answered from the ETag cache ("304 Not Modified").
+     */
+    long getNotModified() {
+        return notModified.get();
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
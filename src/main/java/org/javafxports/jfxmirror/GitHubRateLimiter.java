@@ -0,0 +1,98 @@
+package org.javafxports.jfxmirror;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that paces requests to the GitHub API so that they stay within the rate limit.
+ * <p>
+ * GitHub reports how many requests are left in the current rate limit window ("X-RateLimit-Remaining")
+ * and when the window resets ("X-RateLimit-Reset"). After every response the bucket is refilled at the
+ * rate that spreads the remaining requests evenly over the rest of the window (allowing short bursts),
+ * and once no requests are left, or GitHub asks us to back off ("Retry-After"), requests wait until
+ * they are allowed again.
+ */
+class GitHubRateLimiter {
+
+    // The rate limit of an authenticated user (5000 requests per hour), used until GitHub tells us otherwise.
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 5000.0 / TimeUnit.HOURS.toSeconds(1);
+
+    private final int burst;
+    private double tokens;
+    private double tokensPerNano = DEFAULT_REQUESTS_PER_SECOND / TimeUnit.SECONDS.toNanos(1);
+    private long lastRefillNanos = System.nanoTime();
+    private long blockedUntilMillis;
+
+    GitHubRateLimiter(int burst) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1 but was: " + burst);
+        }
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    /**
+     * Blocks until a request may be made.
+     */
+    void acquire() throws InterruptedIOException {
+        try {
+            long waitMillis;
+            while ((waitMillis = tryAcquire()) > 0) {
+                Thread.sleep(waitMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for GitHub rate limit");
+        }
+    }
+
+    /**
+     * Takes a token if one is available (returning 0), otherwise returns how long (in milliseconds) to wait
+     * before trying again.
+     */
+    synchronized long tryAcquire() {
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis < blockedUntilMillis) {
+            return blockedUntilMillis - nowMillis;
+        }
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil((1 - tokens) / tokensPerNano)));
+    }
+
+    /**
+     * Updates the bucket from the rate limit headers of a response. Any of the arguments may be
+     * {@code null} if the response did not contain the corresponding header.
+     *
+     * @param remaining the number of requests remaining in the current rate limit window
+     * @param resetEpochSeconds the time the current rate limit window resets, in UTC epoch seconds
+     * @param retryAfterSeconds the number of seconds to wait before making another request
+     */
+    synchronized void update(Long remaining, Long resetEpochSeconds, Long retryAfterSeconds) {
+        long nowMillis = System.currentTimeMillis();
+        if (remaining != null && resetEpochSeconds != null) {
+            refill();
+            long secondsUntilReset = Math.max(1, resetEpochSeconds - TimeUnit.MILLISECONDS.toSeconds(nowMillis));
+            tokensPerNano = (double) Math.max(remaining, 0) / TimeUnit.SECONDS.toNanos(secondsUntilReset);
+            tokens = Math.min(tokens, remaining);
+            if (remaining <= 0) {
+                blockedUntilMillis = Math.max(blockedUntilMillis, TimeUnit.SECONDS.toMillis(resetEpochSeconds));
+                // Allow requests again once the window has reset.
+                tokensPerNano = DEFAULT_REQUESTS_PER_SECOND / TimeUnit.SECONDS.toNanos(1);
+            }
+        }
+        if (retryAfterSeconds != null) {
+            blockedUntilMillis = Math.max(blockedUntilMillis,
+                    nowMillis + TimeUnit.SECONDS.toMillis(retryAfterSeconds));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,62 @@
+package org.javafxports.jfxmirror;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A response from the GitHub API (see {@link GitHubClient}), with the body fully read.
+ */
+class GitHubResponse {
+
+    private final int status;
+    private final String body;
+    private final Map<String, String> headers;
+    private final boolean fromCache;
+
+    /**
+     * @param headers the headers of the response, keyed by lower-case header name
+     */
+    GitHubResponse(int status, String body, Map<String, String> headers, boolean fromCache) {
+        this.status = status;
+        this.body = body;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.fromCache = fromCache;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+
+    String getBody() {
+        return body;
+    }
+
+    /**
+     * Returns the value of the header with the given (case-insensitive) {@code name}, or {@code null} if
+     * the response did not contain it.
+     */
+    String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.US));
+    }
+
+    Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns {@code true} if this response was served from the ETag cache because GitHub answered
+     * "304 Not Modified" to a conditional GET.
+     */
+    boolean isFromCache() {
+        return fromCache;
+    }
+
+    GitHubResponse asCached() {
+        return new GitHubResponse(status, body, headers, true);
+    }
+}
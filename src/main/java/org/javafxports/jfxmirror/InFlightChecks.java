@@ -0,0 +1,307 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The checks of pull requests that are running, so that jfxmirror_bot can shut down without leaving a check
+ * (and the repositories it works on) half-done:
+ * <ol>
+ *     <li>Once {@link #drain(Duration, Duration) draining}, no new checks are started: the events that would
+ *     start one are deferred instead.</li>
+ *     <li>Running checks are given until a deadline to finish. Then they are cancelled: the thread running each
+ *     is interrupted (which aborts the external process it is waiting for, see {@link ProcessRunner}) and the
+ *     check stops at the start of its next stage (see {@link PullRequestContext#stage(String)}), throwing a
+ *     {@link CancelledException} that rolls the repositories back.</li>
+ *     <li>The events of the cancelled and deferred checks are written to a checkpoint file, and are
+ *     {@link #resume(Consumer) resumed} (checked from the start) after the restart.</li>
+ * </ol>
+ * A check is resumed at least once: if the bot is killed while resuming checks, they are resumed again.
+ */
+class InFlightChecks {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ThreadLocal<Check> currentCheck = new ThreadLocal<>();
+
+    private final Path checkpointPath;
+    // Guarded by "this".
+    private final Map<Thread, Check> running = new LinkedHashMap<>();
+    private final Deque<Check> deferred = new ArrayDeque<>();
+    private boolean draining;
+    private static final Logger logger = LoggerFactory.getLogger(InFlightChecks.class);
+
+    InFlightChecks(Path checkpointPath) {
+        Objects.requireNonNull(checkpointPath, "checkpointPath must not be null");
+        this.checkpointPath = checkpointPath;
+    }
+
+    /**
+     * Registers the check of the head {@code sha} of PR #{@code prNum} (that was started by the given event
+     * {@code payload}, delivered with the ID {@code delivery}) as running on the current thread, which must
+     * call {@link #end()} once it is done. Returns false if shutting down, in which case the check is not
+     * started but deferred until after the restart.
+     */
+    synchronized boolean begin(String prNum, String sha, String delivery, byte[] payload) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(sha, "sha must not be null");
+        Objects.requireNonNull(payload, "payload must not be null");
+        Check check = new Check(prNum, sha, delivery, payload);
+        if (draining) {
+            logger.info("Shutting down, deferring check of PR #{} until after the restart.", prNum);
+            deferred.add(check);
+            return false;
+        }
+        running.put(Thread.currentThread(), check);
+        currentCheck.set(check);
+        return true;
+    }
+
+    /**
+     * Unregisters the check that is running on the current thread.
+     */
+    synchronized void end() {
+        currentCheck.remove();
+        if (running.remove(Thread.currentThread()) != null) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Throws a {@link CancelledException} if the check that is running on the current thread was cancelled.
+     */
+    static void throwIfCancelled() {
+        throwIfCancelled(null);
+    }
+
+    /**
+     * Throws a {@link CancelledException} if the check that is running on the current thread was cancelled,
+     * with the given {@code cause} (an exception the check failed with, e.g. because it was interrupted).
+     */
+    static void throwIfCancelled(Throwable cause) {
+        if (isCancelled()) {
+            throw new CancelledException(currentCheck.get(), cause);
+        }
+    }
+
+    /**
+     * Returns whether the check that is running on the current thread (if any) was cancelled.
+     */
+    static boolean isCancelled() {
+        Check check = currentCheck.get();
+        return check != null && check.cancelled;
+    }
+
+    /**
+     * Returns the number of checks that are running.
+     */
+    synchronized int size() {
+        return running.size();
+    }
+
+    /**
+     * Returns the number of checks that are deferred until after a restart (or waiting to be resumed).
+     */
+    synchronized int deferredSize() {
+        return deferred.size();
+    }
+
+    /**
+     * Stops starting new checks and waits (until the {@code deadline}) for the running ones to finish. The
+     * checks that are still running after that are cancelled, and given {@code grace} to roll back. Finally the
+     * cancelled and deferred checks are written to the checkpoint.
+     */
+    void drain(Duration deadline, Duration grace) throws InterruptedException {
+        Objects.requireNonNull(deadline, "deadline must not be null");
+        Objects.requireNonNull(grace, "grace must not be null");
+        synchronized (this) {
+            draining = true;
+            if (!running.isEmpty()) {
+                logger.info("Waiting up to {} s for {} running check(s) to finish...", deadline.getSeconds(),
+                        running.size());
+                awaitIdle(deadline);
+            }
+            if (!running.isEmpty()) {
+                logger.warn("Cancelling {} check(s) that did not finish in time.", running.size());
+                // The cancelled checks are resumed before the deferred ones, which were delivered later.
+                Deque<Check> cancelled = new ArrayDeque<>();
+                for (Map.Entry<Thread, Check> entry : running.entrySet()) {
+                    entry.getValue().cancelled = true;
+                    cancelled.push(entry.getValue());
+                    entry.getKey().interrupt();
+                }
+                cancelled.forEach(deferred::addFirst);
+                awaitIdle(grace);
+                if (!running.isEmpty()) {
+                    logger.warn("{} cancelled check(s) did not roll back in time, the repositories will be " +
+                            "restored on the next start.", running.size());
+                }
+            }
+            checkpoint();
+        }
+    }
+
+    private void awaitIdle(Duration timeout) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        long remainingNanos;
+        while (!running.isEmpty() && (remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+            wait(Math.max(remainingNanos / 1_000_000, 1));
+        }
+    }
+
+    /**
+     * Writes the deferred checks to the checkpoint (or removes it, if there are none).
+     */
+    private void checkpoint() {
+        try {
+            if (deferred.isEmpty()) {
+                Files.deleteIfExists(checkpointPath);
+                return;
+            }
+            ArrayNode checks = JsonNodeFactory.instance.arrayNode();
+            for (Check check : deferred) {
+                checks.add(check.toJson());
+            }
+            Path tempPath = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+            Files.write(tempPath, checks.toString().getBytes(UTF_8));
+            Files.move(tempPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.info("\u2713 Checkpointed {} check(s), they will be resumed after the restart.",
+                    deferred.size());
+        } catch (IOException e) {
+            logger.error("\u2718 Could not write checkpoint: " + checkpointPath);
+            logger.debug("exception: ", e);
+        }
+    }
+
+    /**
+     * Loads the checks that were checkpointed when the bot was last shut down (if any), and runs them one
+     * after the other with the given {@code runner} on a background thread. The checkpoint is removed once
+     * all of them have been run (if the bot is shut down before that, the ones that were not run yet are
+     * checkpointed again).
+     */
+    void resume(Consumer<Check> runner) throws IOException {
+        Objects.requireNonNull(runner, "runner must not be null");
+        if (!Files.exists(checkpointPath)) {
+            return;
+        }
+        JsonNode checks = objectMapper.readTree(new String(Files.readAllBytes(checkpointPath), UTF_8));
+        synchronized (this) {
+            for (JsonNode check : checks) {
+                deferred.add(Check.fromJson(check));
+            }
+        }
+        logger.info("\u2713 Resuming {} check(s) that were checkpointed when shutting down.", checks.size());
+        Thread resumer = new Thread(() -> {
+            Check check;
+            while ((check = nextDeferred()) != null) {
+                runner.accept(check);
+            }
+        }, "resumeChecks");
+        resumer.setDaemon(true);
+        resumer.start();
+    }
+
+    private synchronized Check nextDeferred() {
+        if (draining) {
+            return null;
+        }
+        Check check = deferred.poll();
+        if (check == null) {
+            try {
+                Files.deleteIfExists(checkpointPath);
+            } catch (IOException e) {
+                logger.debug("exception: ", e);
+            }
+        }
+        return check;
+    }
+
+    /**
+     * A check of a pull request: the event that started it, and whether it was cancelled.
+     */
+    static class Check {
+        private final String prNum;
+        private final String sha;
+        private final String delivery;
+        private final byte[] payload;
+        private volatile boolean cancelled;
+
+        private Check(String prNum, String sha, String delivery, byte[] payload) {
+            this.prNum = prNum;
+            this.sha = sha;
+            this.delivery = delivery;
+            this.payload = payload;
+        }
+
+        String getPrNum() {
+            return prNum;
+        }
+
+        String getSha() {
+            return sha;
+        }
+
+        /**
+         * Returns the ID of the delivery of the event that started the check, or {@code null} if unknown.
+         */
+        String getDelivery() {
+            return delivery;
+        }
+
+        /**
+         * Returns the payload of the "pull_request" event that started the check.
+         */
+        byte[] getPayload() {
+            return payload;
+        }
+
+        private ObjectNode toJson() throws IOException {
+            ObjectNode json = JsonNodeFactory.instance.objectNode()
+                    .put("pr", prNum)
+                    .put("sha", sha)
+                    .put("delivery", delivery);
+            json.set("event", objectMapper.readTree(payload));
+            return json;
+        }
+
+        private static Check fromJson(JsonNode json) throws IOException {
+            if (!json.path("pr").isTextual() || !json.path("sha").isTextual() || !json.path("event").isObject()) {
+                throw new IOException("malformed checkpointed check: " + json);
+            }
+            return new Check(json.get("pr").asText(), json.get("sha").asText(),
+                    json.path("delivery").isTextual() ? json.get("delivery").asText() : null,
+                    objectMapper.writeValueAsBytes(json.get("event")));
+        }
+    }
+
+    /**
+     * Thrown (on the thread running a check) when the check was cancelled because jfxmirror_bot is shutting down.
+     */
+    static class CancelledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CancelledException(Check check, Throwable cause) {
+            super("check of PR #" + check.getPrNum() + " (" + check.getSha() + ") was cancelled", cause);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An "issue_comment" webhook event (GitHub treats comments on pull requests as issue comments), with
+ * only the fields jfxmirror_bot uses.
+ * <p>
+ * https://developer.github.com/v3/activity/events/types/#issuecommentevent
+ */
+class IssueCommentEvent {
+
+    private static final Set<String> FIELDS = new HashSet<>(Arrays.asList("action", "issue.number",
+            "issue.comments_url", "comment.body", "comment.user.login"));
+
+    private final String action;
+    private final String issueNumber;
+    private final String commentsUrl;
+    private final String commentBody;
+    private final String commenterLogin;
+
+    IssueCommentEvent(String action, String issueNumber, String commentsUrl, String commentBody,
+                      String commenterLogin) {
+        Objects.requireNonNull(action, "action must not be null");
+        Objects.requireNonNull(issueNumber, "issueNumber must not be null");
+        Objects.requireNonNull(commentsUrl, "commentsUrl must not be null");
+        Objects.requireNonNull(commentBody, "commentBody must not be null");
+        Objects.requireNonNull(commenterLogin, "commenterLogin must not be null");
+        this.action = action;
+        this.issueNumber = issueNumber;
+        this.commentsUrl = commentsUrl;
+        this.commentBody = commentBody;
+        this.commenterLogin = commenterLogin;
+    }
+
+    static IssueCommentEvent parse(byte[] payload) throws IOException {
+        Map<String, String> values = JsonFields.extract(payload, FIELDS);
+        return new IssueCommentEvent(JsonFields.require(values, "action"),
+                JsonFields.require(values, "issue.number"),
+                JsonFields.require(values, "issue.comments_url"),
+                JsonFields.require(values, "comment.body"),
+                JsonFields.require(values, "comment.user.login"));
+    }
+
+    String getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the number of the issue (or pull request) that was commented on.
+     */
+    String getIssueNumber() {
+        return issueNumber;
+    }
+
+    /**
+     * Returns the URL that replies to the comment are posted to.
+     */
+    String getCommentsUrl() {
+        return commentsUrl;
+    }
+
+    String getCommentBody() {
+        return commentBody;
+    }
+
+    String getCommenterLogin() {
+        return commenterLogin;
+    }
+}
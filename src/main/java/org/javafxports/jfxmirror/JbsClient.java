@@ -0,0 +1,133 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.jira.rest.client.api.domain.BasicComponent;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import com.atlassian.jira.rest.client.auth.AnonymousAuthenticationHandler;
+import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
+import com.atlassian.util.concurrent.Promise;
+
+/**
+ * Fetches JBS (JDK Bug System) bugs referenced by pull requests.
+ * <p>
+ * A single (thread-safe) JIRA client is shared by all pull requests, and all of the bugs referenced by a
+ * pull request are fetched with one JQL query. Lookups never block the caller - they return a future
+ * that can be started early and joined once the result is needed.
+ */
+class JbsClient implements AutoCloseable {
+
+    static final URI JBS_URI = URI.create("https://bugs.openjdk.java.net");
+    // The fields we use (status and components) along with those JIRA's REST client needs to parse an issue.
+    private static final Set<String> ISSUE_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "summary", "issuetype", "created", "updated", "project", "status", "components")));
+    private static final int BAD_REQUEST = 400;
+
+    private final JiraRestClient jiraRestClient;
+    private static final Logger logger = LoggerFactory.getLogger(JbsClient.class);
+
+    JbsClient(URI jiraUri) {
+        Objects.requireNonNull(jiraUri, "jiraUri must not be null");
+        this.jiraRestClient = new AsynchronousJiraRestClientFactory().create(jiraUri,
+                new AnonymousAuthenticationHandler());
+    }
+
+    /**
+     * Returns (a future of) the given {@code jbsBugs} (e.g. "JDK-8195801") keyed by bug, including those
+     * that do not exist. The future completes exceptionally if JIRA could not be queried.
+     * <p>
+     * JIRA rejects a query that references a bug that does not exist, so if the combined query is
+     * rejected the bugs are fetched one query at a time (concurrently).
+     */
+    CompletableFuture<Map<String, JbsIssue>> fetchIssues(Set<String> jbsBugs) {
+        Objects.requireNonNull(jbsBugs, "jbsBugs must not be null");
+        if (jbsBugs.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        Set<String> sortedBugs = new TreeSet<>(jbsBugs);
+        return search(sortedBugs).handle((found, throwable) -> {
+            if (throwable == null) {
+                return CompletableFuture.completedFuture(found);
+            }
+            if (!isBadRequest(throwable)) {
+                CompletableFuture<Map<String, JbsIssue>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(throwable);
+                return failed;
+            }
+            if (sortedBugs.size() == 1) {
+                String jbsBug = sortedBugs.iterator().next();
+                return CompletableFuture.completedFuture(
+                        Collections.singletonMap(jbsBug, JbsIssue.notFound(jbsBug)));
+            }
+            logger.debug("JIRA rejected query for JBS bugs {}, querying each bug.", sortedBugs);
+            List<CompletableFuture<Map<String, JbsIssue>>> eachBug = sortedBugs.stream()
+                    .map(jbsBug -> fetchIssues(Collections.singleton(jbsBug)))
+                    .collect(Collectors.toList());
+            return CompletableFuture.allOf(eachBug.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+                Map<String, JbsIssue> issues = new HashMap<>();
+                eachBug.forEach(bug -> issues.putAll(bug.join()));
+                return issues;
+            });
+        }).thenCompose(future -> future);
+    }
+
+    private CompletableFuture<Map<String, JbsIssue>> search(Set<String> jbsBugs) {
+        String jql = "id IN (" + String.join(", ", jbsBugs) + ")";
+        CompletableFuture<SearchResult> result = toCompletableFuture(jiraRestClient.getSearchClient()
+                .searchJql(jql, jbsBugs.size(), 0, ISSUE_FIELDS));
+        return result.thenApply(searchResult -> {
+            Map<String, JbsIssue> issues = new HashMap<>();
+            for (Issue issue : searchResult.getIssues()) {
+                Set<String> components = new HashSet<>();
+                if (issue.getComponents() != null) {
+                    for (BasicComponent component : issue.getComponents()) {
+                        components.add(component.getName());
+                    }
+                }
+                issues.put(issue.getKey(), JbsIssue.found(issue.getKey(), issue.getStatus().getName(), components));
+            }
+            for (String jbsBug : jbsBugs) {
+                issues.putIfAbsent(jbsBug, JbsIssue.notFound(jbsBug));
+            }
+            return issues;
+        });
+    }
+
+    private static boolean isBadRequest(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ?
+                throwable.getCause() : throwable;
+        return cause instanceof RestClientException &&
+                ((RestClientException) cause).getStatusCode().or(-1) == BAD_REQUEST;
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(Promise<T> promise) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        promise.done(future::complete).fail(future::completeExceptionally);
+        return future;
+    }
+
+    @Override
+    public void close() throws IOException {
+        jiraRestClient.close();
+    }
+}
@@ -0,0 +1,65 @@
+package org.javafxports.jfxmirror;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What is known about a JBS bug (e.g. "JDK-8195801"): whether it exists and, if it does, its status and
+ * components.
+ */
+class JbsIssue {
+
+    private static final Set<String> OPEN_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "Open", "In Progress", "New", "Provisional")));
+    private static final String JAVAFX_COMPONENT = "javafx";
+
+    private final String key;
+    private final boolean exists;
+    private final String status;
+    private final Set<String> components;
+
+    private JbsIssue(String key, boolean exists, String status, Set<String> components) {
+        Objects.requireNonNull(key, "key must not be null");
+        this.key = key;
+        this.exists = exists;
+        this.status = status;
+        this.components = components;
+    }
+
+    static JbsIssue found(String key, String status, Set<String> components) {
+        Objects.requireNonNull(status, "status must not be null");
+        Objects.requireNonNull(components, "components must not be null");
+        return new JbsIssue(key, true, status, Collections.unmodifiableSet(new HashSet<>(components)));
+    }
+
+    static JbsIssue notFound(String key) {
+        return new JbsIssue(key, false, null, Collections.emptySet());
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    boolean exists() {
+        return exists;
+    }
+
+    String getStatus() {
+        return status;
+    }
+
+    Set<String> getComponents() {
+        return components;
+    }
+
+    /**
+     * Returns {@code true} if this is an open (unresolved) bug of the javafx component, which is what a
+     * pull request should reference.
+     */
+    boolean isOpenJavaFxBug() {
+        return exists && OPEN_STATUSES.contains(status) && components.contains(JAVAFX_COMPONENT);
+    }
+}
@@ -0,0 +1,291 @@
+package org.javafxports.jfxmirror;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of JBS bug lookups in front of a {@link JbsClient}.
+ * <p>
+ * The same bugs are looked up every time a PR they are referenced by is pushed to, edited, or reopened, so
+ * the result of each lookup is cached: bugs that exist for {@value #POSITIVE_TTL_MINUTES} minutes and bugs
+ * that do not exist (which may be created shortly after) for {@value #NEGATIVE_TTL_MINUTES} minutes. If
+ * JIRA fails or does not respond in time, expired entries are served (stale) rather than failing the
+ * lookup, and bugs that have never been looked up are reported as unverified (left out of the result).
+ * Entries that were used recently are refreshed in the background before they expire.
+ */
+class JbsIssueCache {
+
+    static final long POSITIVE_TTL_MINUTES = 30;
+    static final long NEGATIVE_TTL_MINUTES = 5;
+    private static final long LOOKUP_TIMEOUT_SECONDS = 10;
+    private static final long REFRESH_INTERVAL_MINUTES = 1;
+    // Entries that were used within this time are refreshed ahead of expiring.
+    private static final long HOT_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Entries that were not used within this time are evicted (once expired).
+    private static final long EVICT_MILLIS = TimeUnit.DAYS.toMillis(7);
+    // Entries are refreshed ahead of expiring once this fraction of their TTL has passed.
+    private static final double REFRESH_AHEAD_FRACTION = 0.8;
+
+    private final Function<Set<String>, CompletableFuture<Map<String, JbsIssue>>> fetcher;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong unverified = new AtomicLong();
+    private final AtomicLong fetchFailures = new AtomicLong();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jbsRefresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(JbsIssueCache.class);
+
+    /**
+     * Creates a cache that fetches the bugs it does not have (fresh) entries for using the given
+     * {@code fetcher} (e.g. {@link JbsClient#fetchIssues(Set)}).
+     */
+    JbsIssueCache(Function<Set<String>, CompletableFuture<Map<String, JbsIssue>>> fetcher) {
+        Objects.requireNonNull(fetcher, "fetcher must not be null");
+        this.fetcher = fetcher;
+    }
+
+    void start() {
+        refresher.scheduleWithFixedDelay(this::refreshHotEntries, REFRESH_INTERVAL_MINUTES,
+                REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Returns (a future of) the given {@code jbsBugs} keyed by bug. Bugs that could not be verified (JIRA
+     * is unavailable and they have never been looked up) are not contained in the result. The returned
+     * future never completes exceptionally.
+     */
+    CompletableFuture<Map<String, JbsIssue>> lookup(Set<String> jbsBugs) {
+        Objects.requireNonNull(jbsBugs, "jbsBugs must not be null");
+
+        long now = System.currentTimeMillis();
+        Map<String, JbsIssue> result = new HashMap<>();
+        Set<String> toFetch = new HashSet<>();
+        for (String jbsBug : jbsBugs) {
+            CacheEntry entry = entries.get(jbsBug);
+            if (entry != null) {
+                entry.lastUsedMillis = now;
+            }
+            if (entry != null && !entry.isExpired(now)) {
+                hits.incrementAndGet();
+                result.put(jbsBug, entry.issue);
+            } else {
+                misses.incrementAndGet();
+                toFetch.add(jbsBug);
+            }
+        }
+        if (toFetch.isEmpty()) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        return fetch(toFetch)
+                .applyToEither(timeout(), Function.identity())
+                .handle((fetched, throwable) -> {
+                    if (throwable != null) {
+                        logger.debug("Could not look up JBS bugs " + toFetch + ", using cached entries.", throwable);
+                    }
+                    for (String jbsBug : toFetch) {
+                        JbsIssue issue = fetched == null ? null : fetched.get(jbsBug);
+                        if (issue == null) {
+                            CacheEntry stale = entries.get(jbsBug);
+                            if (stale != null) {
+                                staleHits.incrementAndGet();
+                                issue = stale.issue;
+                            } else {
+                                unverified.incrementAndGet();
+                            }
+                        }
+                        if (issue != null) {
+                            result.put(jbsBug, issue);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Fetches the given {@code jbsBugs}, caching the result once it arrives (even if the lookup that asked
+     * for it has already timed out).
+     */
+    private CompletableFuture<Map<String, JbsIssue>> fetch(Set<String> jbsBugs) {
+        CompletableFuture<Map<String, JbsIssue>> fetched;
+        try {
+            fetched = fetcher.apply(jbsBugs);
+        } catch (RuntimeException e) {
+            fetched = new CompletableFuture<>();
+            fetched.completeExceptionally(e);
+        }
+        return fetched.whenComplete((issues, throwable) -> {
+            if (throwable != null) {
+                fetchFailures.incrementAndGet();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            issues.forEach((jbsBug, issue) -> entries.merge(jbsBug, new CacheEntry(issue, now, now),
+                    (previous, updated) -> new CacheEntry(issue, now, previous.lastUsedMillis)));
+        });
+    }
+
+    private static CompletableFuture<Map<String, JbsIssue>> timeout() {
+        CompletableFuture<Map<String, JbsIssue>> timeout = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS).execute(() ->
+                timeout.completeExceptionally(new TimeoutException(
+                        "JBS lookup did not complete in " + LOOKUP_TIMEOUT_SECONDS + "s")));
+        return timeout;
+    }
+
+    /**
+     * Refreshes the entries that were used recently and are close to (or past) expiring, and evicts
+     * expired entries that have not been used for a long time.
+     */
+    private void refreshHotEntries() {
+        long now = System.currentTimeMillis();
+        Set<String> toRefresh = new HashSet<>();
+        entries.forEach((jbsBug, entry) -> {
+            if (now - entry.lastUsedMillis > EVICT_MILLIS && entry.isExpired(now)) {
+                entries.remove(jbsBug, entry);
+            } else if (now - entry.lastUsedMillis <= HOT_MILLIS &&
+                    now - entry.fetchedMillis >= entry.ttlMillis() * REFRESH_AHEAD_FRACTION) {
+                toRefresh.add(jbsBug);
+            }
+        });
+        if (!toRefresh.isEmpty()) {
+            logger.debug("Refreshing " + toRefresh.size() + " JBS bugs.");
+            fetch(toRefresh);
+        }
+        logger.debug("JBS cache: " + entries.size() + " entries, hit rate " +
+                String.format("%.2f", getHitRate()) + ", " + staleHits.get() + " stale hits, " +
+                unverified.get() + " unverified, " + fetchFailures.get() + " fetch failures.");
+    }
+
+    /**
+     * Writes the entries of this cache to the given {@code out} (see {@link WarmSnapshot}).
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        Map<String, CacheEntry> snapshot = new HashMap<>(entries);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, CacheEntry> entry : snapshot.entrySet()) {
+            JbsIssue issue = entry.getValue().issue;
+            out.writeUTF(entry.getKey());
+            out.writeBoolean(issue.exists());
+            if (issue.exists()) {
+                out.writeUTF(issue.getStatus());
+                out.writeInt(issue.getComponents().size());
+                for (String component : issue.getComponents()) {
+                    out.writeUTF(component);
+                }
+            }
+            out.writeLong(entry.getValue().fetchedMillis);
+            out.writeLong(entry.getValue().lastUsedMillis);
+        }
+    }
+
+    /**
+     * Restores the entries written by {@link #writeSnapshot(DataOutputStream)} (expired entries too, they are
+     * served if JIRA is unavailable and refreshed if they are used), except those that would have been evicted
+     * by now. Entries that were fetched since the cache was created are kept.
+     */
+    void readSnapshot(DataInputStream in) throws IOException {
+        long now = System.currentTimeMillis();
+        int count = in.readInt();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            String jbsBug = in.readUTF();
+            JbsIssue issue;
+            if (in.readBoolean()) {
+                String status = in.readUTF();
+                Set<String> components = new HashSet<>();
+                for (int component = in.readInt(); component > 0; component--) {
+                    components.add(in.readUTF());
+                }
+                issue = JbsIssue.found(jbsBug, status, components);
+            } else {
+                issue = JbsIssue.notFound(jbsBug);
+            }
+            CacheEntry entry = new CacheEntry(issue, in.readLong(), in.readLong());
+            if (now - entry.lastUsedMillis <= EVICT_MILLIS || !entry.isExpired(now)) {
+                if (entries.putIfAbsent(jbsBug, entry) == null) {
+                    restored++;
+                }
+            }
+        }
+        logger.debug("Restored {} JBS bug(s) from warm snapshot.", restored);
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of times an expired entry was served because JIRA was unavailable.
+     */
+    long getStaleHits() {
+        return staleHits.get();
+    }
+
+    long getUnverified() {
+        return unverified.get();
+    }
+
+    long getFetchFailures() {
+        return fetchFailures.get();
+    }
+
+    double getHitRate() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : (double) hits.get() / lookups;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static class CacheEntry {
+        private final JbsIssue issue;
+        private final long fetchedMillis;
+        private volatile long lastUsedMillis;
+
+        private CacheEntry(JbsIssue issue, long fetchedMillis, long lastUsedMillis) {
+            this.issue = issue;
+            this.fetchedMillis = fetchedMillis;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+
+        private long ttlMillis() {
+            return TimeUnit.MINUTES.toMillis(issue.exists() ? POSITIVE_TTL_MINUTES : NEGATIVE_TTL_MINUTES);
+        }
+
+        private boolean isExpired(long now) {
+            return now - fetchedMillis >= ttlMillis();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.javafxports.jfxmirror;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A span of a {@link Trace}, as a JDK Flight Recorder event. Only loaded (by {@link Trace}) if the JVM
+ * has JFR, so jfxmirror_bot still runs on JVMs without it.
+ */
+@Name("org.javafxports.jfxmirror.Span")
+@Label("Span")
+@Category({"jfxmirror", "Trace"})
+@Description("A timed operation of checking a pull request")
+@StackTrace(false)
+class JfrSpanEvent extends Event {
+
+    @Label("Trace ID")
+    String traceId;
+
+    @Label("PR")
+    String prNum;
+
+    @Label("Span ID")
+    int spanId;
+
+    @Label("Parent Span ID")
+    int parentSpanId;
+
+    @Label("Name")
+    String name;
+
+    @Label("Detail")
+    String detail;
+
+    /**
+     * Returns a started event, or {@code null} if no recording is interested in it.
+     */
+    static Object startEvent() {
+        JfrSpanEvent event = new JfrSpanEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void commitEvent(Object started, String traceId, String prNum, int spanId, int parentSpanId,
+                            String name, String detail) {
+        JfrSpanEvent event = (JfrSpanEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.traceId = traceId;
+            event.prNum = prNum;
+            event.spanId = spanId;
+            event.parentSpanId = parentSpanId;
+            event.name = name;
+            event.detail = detail;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Extracts selected scalar fields from a JSON document with Jackson's streaming parser, without building a
+ * tree. Fields are selected by their dotted path (e.g. {@code "pull_request.head.sha"}), and objects that
+ * contain none of the selected fields are skipped without being materialized.
+ */
+final class JsonFields {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private JsonFields() {}
+
+    /**
+     * Returns the value (as text) of each of the given {@code paths} that is present (and not {@code null})
+     * in the given JSON object, keyed by path. Array elements can not be selected.
+     */
+    static Map<String, String> extract(byte[] json, Set<String> paths) throws IOException {
+        Objects.requireNonNull(json, "json must not be null");
+        Objects.requireNonNull(paths, "paths must not be null");
+
+        Set<String> prefixes = new HashSet<>();
+        for (String path : paths) {
+            for (int dot = path.indexOf('.'); dot != -1; dot = path.indexOf('.', dot + 1)) {
+                prefixes.add(path.substring(0, dot));
+            }
+        }
+        Map<String, String> values = new HashMap<>();
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected JSON object");
+            }
+            extractObject(parser, "", paths, prefixes, values);
+        }
+        return values;
+    }
+
+    private static void extractObject(JsonParser parser, String prefix, Set<String> paths, Set<String> prefixes,
+                                      Map<String, String> values) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix + parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT && prefixes.contains(path)) {
+                extractObject(parser, path + ".", paths, prefixes, values);
+            } else if (value.isScalarValue() && value != JsonToken.VALUE_NULL && paths.contains(path)) {
+                values.put(path, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new IOException("malformed JSON object: " + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Returns the value of the given {@code path} from the given extracted {@code values}, or throws if
+     * the field was not present.
+     */
+    static String require(Map<String, String> values, String path) throws IOException {
+        String value = values.get(path);
+        if (value == null) {
+            throw new IOException("missing field: " + path);
+        }
+        return value;
+    }
+}
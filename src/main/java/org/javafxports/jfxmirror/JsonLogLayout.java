@@ -0,0 +1,93 @@
+package org.javafxports.jfxmirror;
+
+import java.time.Instant;
+import java.util.Map;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.LayoutBase;
+
+/**
+ * Lays out each logging event as one line of JSON (for "logback-production.xml"), so that the log can be
+ * searched and aggregated by field instead of by pattern, e.g.:
+ * <pre>
+ * {"time":"2018-03-05T10:00:00.123Z","level":"DEBUG","logger":"GhEventService","thread":"grizzly-http-server-0",
+ *  "message":"Running jcheck on PR #42","pr":"42","sha":"8c1e...","delivery":"72d3...","stage":"jcheck"}
+ * </pre>
+ * Every entry of the MDC (see {@link LogContext}) is included as a field, and the stack trace of an exception
+ * (if any) as "exception".
+ */
+public class JsonLogLayout extends LayoutBase<ILoggingEvent> {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"time\":\"").append(Instant.ofEpochMilli(event.getTimeStamp())).append('"');
+        json.append(",\"level\":\"").append(event.getLevel()).append('"');
+        String loggerName = event.getLoggerName();
+        appendField(json, "logger", loggerName.substring(loggerName.lastIndexOf('.') + 1));
+        appendField(json, "thread", event.getThreadName());
+        appendField(json, "message", event.getFormattedMessage());
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null) {
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                appendField(json, entry.getKey(), entry.getValue());
+            }
+        }
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            appendField(json, "exception", ThrowableProxyUtil.asString(throwable));
+        }
+        return json.append('}').append(CoreConstants.LINE_SEPARATOR).toString();
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/json";
+    }
+
+    private static void appendField(StringBuilder json, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        json.append(',');
+        appendString(json, name);
+        json.append(':');
+        appendString(json, value);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
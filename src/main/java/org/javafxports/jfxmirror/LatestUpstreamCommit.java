@@ -0,0 +1,129 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the most recent commit from upstream that has been merged in to the git mirror repository: the
+ * parent (that was not made by the bot) of the latest "Merge from (root)" commit made by
+ * "javafxports-github-bot", searching the history of every ref (like "git log --all").
+ * <p>
+ * The result is kept, together with the tips of the refs it was found from. When the refs move, only the
+ * commits that are new since (not reachable from the previous tips) are searched, so a check does not walk
+ * the whole history of the mirror again. Searches are serialized, so a check made while the history is
+ * being walked for the first time (see {@link Bot}) waits for that walk instead of repeating it.
+ */
+class LatestUpstreamCommit {
+
+    private static final String BOT_NAME = "javafxports-github-bot";
+    private static final String MERGE_MESSAGE = "Merge from (root)";
+
+    private final Repository repository;
+    // Guarded by "this".
+    private Set<ObjectId> searchedTips;
+    private RevCommit latestMergeCommit;
+    private RevCommit latestUpstreamCommit;
+    private static final Logger logger = LoggerFactory.getLogger(LatestUpstreamCommit.class);
+
+    LatestUpstreamCommit(Repository repository) {
+        Objects.requireNonNull(repository, "repository must not be null");
+        this.repository = repository;
+    }
+
+    /**
+     * Returns the most recent upstream commit that has been merged in to the mirror, searching the commits
+     * that are new since the last search (if any).
+     */
+    synchronized RevCommit get() throws IOException {
+        Set<ObjectId> tips = new HashSet<>();
+        for (Ref ref : repository.getAllRefs().values()) {
+            ObjectId tip = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+            if (tip != null) {
+                tips.add(tip);
+            }
+        }
+        if (!tips.equals(searchedTips)) {
+            search(tips);
+        }
+        if (latestMergeCommit == null) {
+            throw new IOException("could not find commit with author: \"" + BOT_NAME + "\" " +
+                    "and message: \"" + MERGE_MESSAGE + "\"");
+        }
+        return latestUpstreamCommit;
+    }
+
+    private void search(Set<ObjectId> tips) throws IOException {
+        RevCommit mergeCommit = latestMergeCommit;
+        RevCommit upstreamCommit = latestUpstreamCommit;
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (ObjectId tip : tips) {
+                RevCommit commit = parseCommit(walk, tip);
+                if (commit != null) {
+                    walk.markStart(commit);
+                }
+            }
+            if (searchedTips != null) {
+                for (ObjectId tip : searchedTips) {
+                    RevCommit commit = parseCommit(walk, tip);
+                    if (commit != null) {
+                        walk.markUninteresting(commit);
+                    }
+                }
+            }
+            for (RevCommit commit : walk) {
+                if (commit.getAuthorIdent().getName().equalsIgnoreCase(BOT_NAME) &&
+                        commit.getShortMessage().equalsIgnoreCase(MERGE_MESSAGE)) {
+                    if (mergeCommit == null || commit.getCommitTime() >= mergeCommit.getCommitTime()) {
+                        mergeCommit = commit;
+                        upstreamCommit = findUpstreamParent(walk, commit);
+                    }
+                    break;
+                }
+            }
+        }
+        if (mergeCommit != latestMergeCommit) {
+            logger.info("\u2713 Found latest merge commit by {}: \"{}\" ({})",
+                    upstreamCommit.getAuthorIdent().getName(), upstreamCommit.getShortMessage(),
+                    upstreamCommit.getName());
+        }
+        latestMergeCommit = mergeCommit;
+        latestUpstreamCommit = upstreamCommit;
+        searchedTips = tips;
+    }
+
+    private static RevCommit findUpstreamParent(RevWalk walk, RevCommit mergeCommit) throws IOException {
+        for (RevCommit parent : mergeCommit.getParents()) {
+            walk.parseBody(parent);
+            if (!parent.getAuthorIdent().getName().equalsIgnoreCase(BOT_NAME) &&
+                    !parent.getShortMessage().contains(MERGE_MESSAGE)) {
+                return parent;
+            }
+        }
+        throw new IOException("could not find commit with author NOT equal to: \"" + BOT_NAME + "\" " +
+                "and message NOT equal to: \"" + MERGE_MESSAGE + "\" in parents of latest merge commit");
+    }
+
+    /**
+     * Returns the commit the given {@code id} points to, or {@code null} if it does not point to a commit (or
+     * no longer exists).
+     */
+    private static RevCommit parseCommit(RevWalk walk, ObjectId id) throws IOException {
+        try {
+            return walk.parseCommit(id);
+        } catch (IncorrectObjectTypeException | MissingObjectException e) {
+            return null;
+        }
+    }
+}
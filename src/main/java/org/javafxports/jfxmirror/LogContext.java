@@ -0,0 +1,47 @@
+package org.javafxports.jfxmirror;
+
+import org.slf4j.MDC;
+
+/**
+ * The keys of the logging MDC that jfxmirror_bot sets, so that every log line written while handling a
+ * webhook event can be attributed to it (they are fields of the JSON log, see {@link JsonLogLayout}):
+ * <ul>
+ *     <li>"delivery": the ID GitHub assigned to the delivery of the event ("X-GitHub-Delivery")</li>
+ *     <li>"pr" and "sha": the pull request (and its head) being checked</li>
+ *     <li>"stage": the stage of the check that is running (see {@link PullRequestContext#stage(String)})</li>
+ *     <li>"traceId": the ID of the trace of the check (see {@link Trace})</li>
+ * </ul>
+ * The keys are set and cleared on the thread handling the event, and are not propagated to other threads.
+ */
+final class LogContext {
+
+    static final String DELIVERY = "delivery";
+    static final String PR = "pr";
+    static final String SHA = "sha";
+    static final String STAGE = "stage";
+    static final String TRACE_ID = Trace.MDC_KEY;
+
+    private LogContext() {}
+
+    /**
+     * Sets the MDC entry {@code key} to {@code value}, or removes it if {@code value} is null.
+     */
+    static void put(String key, String value) {
+        if (value == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, value);
+        }
+    }
+
+    /**
+     * Removes all of the keys that jfxmirror_bot sets from the MDC of the current thread.
+     */
+    static void clear() {
+        MDC.remove(DELIVERY);
+        MDC.remove(PR);
+        MDC.remove(SHA);
+        MDC.remove(STAGE);
+        MDC.remove(TRACE_ID);
+    }
+}
@@ -0,0 +1,290 @@
+package org.javafxports.jfxmirror;
+
+import static java.util.Locale.US;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of jfxmirror_bot, exposed in the Prometheus text format on "/metrics".
+ * <p>
+ * Recording is cheap (an uncontended {@link LongAdder} increment, and a short linear search for the bucket
+ * of a histogram) so it can be done on every request. Values that are already counted elsewhere (e.g. the
+ * hits of a cache) are not duplicated, they are registered as samples that are read when the metrics are
+ * scraped.
+ */
+class Metrics {
+
+    private static final double[] STAGE_BUCKETS = {0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300};
+    private static final double[] CHECK_BUCKETS = {1, 5, 10, 30, 60, 120, 300, 600, 1200};
+
+    // Guarded by "this", in the order they are exposed.
+    private final Map<String, Family<?>> families = new LinkedHashMap<>();
+
+    /**
+     * How long each stage of checking a pull request (see {@link PullRequestContext#stage(String)}) took.
+     */
+    final Family<Histogram> stageDuration = histogram("jfxmirror_stage_duration_seconds",
+            "Time taken by each stage of checking a pull request.", STAGE_BUCKETS, "stage");
+    /**
+     * The CPU time (of the thread that ran it) used by each stage of checking a pull request.
+     */
+    final Family<Histogram> stageCpu = histogram("jfxmirror_stage_cpu_seconds",
+            "CPU time used by each stage of checking a pull request, excluding external processes.",
+            STAGE_BUCKETS, "stage");
+    final Family<Histogram> checkDuration = histogram("jfxmirror_check_duration_seconds",
+            "Time taken to check a pull request.", CHECK_BUCKETS, "result");
+    final Family<Counter> checks = counter("jfxmirror_checks_total",
+            "Pull request checks, by result.", "result");
+    final Family<Counter> events = counter("jfxmirror_github_events_total",
+            "GitHub webhook events received, by type.", "event");
+
+    /**
+     * Returns the family of counters with the given {@code name}, registering it if necessary.
+     */
+    Family<Counter> counter(String name, String help, String... labelNames) {
+        return register(name, "counter", help, Counter::new, labelNames);
+    }
+
+    Family<Histogram> histogram(String name, String help, double[] buckets, String... labelNames) {
+        double[] bounds = buckets.clone();
+        Arrays.sort(bounds);
+        return register(name, "histogram", help, () -> new Histogram(bounds), labelNames);
+    }
+
+    /**
+     * Registers a family of gauges, whose values are sampled when scraped.
+     */
+    Family<Sample> gauge(String name, String help, String... labelNames) {
+        return register(name, "gauge", help, Sample::new, labelNames);
+    }
+
+    /**
+     * Registers a family of counters that are maintained elsewhere, whose values are sampled when scraped.
+     */
+    Family<Sample> sampledCounter(String name, String help, String... labelNames) {
+        return register(name, "counter", help, Sample::new, labelNames);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T extends Metric> Family<T> register(String name, String type, String help,
+                                                              Supplier<T> factory, String... labelNames) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(help, "help must not be null");
+        Family<?> existing = families.get(name);
+        if (existing != null) {
+            if (!existing.type.equals(type)) {
+                throw new IllegalArgumentException("metric " + name + " is already registered as a " +
+                        existing.type);
+            }
+            return (Family<T>) existing;
+        }
+        Family<T> family = new Family<>(name, type, help, factory, labelNames);
+        families.put(name, family);
+        return family;
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    String scrape() {
+        List<Family<?>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.values());
+        }
+        StringBuilder text = new StringBuilder(8192);
+        for (Family<?> family : snapshot) {
+            family.writeTo(text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Records the outcome of checking a pull request and how long each of its stages took (and how much
+     * CPU time they used).
+     */
+    void recordCheck(PrStatus result, Map<String, Duration> stageTimings, Map<String, Duration> stageCpuTimes,
+                     Duration elapsed) {
+        String resultLabel = result.name().toLowerCase(US);
+        checks.labels(resultLabel).increment();
+        checkDuration.labels(resultLabel).observe(elapsed);
+        stageTimings.forEach((stage, timing) -> stageDuration.labels(stage).observe(timing));
+        stageCpuTimes.forEach((stage, cpuTime) -> stageCpu.labels(stage).observe(cpuTime));
+    }
+
+    /**
+     * A metric with a given name and the values of its labels.
+     */
+    interface Metric {
+        void writeTo(StringBuilder text, String name, String labels);
+    }
+
+    /**
+     * All metrics of the same name (one per combination of label values).
+     */
+    static class Family<T extends Metric> {
+        private final String name;
+        private final String type;
+        private final String help;
+        private final Supplier<T> factory;
+        private final List<String> labelNames;
+        private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+
+        private Family(String name, String type, String help, Supplier<T> factory, String... labelNames) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.factory = factory;
+            this.labelNames = Collections.unmodifiableList(Arrays.asList(labelNames.clone()));
+        }
+
+        /**
+         * Returns the metric with the given label values (in the order the label names were registered).
+         */
+        T labels(String... labelValues) {
+            if (labelValues.length != labelNames.size()) {
+                throw new IllegalArgumentException("metric " + name + " has labels " + labelNames + " but got " +
+                        labelValues.length + " value(s)");
+            }
+            List<String> key = Arrays.asList(labelValues);
+            T child = children.get(key);
+            return child != null ? child : children.computeIfAbsent(new ArrayList<>(key), ignored -> factory.get());
+        }
+
+        private void writeTo(StringBuilder text) {
+            text.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n"))
+                    .append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            children.forEach((labelValues, child) -> {
+                StringBuilder labels = new StringBuilder();
+                for (int i = 0; i < labelNames.size(); i++) {
+                    if (i > 0) {
+                        labels.append(',');
+                    }
+                    labels.append(labelNames.get(i)).append("=\"").append(escapeLabel(labelValues.get(i)))
+                            .append('"');
+                }
+                child.writeTo(text, name, labels.toString());
+            });
+        }
+    }
+
+    static class Counter implements Metric {
+        private final LongAdder count = new LongAdder();
+
+        void increment() {
+            count.increment();
+        }
+
+        void add(long amount) {
+            count.add(amount);
+        }
+
+        long get() {
+            return count.sum();
+        }
+
+        @Override
+        public void writeTo(StringBuilder text, String name, String labels) {
+            writeSample(text, name, labels, count.sum());
+        }
+    }
+
+    /**
+     * A value that is read (from wherever it is maintained) when the metrics are scraped.
+     */
+    static class Sample implements Metric {
+        private volatile DoubleSupplier supplier = () -> 0;
+
+        void set(DoubleSupplier supplier) {
+            this.supplier = Objects.requireNonNull(supplier, "supplier must not be null");
+        }
+
+        @Override
+        public void writeTo(StringBuilder text, String name, String labels) {
+            writeSample(text, name, labels, supplier.getAsDouble());
+        }
+    }
+
+    /**
+     * Counts observations (in seconds) into buckets with fixed upper bounds.
+     */
+    static class Histogram implements Metric {
+        private final double[] bounds;
+        // One more than bounds, the last bucket is "+Inf".
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(Duration duration) {
+            observe(duration.toNanos() / 1e9);
+        }
+
+        void observe(double value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            sum.add(value);
+        }
+
+        long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        @Override
+        public void writeTo(StringBuilder text, String name, String labels) {
+            String separator = labels.isEmpty() ? "" : ",";
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < bounds.length ? formatValue(bounds[i]) : "+Inf";
+                writeSample(text, name + "_bucket", labels + separator + "le=\"" + le + "\"", cumulative);
+            }
+            writeSample(text, name + "_sum", labels, sum.sum());
+            writeSample(text, name + "_count", labels, cumulative);
+        }
+    }
+
+    private static void writeSample(StringBuilder text, String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -1,5 +1,8 @@
 package org.javafxports.jfxmirror;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class OcaReplies {
     private OcaReplies() {}
 
@@ -8,13 +11,18 @@ public class OcaReplies {
                 "under the name `" + name + "`.";
     }
 
-    public static String replyWhenNotFoundName(String name, String botUsername) {
-        return "You said that you signed the OCA under your name `" + name + "`, but we weren't " +
+    public static String replyWhenNotFoundName(String name, String botUsername, List<String> suggestions) {
+        String reply = "You said that you signed the OCA under your name `" + name + "`, but we weren't " +
                 "able to find that name on the " +
                 "[OCA signatures page](http://www.oracle.com/technetwork/community/oca-486395.html) " +
                 ":flushed:. Make sure it is correct and try again with the correct name by adding a " +
                 "comment to this PR of the form: `@" + botUsername + " I have signed the OCA under " +
                 "the name {name}`.";
+        if (!suggestions.isEmpty()) {
+            reply += " Did you mean " + suggestions.stream().map(suggestion -> "`" + suggestion + "`")
+                    .collect(Collectors.joining(" or ")) + "?";
+        }
+        return reply;
     }
 
     public static String replyWhenFoundUsername() {
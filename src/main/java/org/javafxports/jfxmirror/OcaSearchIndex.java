@@ -0,0 +1,193 @@
+package org.javafxports.jfxmirror;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An inverted index over the fields of OCA signature lines, which are of the form
+ * {@code {name} - {project} - {username}} (e.g. "John Smith - OpenJFX - jsmith").
+ * <p>
+ * Lines are split on " - " only (so that hyphenated names such as "Jean-Pierre Dupont" stay intact) and
+ * every field is indexed under a normalized key that is case- and diacritic-folded, so that e.g. "Jose"
+ * finds "Jos&eacute;". Fields are also indexed by their character trigrams, which is used to suggest the
+ * closest fields when a query does not match exactly.
+ * <p>
+ * Instances are immutable and are built once per refresh of the {@link OcaSignatureIndex}.
+ */
+class OcaSearchIndex {
+
+    private static final Pattern FIELD_SEPARATOR = Pattern.compile(" - ");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int[] NO_IDS = new int[0];
+    private static final double MIN_SUGGESTION_SCORE = 0.4;
+
+    private final List<String> signatures;
+    // Every distinct (normalized) field and the ids of the signature lines that contain it.
+    private final String[] fieldDisplay;
+    private final int[][] fieldLines;
+    private final Map<String, Integer> fieldIds;
+    private final int[] fieldTrigramCounts;
+    private final Map<String, int[]> trigramFields;
+
+    OcaSearchIndex(List<String> signatures) {
+        Objects.requireNonNull(signatures, "signatures must not be null");
+        this.signatures = signatures;
+
+        Map<String, Integer> fieldIds = new HashMap<>();
+        List<String> fieldDisplay = new ArrayList<>();
+        List<List<Integer>> fieldLines = new ArrayList<>();
+        for (int line = 0; line < signatures.size(); line++) {
+            for (String field : FIELD_SEPARATOR.split(signatures.get(line))) {
+                String key = normalize(field);
+                if (key.isEmpty()) {
+                    continue;
+                }
+                Integer fieldId = fieldIds.get(key);
+                if (fieldId == null) {
+                    fieldId = fieldDisplay.size();
+                    fieldIds.put(key, fieldId);
+                    fieldDisplay.add(field.trim());
+                    fieldLines.add(new ArrayList<>(1));
+                }
+                List<Integer> lines = fieldLines.get(fieldId);
+                if (lines.isEmpty() || lines.get(lines.size() - 1) != line) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        this.fieldIds = fieldIds;
+        this.fieldDisplay = fieldDisplay.toArray(new String[0]);
+        this.fieldLines = new int[fieldLines.size()][];
+        for (int i = 0; i < fieldLines.size(); i++) {
+            this.fieldLines[i] = toArray(fieldLines.get(i));
+        }
+
+        String[] keys = new String[this.fieldDisplay.length];
+        for (Map.Entry<String, Integer> fieldId : fieldIds.entrySet()) {
+            keys[fieldId.getValue()] = fieldId.getKey();
+        }
+        Map<String, List<Integer>> trigramFields = new HashMap<>();
+        this.fieldTrigramCounts = new int[keys.length];
+        for (int fieldId = 0; fieldId < keys.length; fieldId++) {
+            List<String> trigrams = trigrams(keys[fieldId]);
+            fieldTrigramCounts[fieldId] = trigrams.size();
+            for (String trigram : trigrams) {
+                trigramFields.computeIfAbsent(trigram, ignored -> new ArrayList<>()).add(fieldId);
+            }
+        }
+        this.trigramFields = new HashMap<>(trigramFields.size());
+        for (Map.Entry<String, List<Integer>> trigram : trigramFields.entrySet()) {
+            this.trigramFields.put(trigram.getKey(), toArray(trigram.getValue()));
+        }
+    }
+
+    /**
+     * Returns the first signature line that has a field (name, project, or username) equal to the
+     * given {@code query} (ignoring case and diacritics), or {@code null} if there is no such line.
+     */
+    String findLine(String query) {
+        int[] lines = linesWithField(query);
+        return lines.length == 0 ? null : signatures.get(lines[0]);
+    }
+
+    /**
+     * Returns {@code true} if any signature line has a field equal to the given {@code query} (ignoring
+     * case and diacritics).
+     */
+    boolean containsField(String query) {
+        return linesWithField(query).length != 0;
+    }
+
+    /**
+     * Returns (at most {@code max}) fields that are similar to the given {@code query}, most similar first,
+     * for "did you mean" suggestions. Similarity is the Dice coefficient of the trigrams of the fields.
+     */
+    List<String> suggest(String query, int max) {
+        Objects.requireNonNull(query, "query must not be null");
+
+        List<String> queryTrigrams = trigrams(normalize(query));
+        if (queryTrigrams.isEmpty() || max <= 0) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Integer> common = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            for (int fieldId : trigramFields.getOrDefault(trigram, NO_IDS)) {
+                common.merge(fieldId, 1, Integer::sum);
+            }
+        }
+
+        Map<Integer, Double> scores = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> candidate : common.entrySet()) {
+            double score = 2.0 * candidate.getValue() /
+                    (queryTrigrams.size() + fieldTrigramCounts[candidate.getKey()]);
+            if (score >= MIN_SUGGESTION_SCORE) {
+                scores.put(candidate.getKey(), score);
+            }
+        }
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((first, second) -> Double.compare(second.getValue(), first.getValue()));
+        List<String> suggestions = new ArrayList<>();
+        for (Map.Entry<Integer, Double> field : ranked.subList(0, Math.min(max, ranked.size()))) {
+            suggestions.add(fieldDisplay[field.getKey()]);
+        }
+        return suggestions;
+    }
+
+    int size() {
+        return signatures.size();
+    }
+
+    private int[] linesWithField(String query) {
+        Objects.requireNonNull(query, "query must not be null");
+        Integer fieldId = fieldIds.get(normalize(query));
+        return fieldId == null ? NO_IDS : fieldLines[fieldId];
+    }
+
+    /**
+     * Folds case and diacritics and collapses whitespace, e.g. " Jos&eacute;  Garc&iacute;a " becomes
+     * "jose garcia".
+     */
+    static String normalize(String string) {
+        String decomposed = Normalizer.normalize(string.trim(), Normalizer.Form.NFD);
+        return WHITESPACE.matcher(DIACRITICS.matcher(decomposed).replaceAll("")).replaceAll(" ")
+                .toLowerCase(Locale.US);
+    }
+
+    /**
+     * Returns the distinct trigrams of the given (normalized) {@code key}, padded so that the start and end
+     * of the key are weighted as well.
+     */
+    private static List<String> trigrams(String key) {
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String padded = "  " + key + " ";
+        Set<String> trigrams = new LinkedHashSet<>(padded.length() * 2);
+        for (int i = 0; i < padded.length() - 2; i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return new ArrayList<>(trigrams);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+}
@@ -0,0 +1,243 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Selector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of the signatures on Oracle's OCA signatories page (see {@link OcaSearchIndex}).
+ * <p>
+ * The page is large, so instead of downloading and parsing it for every lookup it is refreshed in the
+ * background using conditional GETs ("If-None-Match"/"If-Modified-Since"), so that it is only downloaded
+ * and parsed again when it has actually changed. A freshly parsed list of signatures is swapped in
+ * atomically and persisted as a snapshot, which is loaded on startup so that lookups don't depend on
+ * Oracle's site being up after a restart.
+ */
+class OcaSignatureIndex {
+
+    static final String OCA_URL = "http://www.oracle.com/technetwork/community/oca-486395.html";
+    private static final String ETAG_PREFIX = "# ETag: ";
+    private static final String LAST_MODIFIED_PREFIX = "# Last-Modified: ";
+    private static final long REFRESH_INTERVAL_HOURS = 6;
+    private static final long MIN_FORCED_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path snapshotPath;
+    private final String ocaUrl;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocaRefresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long lastRefreshMillis;
+    private static final Logger logger = LoggerFactory.getLogger(OcaSignatureIndex.class);
+
+    /**
+     * Creates an index of the signatures on the OCA page at the given {@code ocaUrl} (normally
+     * {@link #OCA_URL}).
+     */
+    OcaSignatureIndex(Path snapshotPath, String ocaUrl) {
+        Objects.requireNonNull(snapshotPath, "snapshotPath must not be null");
+        Objects.requireNonNull(ocaUrl, "ocaUrl must not be null");
+        this.snapshotPath = snapshotPath;
+        this.ocaUrl = ocaUrl;
+    }
+
+    /**
+     * Loads the persisted snapshot (if there is one) and starts refreshing the index, both in the background
+     * (a lookup made before the snapshot is loaded waits for it).
+     */
+    void start() {
+        refresher.execute(this::loadSnapshot);
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (IOException e) {
+                logger.error("\u2718 Could not refresh OCA signatures.");
+                logger.debug("exception: ", e);
+            }
+        }, 0, REFRESH_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    private synchronized void loadSnapshot() {
+        if (snapshot.get() != null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        try {
+            snapshot.set(readSnapshot(snapshotPath));
+            logger.info("\u2713 Loaded " + snapshot.get().signatures.size() + " OCA signatures from: " +
+                    snapshotPath);
+        } catch (IOException e) {
+            logger.error("\u2718 Could not load OCA signatures snapshot: " + snapshotPath);
+            logger.debug("exception: ", e);
+        }
+    }
+
+    /**
+     * Returns the OCA signatures (e.g. "John Smith - OpenJFX - jsmith"). If the index has never been loaded
+     * (no snapshot and the background refresh has not completed yet) it is refreshed first.
+     */
+    List<String> getSignatures() throws IOException {
+        return current().signatures;
+    }
+
+    /**
+     * Returns the search index over the fields of the current OCA signatures.
+     */
+    OcaSearchIndex getSearchIndex() throws IOException {
+        return current().searchIndex;
+    }
+
+    private Snapshot current() throws IOException {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            // Waits for the snapshot to be loaded (or refreshed) in the background, if it is being.
+            synchronized (this) {
+                current = snapshot.get();
+                if (current == null) {
+                    refresh();
+                    current = snapshot.get();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Refreshes the index unless it was refreshed very recently. Used when a lookup fails for something
+     * that a user claims has just been added to the OCA page.
+     */
+    void refreshIfStale() throws IOException {
+        if (System.currentTimeMillis() - lastRefreshMillis >= MIN_FORCED_REFRESH_INTERVAL_MILLIS) {
+            refresh();
+        }
+    }
+
+    /**
+     * Fetches the OCA page (if it changed since the last fetch) and, if it did, extracts the signatures,
+     * swaps them in, and persists them.
+     */
+    synchronized void refresh() throws IOException {
+        Snapshot current = snapshot.get();
+        Connection connection = Jsoup.connect(ocaUrl).ignoreHttpErrors(true).maxBodySize(0);
+        if (current != null && current.etag != null) {
+            connection.header("If-None-Match", current.etag);
+        }
+        if (current != null && current.lastModified != null) {
+            connection.header("If-Modified-Since", current.lastModified);
+        }
+        Connection.Response response = connection.execute();
+        lastRefreshMillis = System.currentTimeMillis();
+        if (response.statusCode() == 304 && current != null) {
+            logger.debug("OCA signatures page has not changed.");
+            return;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("unexpected response from OCA signatures page: " + response.statusCode());
+        }
+
+        Snapshot refreshed = new Snapshot(extractSignatures(response.parse()), response.header("ETag"),
+                response.header("Last-Modified"));
+        if (refreshed.signatures.isEmpty()) {
+            throw new IOException("OCA signatures page did not contain any signatures");
+        }
+        snapshot.set(refreshed);
+        writeSnapshot(snapshotPath, refreshed);
+        logger.debug("Refreshed OCA signatures (" + refreshed.signatures.size() + " signatures).");
+    }
+
+    /**
+     * Extracts the OCA signatures from Oracle's OCA page.
+     */
+    private static List<String> extractSignatures(Document doc) throws IOException {
+        List<String> signatures = new ArrayList<>();
+        try {
+            // If the HTML of the oca-486395.html page changes, this selector will need to change. It should select
+            // each <ul> that corresponds to a letter (A-W) or "XYZ" which groups the signatures alphabetically by
+            // last name.
+            Elements signatoryLetters = doc.select(".dataTable > tbody:nth-child(1) > tr:nth-child(1) > td:nth-child(1) > ul:nth-child(2n+5)");
+            for (Element signatoryLetter : signatoryLetters) {
+                Elements signatories = signatoryLetter.select("li");
+                for (Element signatory : signatories) {
+                    signatures.add(signatory.text());
+                }
+            }
+        } catch (Selector.SelectorParseException e) {
+            logger.error("\u2718 Could not extract list of OCA signatures.");
+            logger.debug("Check the CSS selector as the HTML of the OCA page may have changed.");
+            logger.debug("exception: ", e);
+            throw new IOException(e);
+        }
+        return Collections.unmodifiableList(signatures);
+    }
+
+    private static Snapshot readSnapshot(Path snapshotPath) throws IOException {
+        String etag = null;
+        String lastModified = null;
+        List<String> signatures = new ArrayList<>();
+        for (String line : Files.readAllLines(snapshotPath, UTF_8)) {
+            if (line.startsWith(ETAG_PREFIX)) {
+                etag = line.substring(ETAG_PREFIX.length());
+            } else if (line.startsWith(LAST_MODIFIED_PREFIX)) {
+                lastModified = line.substring(LAST_MODIFIED_PREFIX.length());
+            } else if (!line.isEmpty()) {
+                signatures.add(line);
+            }
+        }
+        return new Snapshot(Collections.unmodifiableList(signatures), etag, lastModified);
+    }
+
+    private static void writeSnapshot(Path snapshotPath, Snapshot snapshot) throws IOException {
+        StringBuilder snapshotBuilder = new StringBuilder();
+        if (snapshot.etag != null) {
+            snapshotBuilder.append(ETAG_PREFIX).append(snapshot.etag).append('\n');
+        }
+        if (snapshot.lastModified != null) {
+            snapshotBuilder.append(LAST_MODIFIED_PREFIX).append(snapshot.lastModified).append('\n');
+        }
+        for (String signature : snapshot.signatures) {
+            snapshotBuilder.append(signature).append('\n');
+        }
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        Files.write(tempPath, snapshotBuilder.toString().getBytes(UTF_8));
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Snapshot {
+        private final List<String> signatures;
+        private final OcaSearchIndex searchIndex;
+        private final String etag;
+        private final String lastModified;
+
+        private Snapshot(List<String> signatures, String etag, String lastModified) {
+            this.signatures = signatures;
+            this.searchIndex = new OcaSearchIndex(signatures);
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
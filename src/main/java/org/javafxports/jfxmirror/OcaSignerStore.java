@@ -0,0 +1,147 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The GitHub users that are known to have signed the OCA, along with the name they signed it under.
+ * <p>
+ * The signers are kept in memory, keyed by GitHub username, and every new signer is appended to
+ * "oca.txt" (which is an {@link AppendOnlyLog} of {@code {username}@@@{ocaName}} records) so that they
+ * survive a restart. If a user is recorded more than once the last record wins, and the log is
+ * periodically compacted so that it only contains the latest record of each user.
+ */
+class OcaSignerStore implements AutoCloseable {
+
+    static final String OCA_SEP = "@@@";
+    private static final long COMPACTION_INTERVAL_HOURS = 1;
+    private static final int UPDATE_LOCK_STRIPES = 64;
+
+    private final Map<String, String> signers = new ConcurrentHashMap<>();
+    private final AtomicInteger recordCount = new AtomicInteger();
+    // Orders the writers of the same user without holding a map bin while appending (which waits for an fsync).
+    private final Object[] updateLocks = new Object[UPDATE_LOCK_STRIPES];
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final AppendOnlyLog log;
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ocaSignerCompactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(OcaSignerStore.class);
+
+    private OcaSignerStore(AppendOnlyLog log) {
+        this.log = log;
+        Arrays.setAll(updateLocks, ignored -> new Object());
+    }
+
+    /**
+     * Opens the signer store backed by the given {@code ocaFile}, loading all of the signers it contains.
+     * Malformed records are skipped (and logged).
+     */
+    static OcaSignerStore open(Path ocaFile) throws IOException {
+        Objects.requireNonNull(ocaFile, "ocaFile must not be null");
+
+        OcaSignerStore store = new OcaSignerStore(new AppendOnlyLog(ocaFile));
+        for (String record : store.log.readRecords()) {
+            store.recordCount.incrementAndGet();
+            String[] gitHubUsernameOcaName = record.split(OCA_SEP);
+            if (gitHubUsernameOcaName.length != 2) {
+                logger.warn("\u2718 Skipping malformed OCA signer record (expecting separator \"" + OCA_SEP +
+                        "\"): " + record);
+                continue;
+            }
+            store.signers.put(gitHubUsernameOcaName[0], gitHubUsernameOcaName[1]);
+        }
+        store.compactor.scheduleWithFixedDelay(() -> {
+            try {
+                store.compact();
+            } catch (IOException e) {
+                logger.error("\u2718 Could not compact OCA signer file: " + ocaFile);
+                logger.debug("exception: ", e);
+            }
+        }, COMPACTION_INTERVAL_HOURS, COMPACTION_INTERVAL_HOURS, TimeUnit.HOURS);
+        return store;
+    }
+
+    /**
+     * Returns the name that the GitHub user with the given {@code username} signed the OCA under, or
+     * {@code null} if they are not known to have signed it.
+     */
+    String getOcaName(String username) {
+        Objects.requireNonNull(username, "username must not be null");
+        return signers.get(username);
+    }
+
+    /**
+     * Records that the GitHub user with the given {@code username} signed the OCA under the given
+     * {@code ocaName}, returning once the record is durable.
+     */
+    void addSigner(String username, String ocaName) throws IOException {
+        Objects.requireNonNull(username, "username must not be null");
+        Objects.requireNonNull(ocaName, "ocaName must not be null");
+
+        String record = username + OCA_SEP + ocaName;
+        if (record.split(OCA_SEP).length != 2 || record.indexOf('\n') != -1 || record.indexOf('\r') != -1) {
+            throw new IOException("can not record OCA signer: " + record);
+        }
+        // Writers of different users append concurrently (and so share an fsync), but writers of the same
+        // user are ordered so that the map agrees with the log after a restart.
+        compactionLock.readLock().lock();
+        try {
+            synchronized (updateLocks[(username.hashCode() & Integer.MAX_VALUE) % UPDATE_LOCK_STRIPES]) {
+                log.append(record);
+                signers.put(username, ocaName);
+            }
+            recordCount.incrementAndGet();
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        return signers.size();
+    }
+
+    /**
+     * Rewrites the log so that it only contains the latest record of each signer (if it contains any
+     * superseded or malformed records).
+     */
+    void compact() throws IOException {
+        compactionLock.writeLock().lock();
+        try {
+            if (recordCount.get() == signers.size()) {
+                return;
+            }
+            List<String> records = new ArrayList<>(signers.size());
+            signers.forEach((username, ocaName) -> records.add(username + OCA_SEP + ocaName));
+            log.rewrite(records);
+            logger.debug("Compacted OCA signer file from " + recordCount.get() + " to " + records.size() +
+                    " records.");
+            recordCount.set(records.size());
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        log.close();
+    }
+}
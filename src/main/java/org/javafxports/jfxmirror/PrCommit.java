@@ -0,0 +1,126 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A commit of a pull request, with only the fields jfxmirror_bot uses.
+ */
+class PrCommit {
+
+    private static final int PER_PAGE = 100;
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"next\"");
+
+    private final String sha;
+    private final String message;
+
+    PrCommit(String sha, String message) {
+        Objects.requireNonNull(sha, "sha must not be null");
+        Objects.requireNonNull(message, "message must not be null");
+        this.sha = sha;
+        this.message = message;
+    }
+
+    String getSha() {
+        return sha;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    /**
+     * Fetches all of the commits of the given {@code pullRequest}, oldest first, following the "next" links
+     * of GitHub's paginated commits endpoint.
+     */
+    static List<PrCommit> fetchAll(GitHubClient gitHubClient, PullRequest pullRequest) throws IOException {
+        Objects.requireNonNull(gitHubClient, "gitHubClient must not be null");
+        Objects.requireNonNull(pullRequest, "pullRequest must not be null");
+
+        int expectedCommits = pullRequest.getCommitCount();
+        List<PrCommit> commits = new ArrayList<>(Math.max(expectedCommits, 0));
+        String pageUrl = pullRequest.getCommitsUrl() + "?per_page=" + PER_PAGE;
+        while (pageUrl != null) {
+            GitHubResponse page = gitHubClient.get(pageUrl);
+            if (!page.isSuccessful()) {
+                throw new IOException(page.getStatus() + " from github, trying to fetch commits of PR: " +
+                        page.getBody());
+            }
+            commits.addAll(parsePage(page.getBody()));
+            pageUrl = nextPageUrl(page.getHeader("Link"));
+        }
+        // GitHub lists at most 250 commits of a pull request, so a larger PR can not be checked correctly.
+        if (expectedCommits != -1 && commits.size() != expectedCommits) {
+            throw new IOException("PR has " + expectedCommits + " commits but GitHub only listed " +
+                    commits.size());
+        }
+        return Collections.unmodifiableList(commits);
+    }
+
+    /**
+     * Extracts the SHA and message of each commit in a page of GitHub's commits endpoint (a JSON array of
+     * commit objects), skipping everything else without building a tree.
+     */
+    static List<PrCommit> parsePage(String json) throws IOException {
+        List<PrCommit> commits = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("expected array of commits");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String sha = null;
+                String message = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("sha".equals(field) && value == JsonToken.VALUE_STRING) {
+                        sha = parser.getText();
+                    } else if ("commit".equals(field) && value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String commitField = parser.getCurrentName();
+                            JsonToken commitValue = parser.nextToken();
+                            if ("message".equals(commitField) && commitValue == JsonToken.VALUE_STRING) {
+                                message = parser.getText();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (sha == null || message == null) {
+                    throw new IOException("commit is missing sha or message");
+                }
+                commits.add(new PrCommit(sha, message));
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("expected end of array of commits but was: " + parser.currentToken());
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Returns the URL of the next page from the given "Link" header (e.g.
+     * {@code <https://api.github.com/...?page=2>; rel="next", <https://api.github.com/...?page=3>; rel="last"}),
+     * or {@code null} if this is the last page.
+     */
+    static String nextPageUrl(String linkHeader) {
+        if (linkHeader == null) {
+            return null;
+        }
+        Matcher nextLink = NEXT_LINK.matcher(linkHeader);
+        return nextLink.find() ? nextLink.group(1) : null;
+    }
+}
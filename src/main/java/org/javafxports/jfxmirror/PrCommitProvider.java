@@ -0,0 +1,92 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the commits of a pull request. Once the head of the pull request has been fetched into the
+ * local git mirror, all of its commits are there, so they are read with a {@link RevWalk} from the head
+ * of the pull request back to its merge base with the base of the pull request. They are not fetched from
+ * the GitHub API instead when the head is missing: the patch is squashed onto the same merge base, which
+ * needs the commits in the local mirror anyway.
+ */
+class PrCommitProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrCommitProvider.class);
+
+    private PrCommitProvider() {}
+
+    /**
+     * Returns the commits of the given {@code pullRequest}, oldest first.
+     */
+    static List<PrCommit> commitsOf(Repository mirrorRepo, PullRequest pullRequest) throws IOException {
+        Objects.requireNonNull(mirrorRepo, "mirrorRepo must not be null");
+        Objects.requireNonNull(pullRequest, "pullRequest must not be null");
+
+        List<PrCommit> commits = readLocal(mirrorRepo, pullRequest.getHeadSha(), pullRequest.getBaseSha());
+        logger.debug("Read {} commits of PR from local mirror.", commits.size());
+        return commits;
+    }
+
+    /**
+     * Returns the commits that are reachable from {@code headSha} but not from {@code baseSha} (i.e. the
+     * commits between their merge base and {@code headSha}), oldest first.
+     */
+    static List<PrCommit> readLocal(Repository repo, String headSha, String baseSha) throws IOException {
+        Objects.requireNonNull(repo, "repo must not be null");
+        Objects.requireNonNull(headSha, "headSha must not be null");
+        Objects.requireNonNull(baseSha, "baseSha must not be null");
+
+        try (RevWalk revWalk = new RevWalk(repo)) {
+            RevCommit head = revWalk.parseCommit(ObjectId.fromString(headSha));
+            RevCommit base = revWalk.parseCommit(ObjectId.fromString(baseSha));
+            revWalk.sort(RevSort.TOPO);
+            revWalk.sort(RevSort.REVERSE, true);
+            revWalk.markStart(head);
+            revWalk.markUninteresting(base);
+            List<PrCommit> commits = new ArrayList<>();
+            for (RevCommit commit : revWalk) {
+                commits.add(new PrCommit(commit.getName(), commit.getFullMessage()));
+            }
+            return Collections.unmodifiableList(commits);
+        } catch (MissingObjectException | IllegalArgumentException e) {
+            throw new IOException("commits of PR are not in local repository", e);
+        }
+    }
+
+    /**
+     * Returns the merge base of the given {@code headSha} and {@code baseSha} (the commit a pull request
+     * with that head and base branched off of).
+     */
+    static ObjectId mergeBase(Repository repo, String headSha, String baseSha) throws IOException {
+        Objects.requireNonNull(repo, "repo must not be null");
+        Objects.requireNonNull(headSha, "headSha must not be null");
+        Objects.requireNonNull(baseSha, "baseSha must not be null");
+
+        try (RevWalk revWalk = new RevWalk(repo)) {
+            revWalk.setRevFilter(RevFilter.MERGE_BASE);
+            revWalk.markStart(revWalk.parseCommit(ObjectId.fromString(headSha)));
+            revWalk.markStart(revWalk.parseCommit(ObjectId.fromString(baseSha)));
+            RevCommit mergeBase = revWalk.next();
+            if (mergeBase == null) {
+                throw new IOException("no merge base of " + headSha + " and " + baseSha);
+            }
+            return mergeBase.copy();
+        } catch (MissingObjectException | IllegalArgumentException e) {
+            throw new IOException("commits of PR are not in local repository", e);
+        }
+    }
+}
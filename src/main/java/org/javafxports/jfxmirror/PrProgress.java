@@ -0,0 +1,321 @@
+package org.javafxports.jfxmirror;
+
+import static java.util.Locale.US;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Tracks the runs (checks of a pull request) that are in flight and streams their progress, stage by
+ * stage, to subscribers as Server-Sent Events.
+ * <p>
+ * A subscriber to a PR first gets the events of its in-flight run (if any) and then every event of its
+ * runs as they happen. Runs are few and have a handful of stages, so tracking them happens while holding
+ * the lock of this tracker, but writing to a subscriber (a blocking socket write) does not: each subscriber
+ * has a bounded queue of events, drained in order by a writer of its own, so that a slow client never
+ * stalls a check or the other subscribers. A subscriber whose queue overflows is dropped.
+ */
+class PrProgress {
+
+    static final int MAX_SUBSCRIBERS = 256;
+    private static final int MAX_QUEUED_EVENTS = 128;
+    private static final long HEARTBEAT_SECONDS = 30;
+    private static final String HEARTBEAT = ": heartbeat\n\n";
+
+    // Guarded by "this".
+    private final Map<String, Run> inFlight = new HashMap<>();
+    private final List<Connection> subscribers = new ArrayList<>();
+    private long nextEventId;
+    // Each connection has at most one writer at a time, so there are at most MAX_SUBSCRIBERS threads.
+    private final ExecutorService writers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "prProgressWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "prProgressHeartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(PrProgress.class);
+
+    /**
+     * Receives the events (already formatted as Server-Sent Events) of the PRs it subscribed to.
+     */
+    interface Subscriber extends Closeable {
+        void send(String event) throws IOException;
+    }
+
+    /**
+     * Sends a comment to every subscriber periodically, so that the connections of subscribers that went
+     * away are noticed (and proxies do not time out idle streams).
+     */
+    void start() {
+        heartbeat.scheduleWithFixedDelay(() -> {
+            synchronized (this) {
+                sendToAll(null, HEARTBEAT);
+            }
+        }, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Subscribes to the events of PR #{@code prNum}, or of all PRs if {@code prNum} is {@code null}.
+     *
+     * @return {@code false} if there are too many subscribers already
+     */
+    synchronized boolean subscribe(String prNum, Subscriber subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber must not be null");
+        if (subscribers.size() >= MAX_SUBSCRIBERS) {
+            return false;
+        }
+        Connection connection = new Connection(subscriber, prNum == null ? "" : prNum);
+        for (Run run : inFlight.values()) {
+            if (prNum == null || prNum.equals(run.prNum)) {
+                for (String event : run.events) {
+                    if (!connection.offer(event)) {
+                        connection.close();
+                        return true;
+                    }
+                }
+            }
+        }
+        subscribers.add(connection);
+        return true;
+    }
+
+    /**
+     * Starts tracking a run of the given {@code sha} of PR #{@code prNum} (replacing a run of the PR that is
+     * still in flight).
+     */
+    synchronized Run start(String prNum, String sha) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(sha, "sha must not be null");
+        Run run = new Run(prNum, sha);
+        inFlight.put(prNum, run);
+        run.publish("run", event -> event.put("state", "started"));
+        return run;
+    }
+
+    /**
+     * Reports the outcome of the in-flight run of PR #{@code prNum}, if it has one (for runs that ended
+     * unexpectedly).
+     */
+    synchronized void finish(String prNum, PrStatus status) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(status, "status must not be null");
+        Run run = inFlight.get(prNum);
+        if (run != null) {
+            run.finish(status);
+        }
+    }
+
+    /**
+     * Returns the in-flight run of PR #{@code prNum} as JSON, or {@code null} if it has none.
+     */
+    synchronized ObjectNode inFlight(String prNum) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Run run = inFlight.get(prNum);
+        if (run == null) {
+            return null;
+        }
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("sha", run.sha);
+        json.put("started", run.startedMillis);
+        ArrayNode stages = json.putArray("stages");
+        run.stages.forEach((stage, timing) -> {
+            ObjectNode stageJson = stages.addObject().put("name", stage);
+            if (timing != null) {
+                stageJson.put("millis", timing.toMillis());
+            }
+        });
+        return json;
+    }
+
+    /**
+     * Closes the streams of all subscribers.
+     */
+    synchronized void stop() {
+        heartbeat.shutdownNow();
+        subscribers.forEach(Connection::close);
+        subscribers.clear();
+        writers.shutdown();
+    }
+
+    synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void sendToAll(String prNum, String event) {
+        for (Iterator<Connection> iterator = subscribers.iterator(); iterator.hasNext(); ) {
+            Connection connection = iterator.next();
+            if (prNum != null && !connection.prNum.isEmpty() && !connection.prNum.equals(prNum)) {
+                continue;
+            }
+            if (!connection.offer(event)) {
+                logger.debug("Dropping progress subscriber that fell behind.");
+                iterator.remove();
+                connection.close();
+            }
+        }
+    }
+
+    private synchronized void disconnect(Connection connection) {
+        subscribers.remove(connection);
+    }
+
+    private static void closeQuietly(Subscriber subscriber) {
+        try {
+            subscriber.close();
+        } catch (IOException e) {
+            logger.debug("exception: ", e);
+        }
+    }
+
+    /**
+     * A subscriber, with the queue of events that its writer has yet to send to it.
+     */
+    private class Connection {
+        private final Subscriber subscriber;
+        // The PR subscribed to, or "" for all PRs.
+        private final String prNum;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(MAX_QUEUED_EVENTS);
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Connection(Subscriber subscriber, String prNum) {
+            this.subscriber = subscriber;
+            this.prNum = prNum;
+        }
+
+        /**
+         * Queues the given {@code event} to be sent, returning {@code false} if the queue is full.
+         */
+        private boolean offer(String event) {
+            if (!queue.offer(event)) {
+                return false;
+            }
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::write);
+            }
+            return true;
+        }
+
+        private void write() {
+            do {
+                String event;
+                while (!closed && (event = queue.poll()) != null) {
+                    try {
+                        subscriber.send(event);
+                    } catch (IOException e) {
+                        // The client went away.
+                        disconnect(this);
+                        closed = true;
+                        closeQuietly(subscriber);
+                        return;
+                    }
+                }
+                writing.set(false);
+                // An event queued after the queue was found empty, but before writing was reset, is written
+                // by this writer (unless a new one was started for it).
+            } while (!closed && !queue.isEmpty() && writing.compareAndSet(false, true));
+        }
+
+        /**
+         * Closes the stream of this subscriber (on its writer, since that may block).
+         */
+        private void close() {
+            closed = true;
+            writers.execute(() -> closeQuietly(subscriber));
+        }
+    }
+
+    /**
+     * A run that is in flight. Its stages are reported by {@link PullRequestContext#stage(String)}.
+     */
+    class Run {
+        private final String prNum;
+        private final String sha;
+        private final long startedMillis = System.currentTimeMillis();
+        // Guarded by the enclosing PrProgress, stage -> timing (null while the stage is running).
+        private final Map<String, Duration> stages = new LinkedHashMap<>();
+        private final List<String> events = new ArrayList<>();
+        private boolean finished;
+
+        private Run(String prNum, String sha) {
+            this.prNum = prNum;
+            this.sha = sha;
+        }
+
+        void stageStarted(String stage) {
+            synchronized (PrProgress.this) {
+                stages.put(stage, null);
+                publish("stage", event -> event.put("stage", stage).put("state", "started"));
+            }
+        }
+
+        void stageFinished(String stage, Duration timing) {
+            synchronized (PrProgress.this) {
+                stages.put(stage, timing);
+                publish("stage", event -> event.put("stage", stage).put("state", "finished")
+                        .put("millis", timing.toMillis()));
+            }
+        }
+
+        /**
+         * Reports the outcome of this run, which is then no longer in flight. Only the first call has an
+         * effect.
+         */
+        void finish(PrStatus status) {
+            synchronized (PrProgress.this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                publish("run", event -> event.put("state", "finished")
+                        .put("status", status.name().toLowerCase(US)));
+                inFlight.remove(prNum, this);
+            }
+        }
+
+        private void publish(String type, Consumer<ObjectNode> fields) {
+            if (finished && !type.equals("run")) {
+                return;
+            }
+            ObjectNode json = JsonNodeFactory.instance.objectNode();
+            json.put("pr", prNum);
+            json.put("sha", sha);
+            fields.accept(json);
+            json.put("time", System.currentTimeMillis());
+            String event = "id: " + nextEventId++ + "\nevent: " + type + "\ndata: " + json + "\n\n";
+            events.add(event);
+            sendToAll(prNum, event);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.US;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The result of checking one SHA of a pull request, persisted as "result.json" in its directory
+ * (~/jfxmirror/pr/{num}/{sha}) so that its status page can be rendered from it whenever it is requested
+ * (see {@link StatusPage}). Instances are immutable.
+ */
+class PrResult {
+
+    static final String FILE_NAME = "result.json";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String prNum;
+    private final String sha;
+    private final PrStatus status;
+    private final OcaStatus ocaStatus;
+    private final Set<String> jbsBugsReferenced;
+    private final Set<String> jbsBugsNotFound;
+    private final Set<String> jbsBugsUnverified;
+    private final List<String> rejects;
+    private final Map<String, Duration> stageTimings;
+    private final long createdMillis;
+
+    PrResult(String prNum, String sha, PrStatus status, OcaStatus ocaStatus, Set<String> jbsBugsReferenced,
+             Set<String> jbsBugsNotFound, Set<String> jbsBugsUnverified, List<String> rejects,
+             Map<String, Duration> stageTimings, long createdMillis) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(sha, "sha must not be null");
+        Objects.requireNonNull(status, "status must not be null");
+        Objects.requireNonNull(jbsBugsReferenced, "jbsBugsReferenced must not be null");
+        Objects.requireNonNull(jbsBugsNotFound, "jbsBugsNotFound must not be null");
+        Objects.requireNonNull(jbsBugsUnverified, "jbsBugsUnverified must not be null");
+        Objects.requireNonNull(rejects, "rejects must not be null");
+        Objects.requireNonNull(stageTimings, "stageTimings must not be null");
+        this.prNum = prNum;
+        this.sha = sha;
+        this.status = status;
+        this.ocaStatus = ocaStatus;
+        this.jbsBugsReferenced = Collections.unmodifiableSet(new LinkedHashSet<>(jbsBugsReferenced));
+        this.jbsBugsNotFound = Collections.unmodifiableSet(new LinkedHashSet<>(jbsBugsNotFound));
+        this.jbsBugsUnverified = Collections.unmodifiableSet(new LinkedHashSet<>(jbsBugsUnverified));
+        this.rejects = Collections.unmodifiableList(new ArrayList<>(rejects));
+        this.stageTimings = Collections.unmodifiableMap(new LinkedHashMap<>(stageTimings));
+        this.createdMillis = createdMillis;
+    }
+
+    /**
+     * Returns the result of the run described by the given {@code pullRequestContext}, with the paths of
+     * its rejects relative to the given {@code shaDir}.
+     */
+    static PrResult of(PullRequestContext pullRequestContext, Path shaDir) {
+        Objects.requireNonNull(pullRequestContext, "pullRequestContext must not be null");
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        List<String> rejects = new ArrayList<>();
+        for (Path reject : pullRequestContext.getRejects()) {
+            rejects.add(shaDir.relativize(reject).toString().replace('\\', '/'));
+        }
+        return new PrResult(pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead(),
+                pullRequestContext.getPrStatus(), pullRequestContext.getOcaStatus(),
+                pullRequestContext.getJbsBugsReferenced(), pullRequestContext.getJbsBugsReferencedButNotFound(),
+                pullRequestContext.getJbsBugsUnverified(), rejects, pullRequestContext.getStageTimings(),
+                System.currentTimeMillis());
+    }
+
+    String getPrNum() {
+        return prNum;
+    }
+
+    String getSha() {
+        return sha;
+    }
+
+    PrStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the OCA status of the user who opened the pull request, or {@code null} if it was not
+     * checked.
+     */
+    OcaStatus getOcaStatus() {
+        return ocaStatus;
+    }
+
+    Set<String> getJbsBugsReferenced() {
+        return jbsBugsReferenced;
+    }
+
+    Set<String> getJbsBugsNotFound() {
+        return jbsBugsNotFound;
+    }
+
+    Set<String> getJbsBugsUnverified() {
+        return jbsBugsUnverified;
+    }
+
+    /**
+     * Returns the paths of the patch rejects, relative to the directory of the SHA.
+     */
+    List<String> getRejects() {
+        return rejects;
+    }
+
+    Map<String, Duration> getStageTimings() {
+        return stageTimings;
+    }
+
+    long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Writes this result to "result.json" in the given {@code shaDir} (atomically, replacing any
+     * previous result).
+     */
+    void write(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        Files.createDirectories(shaDir);
+        Path tempFile = shaDir.resolve(FILE_NAME + ".tmp");
+        Files.write(tempFile, toJson().getBytes(UTF_8));
+        Files.move(tempFile, shaDir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the result from "result.json" in the given {@code shaDir}.
+     */
+    static PrResult read(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        return fromJson(new String(Files.readAllBytes(shaDir.resolve(FILE_NAME)), UTF_8));
+    }
+
+    String toJson() {
+        return toJsonNode().toString();
+    }
+
+    ObjectNode toJsonNode() {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("pr", prNum);
+        json.put("sha", sha);
+        json.put("status", status.name().toLowerCase(US));
+        if (ocaStatus != null) {
+            json.put("ocaStatus", ocaStatus.name().toLowerCase(US));
+        }
+        ObjectNode jbs = json.putObject("jbs");
+        addAll(jbs.putArray("referenced"), jbsBugsReferenced);
+        addAll(jbs.putArray("notFound"), jbsBugsNotFound);
+        addAll(jbs.putArray("unverified"), jbsBugsUnverified);
+        addAll(json.putArray("rejects"), rejects);
+        ObjectNode timings = json.putObject("stageTimings");
+        stageTimings.forEach((stage, timing) -> timings.put(stage, timing.toMillis()));
+        json.put("created", createdMillis);
+        return json;
+    }
+
+    static PrResult fromJson(String jsonString) throws IOException {
+        JsonNode json = objectMapper.readTree(jsonString);
+        if (json == null || !json.hasNonNull("pr") || !json.hasNonNull("sha") || !json.hasNonNull("status")) {
+            throw new IOException("PR result is missing PR number, SHA or status: " + jsonString);
+        }
+        try {
+            Map<String, Duration> stageTimings = new LinkedHashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> timings = json.path("stageTimings").fields();
+                 timings.hasNext(); ) {
+                Map.Entry<String, JsonNode> timing = timings.next();
+                stageTimings.put(timing.getKey(), Duration.ofMillis(timing.getValue().asLong()));
+            }
+            JsonNode jbs = json.path("jbs");
+            return new PrResult(json.get("pr").asText(), json.get("sha").asText(),
+                    PrStatus.valueOf(json.get("status").asText().toUpperCase(US)),
+                    json.hasNonNull("ocaStatus") ?
+                            OcaStatus.valueOf(json.get("ocaStatus").asText().toUpperCase(US)) : null,
+                    new LinkedHashSet<>(textsOf(jbs.path("referenced"))),
+                    new LinkedHashSet<>(textsOf(jbs.path("notFound"))),
+                    new LinkedHashSet<>(textsOf(jbs.path("unverified"))),
+                    textsOf(json.path("rejects")), stageTimings, json.path("created").asLong());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("PR result is malformed: " + jsonString, e);
+        }
+    }
+
+    private static void addAll(ArrayNode array, Iterable<String> values) {
+        values.forEach(array::add);
+    }
+
+    private static List<String> textsOf(JsonNode array) {
+        List<String> texts = new ArrayList<>();
+        array.forEach(element -> texts.add(element.asText()));
+        return texts;
+    }
+}
@@ -0,0 +1,146 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of the {@link PrResult} of every checked SHA, so that the JSON API does not have to
+ * read "result.json" files (or scrape status pages). Each entry keeps its JSON representation and ETag,
+ * so serving an unchanged result is just writing bytes.
+ */
+class PrResultIndex {
+
+    // prNum -> sha -> entry
+    private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(PrResultIndex.class);
+
+    /**
+     * Adds the result of every SHA under the given {@code prDir} (~/jfxmirror/pr/{num}/{sha}/result.json).
+     */
+    void load(Path prDir) throws IOException {
+        Objects.requireNonNull(prDir, "prDir must not be null");
+        if (!Files.isDirectory(prDir)) {
+            return;
+        }
+        int loaded = 0;
+        try (DirectoryStream<Path> prNumDirs = Files.newDirectoryStream(prDir, Files::isDirectory)) {
+            for (Path prNumDir : prNumDirs) {
+                try (DirectoryStream<Path> shaDirs = Files.newDirectoryStream(prNumDir, Files::isDirectory)) {
+                    for (Path shaDir : shaDirs) {
+                        if (!Files.exists(shaDir.resolve(PrResult.FILE_NAME))) {
+                            continue;
+                        }
+                        try {
+                            put(PrResult.read(shaDir));
+                            loaded++;
+                        } catch (IOException e) {
+                            logger.error("\u2718 Could not read PR result: " + shaDir);
+                            logger.debug("exception: ", e);
+                        }
+                    }
+                }
+            }
+        }
+        logger.debug("Loaded " + loaded + " PR result(s).");
+    }
+
+    void put(PrResult result) {
+        Objects.requireNonNull(result, "result must not be null");
+        entries.computeIfAbsent(result.getPrNum(), ignored -> new ConcurrentHashMap<>())
+                .put(result.getSha(), new Entry(result));
+    }
+
+    /**
+     * Returns the result of the given {@code sha} of PR #{@code prNum}, or {@code null} if it has none.
+     */
+    Entry get(String prNum, String sha) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(sha, "sha must not be null");
+        Map<String, Entry> shas = entries.get(prNum);
+        return shas == null ? null : shas.get(sha);
+    }
+
+    /**
+     * Returns the results of every checked SHA of PR #{@code prNum}, most recent first.
+     */
+    List<PrResult> resultsOf(String prNum) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        List<PrResult> results = new ArrayList<>();
+        Map<String, Entry> shas = entries.get(prNum);
+        if (shas != null) {
+            shas.values().forEach(entry -> results.add(entry.result));
+        }
+        results.sort(Comparator.comparingLong(PrResult::getCreatedMillis).reversed());
+        return results;
+    }
+
+    /**
+     * Removes the result of the given {@code sha} of PR #{@code prNum} (or of all of its SHAs if
+     * {@code sha} is {@code null}) when its artifacts are deleted.
+     */
+    void remove(String prNum, String sha) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        if (sha == null) {
+            entries.remove(prNum);
+            return;
+        }
+        entries.computeIfPresent(prNum, (ignored, shas) -> {
+            shas.remove(sha);
+            return shas.isEmpty() ? null : shas;
+        });
+    }
+
+    int size() {
+        return entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    static class Entry {
+        private final PrResult result;
+        private final byte[] json;
+        private final String etag;
+
+        private Entry(PrResult result) {
+            this.result = result;
+            this.json = result.toJson().getBytes(UTF_8);
+            this.etag = etagOf(json);
+        }
+
+        PrResult getResult() {
+            return result;
+        }
+
+        /**
+         * Returns the JSON representation of the result (the caller must not modify it).
+         */
+        byte[] getJson() {
+            return json;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+    }
+
+    /**
+     * Returns a strong ETag for the given representation.
+     */
+    static String etagOf(byte[] representation) {
+        CRC32 crc = new CRC32();
+        crc.update(representation);
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(representation.length) + "\"";
+    }
+}
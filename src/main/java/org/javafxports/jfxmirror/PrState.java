@@ -0,0 +1,161 @@
+package org.javafxports.jfxmirror;
+
+import static java.util.Locale.US;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * What jfxmirror_bot knows about a pull request: the OCA status of the user who opened it, the
+ * outcome (and stage timings) of the last time it was checked and when it was closed. Instances are
+ * immutable, updates return a new instance.
+ */
+class PrState {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String prNum;
+    private final OcaStatus ocaStatus;
+    private final String lastSha;
+    private final PrStatus lastResult;
+    private final Map<String, Duration> stageTimings;
+    private final long closedMillis;
+    private final long updatedMillis;
+
+    private PrState(String prNum, OcaStatus ocaStatus, String lastSha, PrStatus lastResult,
+                    Map<String, Duration> stageTimings, long closedMillis, long updatedMillis) {
+        this.prNum = prNum;
+        this.ocaStatus = ocaStatus;
+        this.lastSha = lastSha;
+        this.lastResult = lastResult;
+        this.stageTimings = stageTimings;
+        this.closedMillis = closedMillis;
+        this.updatedMillis = updatedMillis;
+    }
+
+    /**
+     * Returns the state of a pull request that has not been seen before.
+     */
+    static PrState empty(String prNum) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        return new PrState(prNum, null, null, null, Collections.emptyMap(), 0, 0);
+    }
+
+    String getPrNum() {
+        return prNum;
+    }
+
+    /**
+     * Returns the OCA status of the user who opened the pull request, or {@code null} if it has not been
+     * checked yet.
+     */
+    OcaStatus getOcaStatus() {
+        return ocaStatus;
+    }
+
+    String getLastSha() {
+        return lastSha;
+    }
+
+    PrStatus getLastResult() {
+        return lastResult;
+    }
+
+    Map<String, Duration> getStageTimings() {
+        return stageTimings;
+    }
+
+    /**
+     * Returns when the pull request was closed (in epoch millis), or 0 if it is open.
+     */
+    long getClosedMillis() {
+        return closedMillis;
+    }
+
+    long getUpdatedMillis() {
+        return updatedMillis;
+    }
+
+    PrState withOcaStatus(OcaStatus ocaStatus) {
+        Objects.requireNonNull(ocaStatus, "ocaStatus must not be null");
+        return new PrState(prNum, ocaStatus, lastSha, lastResult, stageTimings, closedMillis,
+                System.currentTimeMillis());
+    }
+
+    PrState withClosed(boolean closed) {
+        long now = System.currentTimeMillis();
+        return new PrState(prNum, ocaStatus, lastSha, lastResult, stageTimings, closed ? now : 0, now);
+    }
+
+    PrState withResult(String sha, PrStatus result, Map<String, Duration> stageTimings) {
+        Objects.requireNonNull(sha, "sha must not be null");
+        Objects.requireNonNull(result, "result must not be null");
+        Objects.requireNonNull(stageTimings, "stageTimings must not be null");
+        return new PrState(prNum, ocaStatus, sha, result,
+                Collections.unmodifiableMap(new LinkedHashMap<>(stageTimings)), closedMillis,
+                System.currentTimeMillis());
+    }
+
+    String toJson() {
+        return toJsonNode().toString();
+    }
+
+    ObjectNode toJsonNode() {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("pr", prNum);
+        if (ocaStatus != null) {
+            json.put("ocaStatus", ocaStatus.name().toLowerCase(US));
+        }
+        if (lastSha != null) {
+            json.put("lastSha", lastSha);
+        }
+        if (lastResult != null) {
+            json.put("lastResult", lastResult.name().toLowerCase(US));
+        }
+        ObjectNode timings = json.putObject("stageTimings");
+        stageTimings.forEach((stage, timing) -> timings.put(stage, timing.toMillis()));
+        if (closedMillis != 0) {
+            json.put("closed", closedMillis);
+        }
+        json.put("updated", updatedMillis);
+        return json;
+    }
+
+    static PrState fromJson(String jsonString) throws IOException {
+        JsonNode json = objectMapper.readTree(jsonString);
+        if (json == null || !json.hasNonNull("pr")) {
+            throw new IOException("PR state is missing PR number: " + jsonString);
+        }
+        try {
+            Map<String, Duration> stageTimings = new LinkedHashMap<>();
+            if (json.has("stageTimings")) {
+                for (Iterator<Map.Entry<String, JsonNode>> timings = json.get("stageTimings").fields();
+                     timings.hasNext(); ) {
+                    Map.Entry<String, JsonNode> timing = timings.next();
+                    stageTimings.put(timing.getKey(), Duration.ofMillis(timing.getValue().asLong()));
+                }
+            }
+            return new PrState(json.get("pr").asText(),
+                    json.hasNonNull("ocaStatus") ?
+                            OcaStatus.valueOf(json.get("ocaStatus").asText().toUpperCase(US)) : null,
+                    json.hasNonNull("lastSha") ? json.get("lastSha").asText() : null,
+                    json.hasNonNull("lastResult") ?
+                            PrStatus.valueOf(json.get("lastResult").asText().toUpperCase(US)) : null,
+                    Collections.unmodifiableMap(stageTimings),
+                    json.path("closed").asLong(),
+                    json.path("updated").asLong());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("PR state is malformed: " + jsonString, e);
+        }
+    }
+}
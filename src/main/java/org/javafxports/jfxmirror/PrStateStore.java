@@ -0,0 +1,216 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.US;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link PrState} of every pull request jfxmirror_bot has seen, keyed by PR number.
+ * <p>
+ * The states are kept in memory and every update is appended to "pr-state.log" (an {@link AppendOnlyLog})
+ * as a {@code {crc32} {json}} record before it becomes visible, so the latest state of each PR survives a
+ * crash. Records that fail their checksum are skipped when the log is loaded, and the log is periodically
+ * compacted so that it only contains the latest state of each PR.
+ */
+class PrStateStore implements AutoCloseable {
+
+    private static final String OCA_MARKER_FILE = ".oca";
+    private static final long COMPACTION_INTERVAL_HOURS = 1;
+    private static final int UPDATE_LOCK_STRIPES = 64;
+
+    private final Map<String, PrState> states = new ConcurrentHashMap<>();
+    private final AtomicInteger recordCount = new AtomicInteger();
+    // Orders the writers of the same PR without holding a map bin while appending (which waits for an fsync).
+    private final Object[] updateLocks = new Object[UPDATE_LOCK_STRIPES];
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final AppendOnlyLog log;
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "prStateCompactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(PrStateStore.class);
+
+    private PrStateStore(AppendOnlyLog log) {
+        this.log = log;
+        Arrays.setAll(updateLocks, ignored -> new Object());
+    }
+
+    /**
+     * Opens the state store backed by the given {@code logFile}, loading the latest state of every PR it
+     * contains, and migrates the ".oca" marker files of PRs in the given {@code prDir} (which was how OCA
+     * statuses were previously recorded) into it.
+     */
+    static PrStateStore open(Path logFile, Path prDir) throws IOException {
+        Objects.requireNonNull(logFile, "logFile must not be null");
+        Objects.requireNonNull(prDir, "prDir must not be null");
+
+        PrStateStore store = new PrStateStore(new AppendOnlyLog(logFile));
+        for (String record : store.log.readRecords()) {
+            store.recordCount.incrementAndGet();
+            try {
+                PrState state = decode(record);
+                store.states.put(state.getPrNum(), state);
+            } catch (IOException e) {
+                logger.warn("\u2718 Skipping corrupt PR state record: " + record);
+                logger.debug("exception: ", e);
+            }
+        }
+        store.migrateOcaMarkers(prDir);
+        store.compactor.scheduleWithFixedDelay(() -> {
+            try {
+                store.compact();
+            } catch (IOException e) {
+                logger.error("\u2718 Could not compact PR state file: " + logFile);
+                logger.debug("exception: ", e);
+            }
+        }, COMPACTION_INTERVAL_HOURS, COMPACTION_INTERVAL_HOURS, TimeUnit.HOURS);
+        return store;
+    }
+
+    /**
+     * Returns the state of the PR with the given {@code prNum} (which is {@link PrState#empty(String)} if
+     * the PR has not been seen before).
+     */
+    PrState get(String prNum) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        PrState state = states.get(prNum);
+        return state == null ? PrState.empty(prNum) : state;
+    }
+
+    /**
+     * Returns the current state of every PR.
+     */
+    Collection<PrState> all() {
+        return Collections.unmodifiableCollection(new ArrayList<>(states.values()));
+    }
+
+    /**
+     * Updates the state of the PR with the given {@code prNum}, returning the updated state once it is
+     * durable. Updates of the same PR are applied in order.
+     */
+    PrState update(String prNum, UnaryOperator<PrState> updater) throws IOException {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(updater, "updater must not be null");
+
+        compactionLock.readLock().lock();
+        try {
+            PrState updated;
+            synchronized (updateLocks[(prNum.hashCode() & Integer.MAX_VALUE) % UPDATE_LOCK_STRIPES]) {
+                updated = updater.apply(get(prNum));
+                log.append(encode(updated));
+                states.put(prNum, updated);
+            }
+            recordCount.incrementAndGet();
+            return updated;
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log so that it only contains the latest state of each PR (if it contains any superseded
+     * or corrupt records).
+     */
+    void compact() throws IOException {
+        compactionLock.writeLock().lock();
+        try {
+            if (recordCount.get() == states.size()) {
+                return;
+            }
+            List<String> records = new ArrayList<>(states.size());
+            states.values().forEach(state -> records.add(encode(state)));
+            log.rewrite(records);
+            logger.debug("Compacted PR state file from " + recordCount.get() + " to " + records.size() +
+                    " records.");
+            recordCount.set(records.size());
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        log.close();
+    }
+
+    private void migrateOcaMarkers(Path prDir) throws IOException {
+        if (!Files.isDirectory(prDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> prDirs = Files.newDirectoryStream(prDir, Files::isDirectory)) {
+            for (Path dir : prDirs) {
+                Path ocaMarkerFile = dir.resolve(OCA_MARKER_FILE);
+                if (!Files.exists(ocaMarkerFile)) {
+                    continue;
+                }
+                String prNum = dir.getFileName().toString();
+                String status = new String(Files.readAllBytes(ocaMarkerFile), UTF_8).trim();
+                try {
+                    OcaStatus ocaStatus = OcaStatus.valueOf(status.toUpperCase(US));
+                    if (get(prNum).getOcaStatus() == null) {
+                        update(prNum, state -> state.withOcaStatus(ocaStatus));
+                    }
+                } catch (IllegalArgumentException e) {
+                    logger.warn("\u2718 Ignoring unknown OCA status \"" + status + "\" in: " + ocaMarkerFile);
+                }
+                // The marker is only deleted once its status is durable in the log.
+                Files.delete(ocaMarkerFile);
+                logger.debug("Migrated OCA marker file: " + ocaMarkerFile);
+            }
+        }
+    }
+
+    private static String encode(PrState state) {
+        String json = state.toJson();
+        return String.format("%08x", crc32(json)) + " " + json;
+    }
+
+    private static PrState decode(String record) throws IOException {
+        int separator = record.indexOf(' ');
+        if (separator != 8) {
+            throw new IOException("PR state record is missing checksum");
+        }
+        String json = record.substring(separator + 1);
+        long checksum;
+        try {
+            checksum = Long.parseLong(record.substring(0, separator), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("PR state record has malformed checksum", e);
+        }
+        if (checksum != crc32(json)) {
+            throw new IOException("PR state record checksum mismatch");
+        }
+        return PrState.fromJson(json);
+    }
+
+    private static long crc32(String string) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(string.getBytes(UTF_8));
+        return crc32.getValue();
+    }
+}
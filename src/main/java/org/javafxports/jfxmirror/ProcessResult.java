@@ -0,0 +1,49 @@
+package org.javafxports.jfxmirror;
+
+import java.time.Duration;
+
+/**
+ * The result of running an external process with {@link ProcessRunner}.
+ */
+class ProcessResult {
+
+    private final int exitCode;
+    private final String output;
+    private final String errorOutput;
+    private final boolean truncated;
+    private final Duration wallTime;
+
+    ProcessResult(int exitCode, String output, String errorOutput, boolean truncated, Duration wallTime) {
+        this.exitCode = exitCode;
+        this.output = output;
+        this.errorOutput = errorOutput;
+        this.truncated = truncated;
+        this.wallTime = wallTime;
+    }
+
+    int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Returns the (standard) output of the process, or an empty string if the output was written to a file.
+     */
+    String getOutput() {
+        return output;
+    }
+
+    String getErrorOutput() {
+        return errorOutput;
+    }
+
+    /**
+     * Returns {@code true} if the process wrote more output than was kept.
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    Duration getWallTime() {
+        return wallTime;
+    }
+}
@@ -0,0 +1,250 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Runs the external processes (hg, git, webrev.ksh) that jfxmirror_bot depends on.
+ * <p>
+ * Every invocation is associated with a "tool" name and at most a bounded number of processes of the same
+ * tool run at once (configurable by the "jfxmirror.process.{tool}.max" system property). The output of
+ * each process is pumped asynchronously (so that a process can never block on a full pipe) into a
+ * size-capped buffer or file. The deadline of an invocation covers both waiting for a permit and running
+ * the process - if it passes, the process and all of its descendants are killed. The wall time of each
+ * invocation is recorded in the returned {@link ProcessResult}. Output written to a file only replaces the
+ * previous file once the process has exited, and only if it was not truncated.
+ */
+class ProcessRunner {
+
+    private static final int DEFAULT_MAX_CONCURRENT = 4;
+    private static final long MAX_BUFFERED_OUTPUT = 1024 * 1024;
+    private static final long MAX_FILE_OUTPUT = 64L * 1024 * 1024;
+    private static final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private static final AtomicInteger pumpThreadCount = new AtomicInteger();
+    private static final ExecutorService pumps = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "processPump-" + pumpThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+
+    private ProcessRunner() {}
+
+    /**
+     * Runs the process described by the given {@code processBuilder}, capturing its output in memory.
+     * If {@code processBuilder} redirects the error stream, all output is available from
+     * {@link ProcessResult#getOutput()}.
+     */
+    static ProcessResult run(String tool, ProcessBuilder processBuilder, Duration timeout) throws IOException {
+        return run(tool, processBuilder, timeout, null);
+    }
+
+    /**
+     * Runs the process described by the given {@code processBuilder}, writing its (standard) output to
+     * the given {@code outputFile} (if it is not {@code null}).
+     */
+    static ProcessResult run(String tool, ProcessBuilder processBuilder, Duration timeout, Path outputFile)
+            throws IOException {
+        Objects.requireNonNull(tool, "tool must not be null");
+        Objects.requireNonNull(processBuilder, "processBuilder must not be null");
+        Objects.requireNonNull(timeout, "timeout must not be null");
+
+        try (Trace.Span span = Trace.startSpan(tool, String.join(" ", processBuilder.command()))) {
+            return runProcess(tool, processBuilder, timeout, outputFile);
+        }
+    }
+
+    private static ProcessResult runProcess(String tool, ProcessBuilder processBuilder, Duration timeout,
+                                            Path outputFile) throws IOException {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        Semaphore toolPermits = permits.computeIfAbsent(tool, name -> new Semaphore(
+                Integer.getInteger("jfxmirror.process." + name + ".max", DEFAULT_MAX_CONCURRENT), true));
+        try {
+            if (!toolPermits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("timed out waiting to run " + tool + " (" + timeout.getSeconds() + "s)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to run " + tool);
+        }
+
+        try {
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            processBuilder.redirectError(ProcessBuilder.Redirect.PIPE);
+            String traceId = MDC.get(Trace.MDC_KEY);
+            if (traceId != null) {
+                processBuilder.environment().put(Trace.ENVIRONMENT_VARIABLE, traceId);
+            }
+            Process process = processBuilder.start();
+
+            // The output file may be a link to a blob shared with other SHAs (see ArtifactStore), so it is
+            // written to a temporary file that replaces it once the process has exited.
+            Path tempOutputFile = outputFile == null ? null :
+                    outputFile.resolveSibling(outputFile.getFileName() + ".tmp");
+            try {
+                BoundedOutputStream outputSink = outputFile == null ?
+                        new BoundedOutputStream(null, MAX_BUFFERED_OUTPUT) :
+                        new BoundedOutputStream(Files.newOutputStream(tempOutputFile), MAX_FILE_OUTPUT);
+                BoundedOutputStream errorSink = new BoundedOutputStream(null, MAX_BUFFERED_OUTPUT);
+                Future<?> outputPump = pumps.submit(() -> pump(process.getInputStream(), outputSink));
+                Future<?> errorPump = pumps.submit(() -> pump(process.getErrorStream(), errorSink));
+
+                try {
+                    if (!process.waitFor(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                        killProcessTree(process);
+                        throw new IOException("could not run " + String.join(" ", processBuilder.command()) +
+                                " in " + timeout.getSeconds() + "s");
+                    }
+                } catch (InterruptedException e) {
+                    killProcessTree(process);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while running " + tool);
+                } finally {
+                    try {
+                        awaitPump(outputPump);
+                        awaitPump(errorPump);
+                    } finally {
+                        outputSink.close();
+                    }
+                }
+
+                if (outputFile != null) {
+                    if (outputSink.isTruncated()) {
+                        throw new IOException("output of " + tool + " exceeded " + MAX_FILE_OUTPUT + " bytes: " +
+                                outputFile);
+                    }
+                    Files.move(tempOutputFile, outputFile, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                ProcessResult result = new ProcessResult(process.exitValue(), outputSink.toString(),
+                        errorSink.toString(), outputSink.isTruncated() || errorSink.isTruncated(),
+                        Duration.ofNanos(System.nanoTime() - start));
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Ran {} (exit code {}) in {} ms.", tool, result.getExitCode(),
+                            result.getWallTime().toMillis());
+                }
+                return result;
+            } finally {
+                // Left behind if the process did not complete (or its output was truncated), the previous
+                // output file (if any) is kept.
+                if (tempOutputFile != null) {
+                    Files.deleteIfExists(tempOutputFile);
+                }
+            }
+        } finally {
+            toolPermits.release();
+        }
+    }
+
+    private static Void pump(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream processStream = in) {
+            int read;
+            while ((read = processStream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return null;
+    }
+
+    private static void awaitPump(Future<?> pump) throws IOException {
+        try {
+            // The process has exited (or been killed) so its streams are at EOF (or will be shortly).
+            pump.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            pump.cancel(true);
+        } catch (Exception e) {
+            throw new IOException("could not read process output", e);
+        }
+    }
+
+    /**
+     * Kills the given {@code process} and all of its descendants (for example the "hg" process of a
+     * "bash -c hg ..." invocation).
+     */
+    private static void killProcessTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * An output stream that keeps (either in memory or by writing to a delegate) at most a maximum number
+     * of bytes, silently discarding the rest (so that the process writing to it is never blocked).
+     */
+    private static class BoundedOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private final ByteArrayOutputStream buffer;
+        private final long maxBytes;
+        private long written;
+        private boolean truncated;
+
+        private BoundedOutputStream(OutputStream delegate, long maxBytes) {
+            this.delegate = delegate;
+            this.buffer = delegate == null ? new ByteArrayOutputStream() : null;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            int kept = (int) Math.min(len, maxBytes - written);
+            if (kept < len) {
+                truncated = true;
+            }
+            if (kept > 0) {
+                if (delegate != null) {
+                    delegate.write(b, off, kept);
+                } else {
+                    buffer.write(b, off, kept);
+                }
+                written += kept;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+
+        private synchronized boolean isTruncated() {
+            return truncated;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return buffer == null ? "" : new String(buffer.toByteArray(), UTF_8);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A pull request, with only the fields jfxmirror_bot uses.
+ */
+class PullRequest {
+
+    private final String number;
+    private final String title;
+    private final String userLogin;
+    private final String headSha;
+    private final String headRef;
+    private final String baseSha;
+    private final int commitCount;
+    private final String commitsUrl;
+    private final String commentsUrl;
+
+    PullRequest(String number, String title, String userLogin, String headSha, String headRef, String baseSha,
+                int commitCount, String commitsUrl, String commentsUrl) {
+        Objects.requireNonNull(number, "number must not be null");
+        Objects.requireNonNull(title, "title must not be null");
+        Objects.requireNonNull(userLogin, "userLogin must not be null");
+        Objects.requireNonNull(headSha, "headSha must not be null");
+        Objects.requireNonNull(headRef, "headRef must not be null");
+        Objects.requireNonNull(baseSha, "baseSha must not be null");
+        Objects.requireNonNull(commitsUrl, "commitsUrl must not be null");
+        Objects.requireNonNull(commentsUrl, "commentsUrl must not be null");
+        this.number = number;
+        this.title = title;
+        this.userLogin = userLogin;
+        this.headSha = headSha;
+        this.headRef = headRef;
+        this.baseSha = baseSha;
+        this.commitCount = commitCount;
+        this.commitsUrl = commitsUrl;
+        this.commentsUrl = commentsUrl;
+    }
+
+    /**
+     * Returns the JSON paths (see {@link JsonFields}) of the fields of a pull request, relative to the
+     * given {@code prefix} (e.g. {@code "pull_request."}).
+     */
+    static Set<String> fieldPaths(String prefix) {
+        Set<String> paths = new HashSet<>();
+        for (String field : Arrays.asList("number", "title", "user.login", "head.sha", "head.ref", "base.sha",
+                "commits", "_links.commits.href", "_links.comments.href")) {
+            paths.add(prefix + field);
+        }
+        return Collections.unmodifiableSet(paths);
+    }
+
+    /**
+     * Creates a pull request from the given {@code values} extracted with the paths returned by
+     * {@link #fieldPaths(String)}.
+     */
+    static PullRequest fromFields(Map<String, String> values, String prefix) throws IOException {
+        String commitCount = values.get(prefix + "commits");
+        try {
+            return new PullRequest(JsonFields.require(values, prefix + "number"),
+                    JsonFields.require(values, prefix + "title"),
+                    JsonFields.require(values, prefix + "user.login"),
+                    JsonFields.require(values, prefix + "head.sha"),
+                    JsonFields.require(values, prefix + "head.ref"),
+                    JsonFields.require(values, prefix + "base.sha"),
+                    commitCount == null ? -1 : Integer.parseInt(commitCount),
+                    JsonFields.require(values, prefix + "_links.commits.href"),
+                    JsonFields.require(values, prefix + "_links.comments.href"));
+        } catch (NumberFormatException e) {
+            throw new IOException("malformed commit count: " + commitCount, e);
+        }
+    }
+
+    String getNumber() {
+        return number;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the GitHub username of the user who opened this pull request.
+     */
+    String getUserLogin() {
+        return userLogin;
+    }
+
+    String getHeadSha() {
+        return headSha;
+    }
+
+    /**
+     * Returns the name of the branch this pull request was opened from.
+     */
+    String getHeadRef() {
+        return headRef;
+    }
+
+    String getBaseSha() {
+        return baseSha;
+    }
+
+    /**
+     * Returns the number of commits of this pull request, or -1 if GitHub did not send it.
+     */
+    int getCommitCount() {
+        return commitCount;
+    }
+
+    String getCommitsUrl() {
+        return commitsUrl;
+    }
+
+    String getCommentsUrl() {
+        return commentsUrl;
+    }
+}
@@ -1,26 +1,39 @@
 package org.javafxports.jfxmirror;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.MDC;
 
 public class PullRequestContext {
 
-    private final JsonNode pullRequest;
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final PullRequest pullRequest;
     private final String prNum;
     private final String prShaHead;
     private final String statusUrl;
     private OcaStatus ocaStatus;
     private Set<String> jbsBugsReferenced;
     private Set<String> jbsBugsReferencedButNotFound;
-    private List<Path> rejects;
+    private Set<String> jbsBugsUnverified = Collections.emptySet();
+    private List<Path> rejects = Collections.emptyList();
     private PrStatus prStatus;
+    private final Map<String, Duration> stageTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Duration> stageCpuTimes = Collections.synchronizedMap(new LinkedHashMap<>());
+    private PrProgress.Run progress;
+    private Trace trace;
+    private final long startNanos = System.nanoTime();
 
-    public PullRequestContext(JsonNode pullRequest, String prNum, String prShaHead, String statusUrl) {
+    PullRequestContext(PullRequest pullRequest, String prNum, String prShaHead, String statusUrl) {
         Objects.requireNonNull(pullRequest, "pullRequest must not be null");
         Objects.requireNonNull(prNum, "prNum must not be null");
         Objects.requireNonNull(prShaHead, "prShaHead must not be null");
@@ -31,7 +44,7 @@ public class PullRequestContext {
         this.statusUrl = statusUrl;
     }
 
-    public JsonNode getPullRequest() {
+    PullRequest getPullRequest() {
         return pullRequest;
     }
 
@@ -71,6 +84,17 @@ public class PullRequestContext {
         this.jbsBugsReferencedButNotFound = jbsBugsReferencedButNotFound;
     }
 
+    /**
+     * Returns the referenced JBS bugs that could not be looked up (because JBS was unavailable).
+     */
+    public Set<String> getJbsBugsUnverified() {
+        return Collections.unmodifiableSet(jbsBugsUnverified);
+    }
+
+    void setJbsBugsUnverified(Set<String> jbsBugsUnverified) {
+        this.jbsBugsUnverified = jbsBugsUnverified;
+    }
+
     void setRejects(List<Path> rejects) {
         this.rejects = rejects;
     }
@@ -86,4 +110,90 @@ public class PullRequestContext {
     public PrStatus getPrStatus() {
         return prStatus;
     }
+
+    /**
+     * Starts timing the stage with the given {@code name}, which is recorded when the returned timer is
+     * closed (along with the CPU time the stage used on this thread, which does not include the external
+     * processes it ran). The timer must be closed on the thread that started it. While the stage runs its
+     * name is the "stage" of the logging MDC. If the check was cancelled (see {@link InFlightChecks}), the
+     * stage is not started and a {@link InFlightChecks.CancelledException} is thrown instead.
+     */
+    StageTimer stage(String name) {
+        InFlightChecks.throwIfCancelled();
+        Trace.Span span = trace == null ? null : trace.span(name);
+        if (progress != null) {
+            progress.stageStarted(name);
+        }
+        long startCpuNanos = currentThreadCpuNanos();
+        MDC.put(LogContext.STAGE, name);
+        return new StageTimer(name, (stage, timing) -> {
+            MDC.remove(LogContext.STAGE);
+            stageTimings.put(stage, timing);
+            if (startCpuNanos >= 0) {
+                stageCpuTimes.put(stage, Duration.ofNanos(Math.max(currentThreadCpuNanos() - startCpuNanos, 0)));
+            }
+            if (span != null) {
+                span.close();
+            }
+            if (progress != null) {
+                progress.stageFinished(stage, timing);
+            }
+        });
+    }
+
+    /**
+     * Sets the run that the stages of this pull request are reported to, as they start and finish.
+     */
+    void setProgress(PrProgress.Run progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the run that the stages of this pull request are reported to, or {@code null} if they are not
+     * reported.
+     */
+    PrProgress.Run getProgress() {
+        return progress;
+    }
+
+    /**
+     * Sets the trace that the stages of this pull request are recorded in as spans.
+     */
+    void setTrace(Trace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Returns the trace of checking this pull request, or {@code null} if it is not traced.
+     */
+    Trace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Returns the time since checking this pull request started.
+     */
+    Duration getElapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    public Map<String, Duration> getStageTimings() {
+        synchronized (stageTimings) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(stageTimings));
+        }
+    }
+
+    /**
+     * Returns the CPU time (of this JVM) used by each stage that has finished. Empty if the JVM does not
+     * measure the CPU time of threads.
+     */
+    Map<String, Duration> getStageCpuTimes() {
+        synchronized (stageCpuTimes) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(stageCpuTimes));
+        }
+    }
+
+    private static long currentThreadCpuNanos() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : -1;
+    }
 }
@@ -0,0 +1,60 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A "pull_request" webhook event, with only the fields jfxmirror_bot uses.
+ * <p>
+ * https://developer.github.com/v3/activity/events/types/#pullrequestevent
+ */
+class PullRequestEvent {
+
+    private static final String PULL_REQUEST = "pull_request.";
+    private static final Set<String> FIELDS;
+
+    static {
+        Set<String> fields = new HashSet<>(PullRequest.fieldPaths(PULL_REQUEST));
+        fields.add("action");
+        fields.add("repository.full_name");
+        FIELDS = fields;
+    }
+
+    private final String action;
+    private final String repoFullName;
+    private final PullRequest pullRequest;
+
+    PullRequestEvent(String action, String repoFullName, PullRequest pullRequest) {
+        Objects.requireNonNull(action, "action must not be null");
+        Objects.requireNonNull(repoFullName, "repoFullName must not be null");
+        Objects.requireNonNull(pullRequest, "pullRequest must not be null");
+        this.action = action;
+        this.repoFullName = repoFullName;
+        this.pullRequest = pullRequest;
+    }
+
+    static PullRequestEvent parse(byte[] payload) throws IOException {
+        Map<String, String> values = JsonFields.extract(payload, FIELDS);
+        return new PullRequestEvent(JsonFields.require(values, "action"),
+                JsonFields.require(values, "repository.full_name"),
+                PullRequest.fromFields(values, PULL_REQUEST));
+    }
+
+    String getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the full name ("owner/repo") of the repository the pull request was opened against.
+     */
+    String getRepoFullName() {
+        return repoFullName;
+    }
+
+    PullRequest getPullRequest() {
+        return pullRequest;
+    }
+}
@@ -0,0 +1,41 @@
+package org.javafxports.jfxmirror;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Times a stage of checking a pull request (e.g. applying the patch upstream or generating the webrev).
+ * Meant to be used with try-with-resources:
+ * <pre>{@code
+ * try (StageTimer stage = pullRequestContext.stage("jcheck")) {
+ *     runJCheck(pullRequestContext);
+ * }
+ * }</pre>
+ */
+class StageTimer implements AutoCloseable {
+
+    private final String name;
+    private final BiConsumer<String, Duration> recorder;
+    private final long start = System.nanoTime();
+    private boolean closed;
+
+    StageTimer(String name, BiConsumer<String, Duration> recorder) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(recorder, "recorder must not be null");
+        this.name = name;
+        this.recorder = recorder;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            recorder.accept(name, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+}
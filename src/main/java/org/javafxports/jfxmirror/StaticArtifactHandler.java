@@ -0,0 +1,345 @@
+package org.javafxports.jfxmirror;
+
+import static java.util.Locale.US;
+
+import java.io.CharConversionException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the artifacts under ~/jfxmirror/pr (status pages, patches, webrevs, etc.) directly from Grizzly,
+ * in front of the Jersey application (which is the {@code fallback} for everything else, including
+ * artifacts that do not exist on disk, such as the pages of lazy webrevs).
+ * <p>
+ * Files are sent with sendfile when Grizzly supports it (so they are never copied through user space) and
+ * with {@link FileChannel#transferTo} otherwise. Responses carry an ETag and Last-Modified (and conditional
+ * requests are answered with "304 Not Modified"), single byte ranges are supported, and if the client
+ * accepts gzip a precompressed ".gz" variant of the file is sent if there is one (see
+ * {@link #precompress(Path)}). Responses are sent with "Cache-Control: no-cache" so clients revalidate them
+ * with the ETag: the artifacts of a SHA are rewritten when it is checked again (e.g. its webrev is
+ * regenerated), so none of them can be cached as immutable.
+ */
+class StaticArtifactHandler extends HttpHandler {
+
+    private static final String PREFIX = "/pr/";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final long PRECOMPRESS_MIN_BYTES = 1024;
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=UTF-8";
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=UTF-8");
+        CONTENT_TYPES.put("patch", TEXT_CONTENT_TYPE);
+        CONTENT_TYPES.put("txt", TEXT_CONTENT_TYPE);
+        CONTENT_TYPES.put("css", "text/css; charset=UTF-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=UTF-8");
+        CONTENT_TYPES.put("json", "application/json; charset=UTF-8");
+        CONTENT_TYPES.put("zip", "application/zip");
+        CONTENT_TYPES.put("gz", "application/gzip");
+    }
+
+    private final Path prDir;
+    private final HttpHandler fallback;
+    private static final Logger logger = LoggerFactory.getLogger(StaticArtifactHandler.class);
+
+    StaticArtifactHandler(Path prDir, HttpHandler fallback) {
+        Objects.requireNonNull(prDir, "prDir must not be null");
+        Objects.requireNonNull(fallback, "fallback must not be null");
+        this.prDir = prDir.toAbsolutePath().normalize();
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void start() {
+        fallback.start();
+    }
+
+    @Override
+    public void destroy() {
+        fallback.destroy();
+    }
+
+    @Override
+    public void service(Request request, Response response) throws Exception {
+        Path file = resolve(request);
+        if (file == null) {
+            fallback.service(request, response);
+            return;
+        }
+        if (file.getNameCount() == prDir.getNameCount()) {
+            response.sendError(HttpStatus.NOT_FOUND_404.getStatusCode());
+            return;
+        }
+
+        boolean gzip = false;
+        Path gzipFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (acceptsGzip(request.getHeader("Accept-Encoding")) && Files.isRegularFile(gzipFile)) {
+            BasicFileAttributes gzipAttributes = Files.readAttributes(gzipFile, BasicFileAttributes.class);
+            // A stale variant (the file was rewritten after it was compressed) is ignored.
+            if (gzipAttributes.lastModifiedTime().compareTo(attributes.lastModifiedTime()) >= 0) {
+                gzip = true;
+                file = gzipFile;
+                attributes = gzipAttributes;
+            }
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) +
+                (gzip ? "-gz" : "") + "\"";
+
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setHeader("Accept-Ranges", "bytes");
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED_304);
+            return;
+        }
+
+        response.setContentType(contentTypeOf(gzip ? stripGzipSuffix(file) : file.getFileName().toString()));
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+
+        long offset = 0;
+        long count = length;
+        long[] range = parseRange(request, etag, lastModified, length);
+        if (range != null) {
+            if (range.length == 0) {
+                response.setStatus(HttpStatus.REQUEST_RANGE_NOT_SATISFIABLE_416);
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setContentLengthLong(0);
+                return;
+            }
+            offset = range[0];
+            count = range[1] - range[0] + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT_206);
+            response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+        }
+        response.setContentLengthLong(count);
+        if (request.getMethod() == Method.HEAD || count == 0) {
+            return;
+        }
+
+        if (response.isSendFileEnabled() && !request.isSecure()) {
+            response.getOutputBuffer().sendfile(file.toFile(), offset, count, null);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long sent = 0;
+                while (sent < count) {
+                    sent += channel.transferTo(offset + sent, count - sent, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the file (or, for a directory, its "index.html") that is requested by the given
+     * {@code request}, or {@code null} if the request should be handled by the fallback instead (it is
+     * not a GET or HEAD under {@value #PREFIX}, or the file does not exist). The returned path is
+     * {@link #prDir} itself if the request tried to escape it.
+     */
+    private Path resolve(Request request) throws CharConversionException {
+        if (request.getMethod() != Method.GET && request.getMethod() != Method.HEAD) {
+            return null;
+        }
+        String uri = request.getDecodedRequestURI();
+        if (uri == null || !uri.startsWith(PREFIX)) {
+            return null;
+        }
+        Path file = prDir.resolve(uri.substring(PREFIX.length())).normalize();
+        if (!file.startsWith(prDir) || file.equals(prDir)) {
+            return prDir;
+        }
+        if (Files.isDirectory(file)) {
+            file = file.resolve("index.html");
+        }
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * Returns {@code true} if the given "Accept-Encoding" header value accepts gzip.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotModified(Request request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesEtag(ifNoneMatch, etag);
+        }
+        return isUnmodifiedSince(request, "If-Modified-Since", lastModified);
+    }
+
+    private static boolean matchesEtag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUnmodifiedSince(Request request, String header, long lastModified) {
+        long since;
+        try {
+            since = request.getDateHeader(header);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates only have a precision of seconds.
+        return since != -1 && lastModified / 1000 <= since / 1000;
+    }
+
+    /**
+     * Parses the "Range" header of the given {@code request}.
+     *
+     * @return {@code null} if the whole file should be sent (there is no "Range", it is not a single byte
+     * range, or "If-Range" does not match), an empty array if the range can not be satisfied, and the
+     * first and last (inclusive) byte of the range otherwise
+     */
+    private static long[] parseRange(Request request, String etag, long lastModified, long length) {
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') != -1) {
+            return null;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !(ifRange.startsWith("\"") ? ifRange.trim().equals(etag) :
+                isUnmodifiedSince(request, "If-Range", lastModified))) {
+            return null;
+        }
+        String range = rangeHeader.substring("bytes=".length()).trim();
+        int dash = range.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // A suffix range ("bytes=-500" is the last 500 bytes).
+                long suffix = Long.parseLong(range.substring(1));
+                if (suffix == 0) {
+                    return new long[0];
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(range.substring(0, dash));
+                last = dash == range.length() - 1 ? length - 1 : Long.parseLong(range.substring(dash + 1));
+                if (first >= length) {
+                    return new long[0];
+                }
+                if (last < first) {
+                    return null;
+                }
+                last = Math.min(length - 1, last);
+            }
+            return new long[] { first, last };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the content type of the file with the given {@code name}, by its extension. Anything that is
+     * not known (such as the raw source files of a webrev) is sent as plain text, never as HTML.
+     */
+    static String contentTypeOf(String name) {
+        Objects.requireNonNull(name, "name must not be null");
+        int dot = name.lastIndexOf('.');
+        String contentType = dot == -1 ? null : CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase(US));
+        return contentType == null ? TEXT_CONTENT_TYPE : contentType;
+    }
+
+    private static String stripGzipSuffix(Path gzipFile) {
+        String name = gzipFile.getFileName().toString();
+        return name.substring(0, name.length() - GZIP_SUFFIX.length());
+    }
+
+    /**
+     * Writes a gzip compressed ".gz" variant next to each compressible (text) file in the given
+     * {@code dir} (recursively), so that they can be served compressed without compressing them on
+     * every request.
+     */
+    static void precompress(Path dir) throws IOException {
+        Objects.requireNonNull(dir, "dir must not be null");
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(StaticArtifactHandler::isCompressible)
+                    .collect(Collectors.toList());
+        }
+        int precompressed = 0;
+        for (Path file : files) {
+            if (Files.size(file) < PRECOMPRESS_MIN_BYTES) {
+                continue;
+            }
+            Path gzipFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+            Path tempFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX + ".tmp");
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            Files.move(tempFile, gzipFile, StandardCopyOption.REPLACE_EXISTING);
+            precompressed++;
+        }
+        logger.debug("Precompressed " + precompressed + " file(s) in: " + dir);
+    }
+
+    private static boolean isCompressible(Path file) {
+        if (file.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+            return false;
+        }
+        String contentType = contentTypeOf(file.getFileName().toString());
+        return contentType.startsWith("text/") || contentType.equals("application/javascript") ||
+                contentType.equals("application/json");
+    }
+}
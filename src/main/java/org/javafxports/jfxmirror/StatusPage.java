@@ -2,63 +2,124 @@ package org.javafxports.jfxmirror;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * The status page of a checked pull request (linked to by the jfxmirror_bot PR status check).
+ * <p>
+ * The pipeline only persists the {@link PrResult} of a run, and the page is rendered from it (with the
+ * "status-page.html" template, which is parsed once) when it is requested, so that it always reflects the
+ * current template. Rendered pages are cached by {@link StatusPageCache}.
+ */
 public class StatusPage {
 
-    public static void createStatusPageHtml(PullRequestContext pullRequestContext) throws IOException {
+    private static final String TEMPLATE_RESOURCE = "/status-page.html";
+    private static final Template TEMPLATE = Template.load(TEMPLATE_RESOURCE);
+
+    /**
+     * Writes the result of the run described by the given {@code pullRequestContext} ("result.json") to its
+     * directory ~/jfxmirror/pr/{prNum}/{prShaHead}, from which its status page is rendered on request, and
+     * deletes a status page that was written there before pages were rendered on request.
+     *
+     * @return the written result
+     */
+    static PrResult writeResult(PullRequestContext pullRequestContext) throws IOException {
         // assert (pullRequestContext.getPrStatus() == SUCCESS || FAILURE)
         Path statusPath = Paths.get(System.getProperty("user.home"), "jfxmirror", "pr",
                 pullRequestContext.getPrNum(), pullRequestContext.getPrShaHead());
-        if (!Files.exists(statusPath)) {
-            Files.createDirectories(statusPath);
+        PrResult result = PrResult.of(pullRequestContext, statusPath);
+        result.write(statusPath);
+        // A page written before status pages were rendered on request would be served instead.
+        Files.deleteIfExists(statusPath.resolve("index.html"));
+        Files.deleteIfExists(statusPath.resolve("index.html.gz"));
+        return result;
+    }
+
+    /**
+     * Renders the status page of the given {@code result}, with a timeline of the given {@code trace} (if it
+     * is not {@code null}).
+     */
+    static String render(PrResult result, Trace trace) {
+        Map<String, String> values = new HashMap<>();
+        values.put("prNum", escape(result.getPrNum()));
+        values.put("sha", escape(result.getSha()));
+        values.put("statusColor", result.getStatus() == PrStatus.SUCCESS ? "green" : "red");
+        values.put("status", result.getStatus().name().charAt(0) +
+                result.getStatus().name().toLowerCase(Locale.US).substring(1));
+        values.put("oca", result.getOcaStatus() == null ? "Not checked." : result.getOcaStatus().getDescription());
+        values.put("jbsBugs", getJbsBugHtml(result.getJbsBugsReferenced(), result.getJbsBugsNotFound(),
+                result.getJbsBugsUnverified()));
+        values.put("webrev", result.getStatus() != PrStatus.SUCCESS ? "" :
+                "    <p>Webrev: <a href=\"./webrev/\">View</a> | <a href=\"./webrev.zip\">Download</a></p>\n" +
+                "    <p>jcheck: <a href=\"./jcheck.txt\">View</a></p>\n");
+        values.put("rejects", result.getRejects().isEmpty() ? "" :
+                "    <p>Patch rejects: " + getRejectsHtml(result.getRejects()) + "</p>\n");
+        values.put("stageTimings", result.getStageTimings().entrySet().stream()
+                .map(timing -> escape(timing.getKey()) + " " + timing.getValue().toMillis() + " ms")
+                .collect(Collectors.joining(", ")));
+        values.put("timeline", trace == null ? "" : getTimelineHtml(trace));
+        return TEMPLATE.render(values);
+    }
+
+    /**
+     * Renders the spans of the given {@code trace} as a waterfall: one row per span (indented by its depth)
+     * with a bar that shows when it ran, relative to the whole run.
+     */
+    private static String getTimelineHtml(Trace trace) {
+        List<Trace.Span> spans = trace.getSpans();
+        if (spans.isEmpty()) {
+            return "";
         }
-        StringBuilder statusPageBuilder = new StringBuilder();
-        statusPageBuilder
-                .append("<!DOCTYPE html>\n")
-                .append("<html>\n")
-                .append("  <head>\n")
-                .append("    <meta charset=\"UTF-8\">\n")
-                .append("    <title>Status: PR #").append(pullRequestContext.getPrNum()).append(" (").append(pullRequestContext.getPrShaHead()).append(")</title>\n")
-                .append("  </head>\n")
-                .append("  <body>\n")
-                .append("    <p style=\"color:").append(
-                pullRequestContext.getPrStatus() == PrStatus.SUCCESS ? "green" : "red").append("\">").append(
-                pullRequestContext.getPrStatus().name().charAt(0) + pullRequestContext.getPrStatus().name().toLowerCase(
-                        Locale.US).substring(1)).append("!</p>\n");
-        statusPageBuilder
-                .append("    <p>Mercurial Patch: <a href=\"./patch/").append(pullRequestContext.getPrNum()).append(".patch\">View</a></p>\n")
-                .append("    <p>OCA: ").append(pullRequestContext.getOcaStatus().getDescription()).append("</p>\n")
-                .append("    <p>JBS Bug(s): ").append(getJbsBugHtml(pullRequestContext.getJbsBugsReferenced(), pullRequestContext.getJbsBugsReferencedButNotFound())).append("</p>\n");
-
-        if (pullRequestContext.getPrStatus() == PrStatus.SUCCESS) {
-            statusPageBuilder.append(
-                    "    <p>Webrev: <a href=\"./webrev/\">View</a> | <a href=\"./webrev.zip\">Download</a></p>\n" +
-                    "    <p>jcheck: <a href=\"./jcheck.txt\">View</a></p>\n");
+        long total = 1;
+        Map<Integer, Integer> depths = new HashMap<>();
+        for (Trace.Span span : spans) {
+            total = Math.max(total, span.getStartNanos() + span.getDurationNanos());
         }
-
-        if (!pullRequestContext.getRejects().isEmpty()) {
-            statusPageBuilder.append(
-                    "    <p>Patch rejects: " + getRejectsHtml(pullRequestContext.getRejects()) + "</p>\n");
+        StringBuilder html = new StringBuilder(256 + spans.size() * 320);
+        html.append("    <p>Timeline (trace ").append(escape(trace.getTraceId())).append("):</p>\n")
+                .append("    <table style=\"width:100%;border-collapse:collapse;font:12px monospace\">\n");
+        for (Trace.Span span : spans) {
+            int depth = depths.getOrDefault(span.getParentId(), -1) + 1;
+            depths.put(span.getId(), depth);
+            double left = 100.0 * span.getStartNanos() / total;
+            double width = 100.0 * span.getDurationNanos() / total;
+            html.append("      <tr><td style=\"white-space:nowrap;padding-left:").append(depth * 12).append("px\"");
+            if (span.getDetail() != null) {
+                html.append(" title=\"").append(escape(span.getDetail())).append('"');
+            }
+            html.append('>').append(escape(span.getName())).append("</td>")
+                    .append("<td style=\"width:70%\"><div style=\"margin-left:")
+                    .append(String.format(Locale.US, "%.2f", left)).append("%;width:")
+                    .append(String.format(Locale.US, "%.2f", width)).append("%;min-width:1px;background:")
+                    .append(depth == 0 ? "#999" : "#4a90d9").append("\">&nbsp;</div></td>")
+                    .append("<td style=\"text-align:right;white-space:nowrap\">")
+                    .append(span.getDurationNanos() / 1_000_000).append(" ms</td></tr>\n");
         }
-        statusPageBuilder.append("  </body>\n").append("</html>\n");
-        Files.write(statusPath.resolve("index.html"), statusPageBuilder.toString().getBytes(UTF_8));
+        return html.append("    </table>\n").toString();
     }
 
-    private static String getRejectsHtml(List<Path> rejects) {
-        return rejects.stream().map(reject -> "<a href=\"" + reject.getFileName().toString() + "\">" +
-                reject.getFileName().toString() + "</a>").collect(Collectors.joining("|"));
+    private static String getRejectsHtml(List<String> rejects) {
+        return rejects.stream().map(reject -> "<a href=\"./" + escape(reject) + "\">" +
+                escape(reject.substring(reject.lastIndexOf('/') + 1)) + "</a>").collect(Collectors.joining("|"));
     }
 
     private static String getJbsBugHtml(Collection<String> jbsBugsReferenced,
-                                        Collection<String> jbsBugsReferencedButNotFound) {
+                                        Collection<String> jbsBugsReferencedButNotFound,
+                                        Collection<String> jbsBugsUnverified) {
         if (jbsBugsReferenced.isEmpty()) {
             return "No JBS bugs referenced in PR commit message, branch name, or title.";
         }
@@ -77,6 +138,78 @@ public class StatusPage {
                     .append("<li>Status is one of \"Open\", \"In Progress\", \"New\", \"Provisional\".</li></ul>");
         }
 
+        if (!jbsBugsUnverified.isEmpty()) {
+            jbsHtmlBuilder.append("JBS Bugs referenced by PR that could not be verified (JBS was unavailable):<br><br>");
+            jbsHtmlBuilder.append(jbsBugsUnverified.stream().collect(Collectors.joining(",")));
+        }
+
         return jbsHtmlBuilder.toString();
     }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * A template with "{{name}}" placeholders, split once into its literal text and placeholders so that
+     * rendering is just concatenation.
+     */
+    static class Template {
+        private final List<String> literals;
+        private final List<String> placeholders;
+        private final int literalLength;
+
+        private Template(List<String> literals, List<String> placeholders) {
+            this.literals = Collections.unmodifiableList(literals);
+            this.placeholders = Collections.unmodifiableList(placeholders);
+            this.literalLength = literals.stream().mapToInt(String::length).sum();
+        }
+
+        static Template compile(String template) {
+            List<String> literals = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+            int from = 0;
+            int start;
+            while ((start = template.indexOf("{{", from)) != -1) {
+                int end = template.indexOf("}}", start);
+                if (end == -1) {
+                    throw new IllegalArgumentException("unterminated placeholder at: " + start);
+                }
+                literals.add(template.substring(from, start));
+                placeholders.add(template.substring(start + 2, end).trim());
+                from = end + 2;
+            }
+            literals.add(template.substring(from));
+            return new Template(literals, placeholders);
+        }
+
+        private static Template load(String resource) {
+            try (InputStream in = StatusPage.class.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("template not found: " + resource);
+                }
+                ByteArrayOutputStream template = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    template.write(buffer, 0, read);
+                }
+                return compile(new String(template.toByteArray(), UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        String render(Map<String, String> values) {
+            StringBuilder rendered = new StringBuilder(literalLength + 1024);
+            for (int i = 0; i < placeholders.size(); i++) {
+                String value = values.get(placeholders.get(i));
+                if (value == null) {
+                    throw new IllegalArgumentException("no value for placeholder: " + placeholders.get(i));
+                }
+                rendered.append(literals.get(i)).append(value);
+            }
+            return rendered.append(literals.get(placeholders.size())).toString();
+        }
+    }
 }
@@ -0,0 +1,172 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A bounded (by total size) LRU cache of rendered, gzipped status pages, keyed by the directory of the
+ * SHA (~/jfxmirror/pr/{num}/{sha}). An entry is only used while the "result.json" (and "trace.json") it
+ * was rendered from is unchanged, so a pull request that is checked again gets a fresh page.
+ */
+class StatusPageCache {
+
+    private final long maxBytes;
+    // Guarded by "this".
+    private final LinkedHashMap<Path, CachedPage> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    StatusPageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the status page of the given {@code shaDir}, rendering it if it is not cached (or its result
+     * changed), or {@code null} if the SHA has no result.
+     */
+    CachedPage get(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        BasicFileAttributes resultAttributes;
+        try {
+            resultAttributes = Files.readAttributes(shaDir.resolve(PrResult.FILE_NAME), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String resultStamp = resultAttributes.size() + "-" + resultAttributes.lastModifiedTime().toMillis();
+        try {
+            // The trace of a run is written after its result.
+            BasicFileAttributes traceAttributes = Files.readAttributes(shaDir.resolve(Trace.FILE_NAME),
+                    BasicFileAttributes.class);
+            resultStamp += "-" + traceAttributes.size() + "-" + traceAttributes.lastModifiedTime().toMillis();
+        } catch (NoSuchFileException e) {
+            // Checked before traces were written.
+        }
+        synchronized (this) {
+            CachedPage cached = pages.get(shaDir);
+            if (cached != null && cached.resultStamp.equals(resultStamp)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+
+        // Rendering happens outside of the lock, if two requests race the page is rendered twice.
+        Trace trace;
+        try {
+            trace = Trace.read(shaDir);
+        } catch (IOException e) {
+            // The page is still useful without its timeline.
+            trace = null;
+        }
+        byte[] html = StatusPage.render(PrResult.read(shaDir), trace).getBytes(UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(html);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(html.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(html);
+        }
+        CachedPage page = new CachedPage(resultStamp, gzipped.toByteArray(),
+                "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(html.length) + "\"");
+        synchronized (this) {
+            CachedPage replaced = pages.put(shaDir, page);
+            bytes += page.gzipped.length - (replaced == null ? 0 : replaced.gzipped.length);
+            for (Iterator<Map.Entry<Path, CachedPage>> eldest = pages.entrySet().iterator();
+                 bytes > maxBytes && eldest.hasNext(); ) {
+                bytes -= eldest.next().getValue().gzipped.length;
+                eldest.remove();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Writes the cached pages to the given {@code out}, least recently used first (see {@link WarmSnapshot}).
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        Map<Path, CachedPage> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(pages);
+        }
+        out.writeInt(snapshot.size());
+        for (Map.Entry<Path, CachedPage> entry : snapshot.entrySet()) {
+            out.writeUTF(entry.getKey().toString());
+            out.writeUTF(entry.getValue().resultStamp);
+            out.writeUTF(entry.getValue().etag);
+            out.writeInt(entry.getValue().gzipped.length);
+            out.write(entry.getValue().gzipped);
+        }
+    }
+
+    /**
+     * Restores the pages written by {@link #writeSnapshot(DataOutputStream)} that are not cached already (as
+     * many as fit). A restored page is still only used while its result is unchanged.
+     */
+    void readSnapshot(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Path shaDir = Paths.get(in.readUTF());
+            String resultStamp = in.readUTF();
+            String etag = in.readUTF();
+            byte[] gzipped = new byte[in.readInt()];
+            in.readFully(gzipped);
+            synchronized (this) {
+                if (bytes + gzipped.length <= maxBytes && !pages.containsKey(shaDir)) {
+                    pages.put(shaDir, new CachedPage(resultStamp, gzipped, etag));
+                    bytes += gzipped.length;
+                }
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    static class CachedPage {
+        private final String resultStamp;
+        private final byte[] gzipped;
+        private final String etag;
+
+        private CachedPage(String resultStamp, byte[] gzipped, String etag) {
+            this.resultStamp = resultStamp;
+            this.gzipped = gzipped;
+            this.etag = etag;
+        }
+
+        /**
+         * Returns the gzipped page (the caller must not modify it).
+         */
+        byte[] getGzipped() {
+            return gzipped;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.US;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Publishes commit statuses (the "jfxmirror_bot" status check of a PR) to GitHub asynchronously.
+ * <p>
+ * Statuses are put in an outbox, keyed by status URL (which identifies the repository and SHA) and
+ * context, and delivered by a background thread. Only the latest status of each key is kept, so a status
+ * that is superseded before it was delivered (e.g. "pending" followed by "success") is never sent. Failed
+ * deliveries are retried with jittered exponential backoff. The outbox is persisted to disk whenever it
+ * changes, so statuses that were not delivered before a restart are delivered after it.
+ */
+class StatusPublisher {
+
+    private static final long BASE_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final GitHubClient gitHubClient;
+    private final Path outboxPath;
+    // Guarded by "this".
+    private final Map<String, OutboxEntry> outbox = new LinkedHashMap<>();
+    private final Thread publisher;
+    private volatile boolean stopped;
+    private static final Logger logger = LoggerFactory.getLogger(StatusPublisher.class);
+
+    StatusPublisher(GitHubClient gitHubClient, Path outboxPath) {
+        Objects.requireNonNull(gitHubClient, "gitHubClient must not be null");
+        Objects.requireNonNull(outboxPath, "outboxPath must not be null");
+        this.gitHubClient = gitHubClient;
+        this.outboxPath = outboxPath;
+        this.publisher = new Thread(this::publishLoop, "statusPublisher");
+        this.publisher.setDaemon(true);
+    }
+
+    /**
+     * Loads the statuses that were not delivered before the last shutdown (if any) and starts delivering.
+     */
+    void start() throws IOException {
+        if (Files.exists(outboxPath)) {
+            JsonNode entries = objectMapper.readTree(new String(Files.readAllBytes(outboxPath), UTF_8));
+            synchronized (this) {
+                for (JsonNode entry : entries) {
+                    OutboxEntry outboxEntry = OutboxEntry.fromJson(entry);
+                    outbox.put(outboxEntry.key(), outboxEntry);
+                }
+            }
+            if (entries.size() != 0) {
+                logger.info("\u2713 Loaded " + entries.size() + " undelivered PR statuses.");
+            }
+        }
+        publisher.start();
+    }
+
+    void stop() {
+        stopped = true;
+        publisher.interrupt();
+    }
+
+    /**
+     * Queues the given status to be published, replacing any undelivered status of the same status URL and
+     * context. Returns once the status has been persisted in the outbox.
+     */
+    void publish(String statusUrl, String context, PrStatus state, String targetUrl, String description) {
+        Objects.requireNonNull(statusUrl, "statusUrl must not be null");
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(state, "state must not be null");
+        Objects.requireNonNull(targetUrl, "targetUrl must not be null");
+        Objects.requireNonNull(description, "description must not be null");
+
+        OutboxEntry entry = new OutboxEntry(statusUrl, context, state, targetUrl, description, 0, 0);
+        synchronized (this) {
+            OutboxEntry superseded = outbox.remove(entry.key());
+            if (superseded != null) {
+                logger.debug("Dropping undelivered status {} (superseded by {}) of: {}", superseded.state, state,
+                        statusUrl);
+            }
+            outbox.put(entry.key(), entry);
+            persist();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the number of statuses that have not been delivered yet.
+     */
+    synchronized int size() {
+        return outbox.size();
+    }
+
+    private void publishLoop() {
+        while (!stopped) {
+            OutboxEntry entry;
+            try {
+                entry = nextDue();
+            } catch (InterruptedException e) {
+                break;
+            }
+            deliver(entry);
+        }
+    }
+
+    /**
+     * Waits for (and returns) the outbox entry that is due soonest.
+     */
+    private synchronized OutboxEntry nextDue() throws InterruptedException {
+        while (true) {
+            OutboxEntry due = null;
+            for (OutboxEntry entry : outbox.values()) {
+                if (due == null || entry.nextAttemptMillis < due.nextAttemptMillis) {
+                    due = entry;
+                }
+            }
+            long waitMillis = due == null ? 0 : due.nextAttemptMillis - System.currentTimeMillis();
+            if (due != null && waitMillis <= 0) {
+                return due;
+            }
+            wait(waitMillis);
+        }
+    }
+
+    private void deliver(OutboxEntry entry) {
+        ObjectNode status = JsonNodeFactory.instance.objectNode();
+        status.put("state", entry.state.name().toLowerCase(US));
+        status.put("target_url", entry.targetUrl);
+        status.put("description", entry.description);
+        status.put("context", entry.context);
+
+        boolean delivered = false;
+        boolean retry = true;
+        try {
+            GitHubResponse response = gitHubClient.post(entry.statusUrl, status.toString());
+            if (response.isSuccessful()) {
+                delivered = true;
+            } else if (response.getStatus() == 401) {
+                // Kept in the outbox, so it is delivered once the token is fixed (and the bot restarted).
+                logger.error("\u2718 GitHub API authentication failed, are you sure the \"JFXMIRROR_GH_TOKEN\"\n" +
+                        "environment variable is set correctly?");
+            } else if (response.getStatus() == 400 || response.getStatus() == 404 ||
+                    response.getStatus() == 422) {
+                // The status is malformed, or the repository or SHA no longer exists (e.g. the PR branch was
+                // force pushed), so retrying can never succeed.
+                logger.error("\u2718 GitHub rejected status of: " + entry.statusUrl);
+                logger.debug("GitHub response: " + response.getBody());
+                retry = false;
+            } else {
+                logger.debug("Could not deliver status ({}): {}", response.getStatus(), entry.statusUrl);
+            }
+        } catch (IOException e) {
+            logger.debug("Could not deliver status: " + entry.statusUrl, e);
+        }
+
+        synchronized (this) {
+            if (delivered || !retry) {
+                // The entry is only removed if it was not superseded while it was being delivered.
+                outbox.remove(entry.key(), entry);
+            } else if (outbox.get(entry.key()) == entry) {
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(entry.attempts, 20));
+                outbox.put(entry.key(), entry.withAttempt(System.currentTimeMillis() +
+                        ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1)));
+            }
+            persist();
+        }
+    }
+
+    /**
+     * Writes the outbox to disk (atomically). Must be called while holding the lock of this publisher.
+     */
+    private void persist() {
+        ArrayNode entries = JsonNodeFactory.instance.arrayNode();
+        outbox.values().forEach(entry -> entries.add(entry.toJson()));
+        Path tempPath = outboxPath.resolveSibling(outboxPath.getFileName() + ".tmp");
+        try {
+            Files.write(tempPath, entries.toString().getBytes(UTF_8));
+            Files.move(tempPath, outboxPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("\u2718 Could not persist PR status outbox: " + outboxPath);
+            logger.debug("exception: ", e);
+        }
+    }
+
+    private static class OutboxEntry {
+        private final String statusUrl;
+        private final String context;
+        private final PrStatus state;
+        private final String targetUrl;
+        private final String description;
+        private final int attempts;
+        private final long nextAttemptMillis;
+
+        private OutboxEntry(String statusUrl, String context, PrStatus state, String targetUrl,
+                            String description, int attempts, long nextAttemptMillis) {
+            this.statusUrl = statusUrl;
+            this.context = context;
+            this.state = state;
+            this.targetUrl = targetUrl;
+            this.description = description;
+            this.attempts = attempts;
+            this.nextAttemptMillis = nextAttemptMillis;
+        }
+
+        private String key() {
+            return statusUrl + " " + context;
+        }
+
+        private OutboxEntry withAttempt(long nextAttemptMillis) {
+            return new OutboxEntry(statusUrl, context, state, targetUrl, description, attempts + 1,
+                    nextAttemptMillis);
+        }
+
+        private ObjectNode toJson() {
+            return JsonNodeFactory.instance.objectNode()
+                    .put("statusUrl", statusUrl)
+                    .put("context", context)
+                    .put("state", state.name().toLowerCase(US))
+                    .put("targetUrl", targetUrl)
+                    .put("description", description)
+                    .put("attempts", attempts);
+        }
+
+        private static OutboxEntry fromJson(JsonNode json) throws IOException {
+            try {
+                return new OutboxEntry(json.get("statusUrl").asText(), json.get("context").asText(),
+                        PrStatus.valueOf(json.get("state").asText().toUpperCase(US)),
+                        json.get("targetUrl").asText(), json.get("description").asText(),
+                        json.path("attempts").asInt(), 0);
+            } catch (NullPointerException | IllegalArgumentException e) {
+                throw new IOException("malformed PR status outbox entry: " + json, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.MDC;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * The trace of one run (check of a pull request): a tree of timed spans, one for the run itself, one for
+ * each of its stages and one for each external process and GitHub request made while it runs.
+ * <p>
+ * The span that is open on a thread is tracked in a thread local, so code that is called from a stage
+ * (e.g. {@link ProcessRunner}) adds its spans with {@link #startSpan(String, String)} without the trace being
+ * passed to it (on threads that are not running a check that returns a span that records nothing). The trace
+ * ID is put in the logging MDC (as "traceId", along with the PR and SHA, see {@link LogContext}) and passed to
+ * external processes (as JFXMIRROR_TRACE_ID).
+ * <p>
+ * Spans are emitted as JDK Flight Recorder events (when the JVM has JFR, see {@link JfrSpanEvent}) so they
+ * can be lined up with GC, I/O and thread events, and the finished trace is written to "trace.json" in the
+ * directory of the SHA, from which the status page renders a waterfall timeline.
+ */
+class Trace {
+
+    static final String FILE_NAME = "trace.json";
+    static final String MDC_KEY = "traceId";
+    static final String ENVIRONMENT_VARIABLE = "JFXMIRROR_TRACE_ID";
+    private static final int MAX_SPANS = 1000;
+    private static final int MAX_DETAIL_LENGTH = 200;
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+    private static final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+    private static final Span NO_SPAN = new Trace("", "", "", 0, 0).new Span(0, 0, "", null, 0, false);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String traceId;
+    private final String prNum;
+    private final String sha;
+    private final long startMillis;
+    private final long startNanos;
+    // Guarded by "this".
+    private final List<Span> spans = new ArrayList<>();
+    private int nextSpanId = 1;
+    private Span root;
+
+    private Trace(String traceId, String prNum, String sha, long startMillis, long startNanos) {
+        this.traceId = traceId;
+        this.prNum = prNum;
+        this.sha = sha;
+        this.startMillis = startMillis;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Starts the trace of a run of the given {@code sha} of PR #{@code prNum} on the current thread.
+     */
+    static Trace start(String prNum, String sha) {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(sha, "sha must not be null");
+        String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        Trace trace = new Trace(traceId, prNum, sha, System.currentTimeMillis(), System.nanoTime());
+        synchronized (trace) {
+            trace.root = trace.open("check", "PR #" + prNum + " " + sha, null);
+        }
+        MDC.put(MDC_KEY, traceId);
+        MDC.put(LogContext.PR, prNum);
+        MDC.put(LogContext.SHA, sha);
+        return trace;
+    }
+
+    /**
+     * Starts a span of the trace that is running on the current thread, as a child of its current span.
+     * If the current thread is not running a check, the returned span records nothing. The span must be
+     * closed on the same thread.
+     */
+    static Span startSpan(String name, String detail) {
+        Span parent = currentSpan.get();
+        if (parent == null) {
+            return NO_SPAN;
+        }
+        Trace trace = parent.trace();
+        synchronized (trace) {
+            return trace.spans.size() >= MAX_SPANS ? NO_SPAN : trace.open(name, detail, parent);
+        }
+    }
+
+    /**
+     * Starts a span of this trace (a child of the current span, or of the root span).
+     */
+    Span span(String name) {
+        Span parent = currentSpan.get();
+        synchronized (this) {
+            return open(name, null, parent != null && parent.trace() == this ? parent : root);
+        }
+    }
+
+    /**
+     * Ends the root span of this trace (and any spans that are still open) and clears the current span
+     * of this thread.
+     */
+    synchronized void finish() {
+        long now = System.nanoTime();
+        for (Span span : spans) {
+            if (span.durationNanos < 0) {
+                span.end(now);
+            }
+        }
+        clearCurrent();
+    }
+
+    /**
+     * Clears the current span (and trace ID, PR and SHA of the MDC) of this thread, e.g. if a run ended
+     * without finishing its trace.
+     */
+    static void clearCurrent() {
+        currentSpan.remove();
+        MDC.remove(MDC_KEY);
+        MDC.remove(LogContext.PR);
+        MDC.remove(LogContext.SHA);
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    private Span open(String name, String detail, Span parent) {
+        if (detail != null && detail.length() > MAX_DETAIL_LENGTH) {
+            detail = detail.substring(0, MAX_DETAIL_LENGTH - 3) + "...";
+        }
+        Span span = new Span(nextSpanId++, parent == null ? 0 : parent.id, name, detail, System.nanoTime(), true);
+        spans.add(span);
+        currentSpan.set(span);
+        return span;
+    }
+
+    /**
+     * Returns the spans of this trace, ordered by the time they started.
+     */
+    synchronized List<Span> getSpans() {
+        return Collections.unmodifiableList(new ArrayList<>(spans));
+    }
+
+    /**
+     * Writes this trace to "trace.json" in the given {@code shaDir} (atomically). Each span is written as
+     * an array of its ID, the ID of its parent (0 for the root), its name, its start (relative to the start
+     * of the trace) and its duration (both in microseconds) and its detail (if it has one).
+     */
+    void write(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("traceId", traceId);
+        json.put("pr", prNum);
+        json.put("sha", sha);
+        json.put("start", startMillis);
+        ArrayNode spansJson = json.putArray("spans");
+        for (Span span : getSpans()) {
+            ArrayNode spanJson = spansJson.addArray()
+                    .add(span.id)
+                    .add(span.parentId)
+                    .add(span.name)
+                    .add(TimeUnit.NANOSECONDS.toMicros(span.startNanos - startNanos))
+                    .add(TimeUnit.NANOSECONDS.toMicros(Math.max(span.durationNanos, 0)));
+            if (span.detail != null) {
+                spanJson.add(span.detail);
+            }
+        }
+        Files.createDirectories(shaDir);
+        Path tempFile = shaDir.resolve(FILE_NAME + ".tmp");
+        Files.write(tempFile, json.toString().getBytes(UTF_8));
+        Files.move(tempFile, shaDir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the trace from "trace.json" in the given {@code shaDir}, or returns {@code null} if it has none.
+     */
+    static Trace read(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+        Path traceFile = shaDir.resolve(FILE_NAME);
+        if (!Files.exists(traceFile)) {
+            return null;
+        }
+        JsonNode json = objectMapper.readTree(Files.readAllBytes(traceFile));
+        if (json == null || !json.path("spans").isArray()) {
+            throw new IOException("trace is malformed: " + traceFile);
+        }
+        Trace trace = new Trace(json.path("traceId").asText(), json.path("pr").asText(), json.path("sha").asText(),
+                json.path("start").asLong(), 0);
+        synchronized (trace) {
+            for (JsonNode spanJson : json.get("spans")) {
+                Span span = trace.new Span(spanJson.path(0).asInt(), spanJson.path(1).asInt(),
+                        spanJson.path(2).asText(), spanJson.has(5) ? spanJson.get(5).asText() : null,
+                        TimeUnit.MICROSECONDS.toNanos(spanJson.path(3).asLong()), false);
+                span.durationNanos = TimeUnit.MICROSECONDS.toNanos(spanJson.path(4).asLong());
+                trace.spans.add(span);
+            }
+        }
+        return trace;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * A timed operation of a run. Closing a span ends it and makes its parent the current span again.
+     */
+    class Span implements AutoCloseable {
+        private final int id;
+        private final int parentId;
+        private final String name;
+        private final String detail;
+        private final long startNanos;
+        // Guarded by the enclosing Trace, negative while the span is open.
+        private long durationNanos = -1;
+        // The JfrSpanEvent of this span (typed as Object so that JFR is only loaded when it is available).
+        private final Object jfrEvent;
+
+        private Span(int id, int parentId, String name, String detail, long startNanos, boolean recording) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            this.detail = detail;
+            this.startNanos = startNanos;
+            this.jfrEvent = recording && JFR_AVAILABLE ? JfrSpanEvent.startEvent() : null;
+        }
+
+        private Trace trace() {
+            return Trace.this;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        int getParentId() {
+            return parentId;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns what this span did (e.g. the command line of a process), or {@code null}.
+         */
+        String getDetail() {
+            return detail;
+        }
+
+        /**
+         * Returns when this span started, in nanoseconds since the start of the trace.
+         */
+        long getStartNanos() {
+            return startNanos - Trace.this.startNanos;
+        }
+
+        long getDurationNanos() {
+            synchronized (Trace.this) {
+                return Math.max(durationNanos, 0);
+            }
+        }
+
+        private void end(long now) {
+            durationNanos = now - startNanos;
+            if (jfrEvent != null) {
+                JfrSpanEvent.commitEvent(jfrEvent, traceId, prNum, id, parentId, name, detail);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (this == NO_SPAN) {
+                return;
+            }
+            synchronized (Trace.this) {
+                if (durationNanos >= 0) {
+                    return;
+                }
+                end(System.nanoTime());
+            }
+            if (currentSpan.get() == this) {
+                Span parent = null;
+                synchronized (Trace.this) {
+                    for (Span span : spans) {
+                        if (span.id == parentId) {
+                            parent = span;
+                            break;
+                        }
+                    }
+                }
+                if (parent != null) {
+                    currentSpan.set(parent);
+                } else {
+                    currentSpan.remove();
+                }
+            }
+        }
+    }
+}
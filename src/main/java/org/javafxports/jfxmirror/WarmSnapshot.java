@@ -0,0 +1,234 @@
+package org.javafxports.jfxmirror;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A snapshot of the in-memory caches of jfxmirror_bot (e.g. {@link JbsIssueCache}, {@link StatusPageCache}),
+ * saved periodically and on shutdown, so that after a restart (e.g. a deploy) they are as warm as before it
+ * instead of every first request missing them.
+ * <p>
+ * The snapshot is a compact binary file made of named sections, one for each cache, which writes and reads
+ * its own section. It ends with a CRC32 of its contents: a snapshot that is truncated or corrupt is ignored
+ * (the caches start cold). The file is read in the background while the repositories are being opened,
+ * and restored once the caches exist.
+ */
+class WarmSnapshot {
+
+    private static final int MAGIC = 0x4A46584D; // "JFXM"
+    private static final int VERSION = 1;
+    private static final long SAVE_INTERVAL_MINUTES = 10;
+
+    private final Path snapshotPath;
+    // Guarded by "this".
+    private final Map<String, SectionWriter> sections = new LinkedHashMap<>();
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "warmSnapshotSaver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Logger logger = LoggerFactory.getLogger(WarmSnapshot.class);
+
+    WarmSnapshot(Path snapshotPath) {
+        Objects.requireNonNull(snapshotPath, "snapshotPath must not be null");
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * Reads the snapshot at the given {@code snapshotPath} on a background thread. The returned future never
+     * completes exceptionally: if there is no snapshot or it can not be read, it has no sections.
+     */
+    static CompletableFuture<Loaded> load(Path snapshotPath) {
+        Objects.requireNonNull(snapshotPath, "snapshotPath must not be null");
+        CompletableFuture<Loaded> loaded = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                loaded.complete(read(snapshotPath));
+            } catch (IOException | RuntimeException e) {
+                logger.error("\u2718 Could not read warm snapshot, caches will start cold: " + snapshotPath);
+                logger.debug("exception: ", e);
+                loaded.complete(new Loaded(Collections.emptyMap(), 0));
+            }
+        }, "warmSnapshotLoader");
+        loader.setDaemon(true);
+        loader.start();
+        return loaded;
+    }
+
+    private static Loaded read(Path snapshotPath) throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return new Loaded(Collections.emptyMap(), 0);
+        }
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong()) {
+            throw new IOException("snapshot checksum does not match");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0,
+                bytes.length - Long.BYTES))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version: " + version);
+            }
+            long savedMillis = in.readLong();
+            int sectionCount = in.readInt();
+            Map<String, byte[]> sections = new HashMap<>();
+            for (int i = 0; i < sectionCount; i++) {
+                String name = in.readUTF();
+                byte[] section = new byte[in.readInt()];
+                in.readFully(section);
+                sections.put(name, section);
+            }
+            return new Loaded(sections, savedMillis);
+        }
+    }
+
+    /**
+     * Adds a section with the given {@code name}, written by {@code writer}, to the snapshots saved from now on.
+     */
+    synchronized void register(String name, SectionWriter writer) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(writer, "writer must not be null");
+        sections.put(name, writer);
+    }
+
+    /**
+     * Starts saving the snapshot periodically.
+     */
+    void start() {
+        saver.scheduleWithFixedDelay(this::saveQuietly, SAVE_INTERVAL_MINUTES, SAVE_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops saving the snapshot periodically, and saves it one last time.
+     */
+    void stop() {
+        saver.shutdownNow();
+        saveQuietly();
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            logger.error("\u2718 Could not save warm snapshot: " + snapshotPath);
+            logger.debug("exception: ", e);
+        }
+    }
+
+    /**
+     * Writes every section to the snapshot, replacing the previous one atomically.
+     */
+    synchronized void save() throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(sections.size());
+            ByteArrayOutputStream section = new ByteArrayOutputStream();
+            for (Map.Entry<String, SectionWriter> entry : sections.entrySet()) {
+                section.reset();
+                try (DataOutputStream sectionOut = new DataOutputStream(section)) {
+                    entry.getValue().write(sectionOut);
+                }
+                out.writeUTF(entry.getKey());
+                out.writeInt(section.size());
+                section.writeTo(out);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        new DataOutputStream(bytes).writeLong(crc.getValue());
+
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        Files.write(tempPath, bytes.toByteArray());
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Saved warm snapshot ({} bytes) in {} ms.", bytes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Writes the section of a cache.
+     */
+    @FunctionalInterface
+    interface SectionWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the section of a cache (as written by its {@link SectionWriter}).
+     */
+    @FunctionalInterface
+    interface SectionReader {
+        void read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * The sections of a snapshot that was read on startup.
+     */
+    static class Loaded {
+        private final Map<String, byte[]> sections;
+        private final long savedMillis;
+
+        private Loaded(Map<String, byte[]> sections, long savedMillis) {
+            this.sections = sections;
+            this.savedMillis = savedMillis;
+        }
+
+        /**
+         * Restores the section with the given {@code name} (if the snapshot has it) with {@code reader}. A
+         * section that can not be read is skipped, that cache starts cold.
+         */
+        void restore(String name, SectionReader reader) {
+            Objects.requireNonNull(name, "name must not be null");
+            Objects.requireNonNull(reader, "reader must not be null");
+            byte[] section = sections.get(name);
+            if (section == null) {
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(section))) {
+                reader.read(in);
+            } catch (IOException e) {
+                logger.error("\u2718 Could not restore \"" + name + "\" from warm snapshot.");
+                logger.debug("exception: ", e);
+            }
+        }
+
+        /**
+         * Returns when the snapshot was saved (in epoch millis), or 0 if there was no snapshot.
+         */
+        long getSavedMillis() {
+            return savedMillis;
+        }
+    }
+}
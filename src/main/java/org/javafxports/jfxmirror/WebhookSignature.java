@@ -0,0 +1,119 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Verifies the "X-Hub-Signature" header that GitHub sends with each webhook event (the hex encoded
+ * HMAC-SHA1 of the payload, keyed with the webhook's secret), so that events that did not come from GitHub
+ * are rejected.
+ * <p>
+ * The payload is read exactly once: the HMAC is updated with each chunk as it is read, so the bytes that
+ * are verified are the same bytes that are later parsed.
+ */
+class WebhookSignature {
+
+    /**
+     * GitHub caps webhook payloads at 25 MB.
+     */
+    static final int MAX_PAYLOAD_BYTES = 25 * 1024 * 1024;
+    private static final String ALGORITHM = "HmacSHA1";
+    private static final String SIGNATURE_PREFIX = "sha1=";
+
+    private final SecretKeySpec key;
+
+    WebhookSignature(String secret) {
+        Objects.requireNonNull(secret, "secret must not be null");
+        this.key = new SecretKeySpec(secret.getBytes(UTF_8), ALGORITHM);
+    }
+
+    /**
+     * Reads the given webhook {@code payload} and verifies it against the given {@code signatureHeader}.
+     *
+     * @param contentLength the length of the payload, or -1 if not known
+     * @throws InvalidSignatureException if the signature is missing or does not match the payload
+     */
+    byte[] readVerified(InputStream payload, int contentLength, String signatureHeader) throws IOException {
+        Objects.requireNonNull(payload, "payload must not be null");
+        if (signatureHeader == null || !signatureHeader.startsWith(SIGNATURE_PREFIX)) {
+            throw new InvalidSignatureException("missing \"X-Hub-Signature\" header");
+        }
+        Mac mac;
+        try {
+            mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IOException("could not initialize " + ALGORITHM, e);
+        }
+        byte[] bytes = read(payload, contentLength, mac);
+        byte[] expected = mac.doFinal();
+        byte[] actual = decodeHex(signatureHeader.substring(SIGNATURE_PREFIX.length()));
+        // Compare in constant time, so the expected signature can not be guessed byte by byte.
+        if (actual == null || !MessageDigest.isEqual(expected, actual)) {
+            throw new InvalidSignatureException("\"X-Hub-Signature\" does not match payload");
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the given webhook {@code payload} without verifying it (used when no webhook secret is
+     * configured).
+     */
+    static byte[] readUnverified(InputStream payload, int contentLength) throws IOException {
+        Objects.requireNonNull(payload, "payload must not be null");
+        return read(payload, contentLength, null);
+    }
+
+    private static byte[] read(InputStream payload, int contentLength, Mac mac) throws IOException {
+        if (contentLength > MAX_PAYLOAD_BYTES) {
+            throw new IOException("payload is larger than " + MAX_PAYLOAD_BYTES + " bytes");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(contentLength > 0 ? contentLength : 8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = payload.read(buffer)) != -1) {
+            if (bytes.size() + read > MAX_PAYLOAD_BYTES) {
+                throw new IOException("payload is larger than " + MAX_PAYLOAD_BYTES + " bytes");
+            }
+            if (mac != null) {
+                mac.update(buffer, 0, read);
+            }
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decodeHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high == -1 || low == -1) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    static class InvalidSignatureException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidSignatureException(String message) {
+            super(message);
+        }
+    }
+}
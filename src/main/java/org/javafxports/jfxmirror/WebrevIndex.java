@@ -0,0 +1,250 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A per-file index into the changeset of an imported pull request. Together with the changeset it is
+ * all that is stored for a webrev when jfxmirror_bot runs with lazy webrevs enabled - the individual
+ * webrev pages are rendered (by {@link WebrevRenderer}) from the indexed sections of the changeset the
+ * first time they are requested.
+ * <p>
+ * The index is written next to the changeset ("webrev.changeset") as "webrev.idx" and contains one line
+ * per changed file of the form:
+ * <p>
+ * {@code path<TAB>status<TAB>offset<TAB>length<TAB>linesAdded<TAB>linesRemoved}
+ * <p>
+ * Where {@code offset} and {@code length} locate (in bytes) the section of the changeset for that file.
+ */
+class WebrevIndex {
+
+    static final String CHANGESET_FILE = "webrev.changeset";
+    static final String INDEX_FILE = "webrev.idx";
+    private static final String DIFF_PREFIX = "diff --git ";
+
+    private final Path changesetPath;
+    private final long headerLength;
+    private final Map<String, Entry> entries;
+
+    private WebrevIndex(Path changesetPath, long headerLength, Map<String, Entry> entries) {
+        this.changesetPath = changesetPath;
+        this.headerLength = headerLength;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns {@code true} if the given per-SHA directory (e.g. ~/jfxmirror/pr/{num}/{sha}) contains a
+     * lazy webrev (i.e. a changeset and its index).
+     */
+    static boolean exists(Path shaDir) {
+        return Files.exists(shaDir.resolve(INDEX_FILE)) && Files.exists(shaDir.resolve(CHANGESET_FILE));
+    }
+
+    /**
+     * Indexes the changeset "webrev.changeset" contained in the given {@code shaDir} (which must be a git-style
+     * extended diff, as produced by "hg export --git") and writes the index to "webrev.idx" inside of
+     * {@code shaDir}.
+     */
+    static WebrevIndex create(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+
+        Path changesetPath = shaDir.resolve(CHANGESET_FILE);
+        byte[] changeset = Files.readAllBytes(changesetPath);
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        long headerLength = changeset.length;
+
+        int lineStart = 0;
+        Entry.Builder current = null;
+        boolean inHunks = false;
+        while (lineStart < changeset.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < changeset.length && changeset[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            String line = new String(changeset, lineStart, lineEnd - lineStart, UTF_8);
+            if (line.startsWith(DIFF_PREFIX)) {
+                if (current == null) {
+                    headerLength = lineStart;
+                } else {
+                    Entry entry = current.build(lineStart);
+                    entries.put(entry.getPath(), entry);
+                }
+                current = new Entry.Builder(parsePath(line), lineStart);
+                inHunks = false;
+            } else if (current != null) {
+                if (line.startsWith("@@")) {
+                    inHunks = true;
+                } else if (!inHunks) {
+                    if (line.startsWith("new file mode")) {
+                        current.status = "A";
+                    } else if (line.startsWith("deleted file mode")) {
+                        current.status = "D";
+                    } else if (line.startsWith("rename from") || line.startsWith("copy from")) {
+                        current.status = "R";
+                    }
+                } else if (line.startsWith("+")) {
+                    current.linesAdded++;
+                } else if (line.startsWith("-")) {
+                    current.linesRemoved++;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (current != null) {
+            Entry entry = current.build(changeset.length);
+            entries.put(entry.getPath(), entry);
+        }
+
+        StringBuilder indexBuilder = new StringBuilder();
+        indexBuilder.append(headerLength).append('\n');
+        for (Entry entry : entries.values()) {
+            indexBuilder.append(entry.getPath()).append('\t')
+                    .append(entry.getStatus()).append('\t')
+                    .append(entry.offset).append('\t')
+                    .append(entry.length).append('\t')
+                    .append(entry.getLinesAdded()).append('\t')
+                    .append(entry.getLinesRemoved()).append('\n');
+        }
+        Path tempFile = shaDir.resolve(INDEX_FILE + ".tmp");
+        Files.write(tempFile, indexBuilder.toString().getBytes(UTF_8));
+        Files.move(tempFile, shaDir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return new WebrevIndex(changesetPath, headerLength, entries);
+    }
+
+    /**
+     * Reads the index "webrev.idx" contained in the given {@code shaDir}.
+     */
+    static WebrevIndex read(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+
+        List<String> lines = Files.readAllLines(shaDir.resolve(INDEX_FILE), UTF_8);
+        if (lines.isEmpty()) {
+            throw new IOException("webrev index malformed (missing header length): " + shaDir.resolve(INDEX_FILE));
+        }
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            long headerLength = Long.parseLong(lines.get(0));
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split("\t");
+                if (fields.length != 6) {
+                    throw new IOException("webrev index malformed (expecting 6 fields): " + line);
+                }
+                entries.put(fields[0], new Entry(fields[0], fields[1], Long.parseLong(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5])));
+            }
+            return new WebrevIndex(shaDir.resolve(CHANGESET_FILE), headerLength, entries);
+        } catch (NumberFormatException e) {
+            throw new IOException("webrev index malformed: " + shaDir.resolve(INDEX_FILE), e);
+        }
+    }
+
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    Entry getEntry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Returns the changeset header (the "# HG changeset patch" lines and the commit message).
+     */
+    String readHeader() throws IOException {
+        return read(0, (int) headerLength);
+    }
+
+    /**
+     * Returns the section of the changeset (the git-style diff) for the given {@code entry}.
+     */
+    String readSection(Entry entry) throws IOException {
+        Objects.requireNonNull(entry, "entry must not be null");
+        return read(entry.offset, entry.length);
+    }
+
+    private String read(long offset, int length) throws IOException {
+        byte[] section = new byte[length];
+        try (RandomAccessFile changeset = new RandomAccessFile(changesetPath.toFile(), "r")) {
+            changeset.seek(offset);
+            changeset.readFully(section);
+        }
+        return new String(section, UTF_8);
+    }
+
+    /**
+     * Extracts the (new) path of the file from a "diff --git a/{path} b/{path}" line.
+     */
+    private static String parsePath(String diffLine) {
+        String paths = diffLine.substring(DIFF_PREFIX.length());
+        int newPathIndex = paths.lastIndexOf(" b/");
+        if (newPathIndex == -1) {
+            return paths;
+        }
+        return paths.substring(newPathIndex + 3);
+    }
+
+    static class Entry {
+        private final String path;
+        private final String status;
+        private final long offset;
+        private final int length;
+        private final int linesAdded;
+        private final int linesRemoved;
+
+        private Entry(String path, String status, long offset, int length, int linesAdded, int linesRemoved) {
+            this.path = path;
+            this.status = status;
+            this.offset = offset;
+            this.length = length;
+            this.linesAdded = linesAdded;
+            this.linesRemoved = linesRemoved;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns one of "M" (modified), "A" (added), "D" (deleted), or "R" (renamed/copied).
+         */
+        String getStatus() {
+            return status;
+        }
+
+        int getLinesAdded() {
+            return linesAdded;
+        }
+
+        int getLinesRemoved() {
+            return linesRemoved;
+        }
+
+        private static class Builder {
+            private final String path;
+            private final long offset;
+            private String status = "M";
+            private int linesAdded;
+            private int linesRemoved;
+
+            private Builder(String path, long offset) {
+                this.path = path;
+                this.offset = offset;
+            }
+
+            private Entry build(long end) {
+                return new Entry(path, status, offset, (int) (end - offset), linesAdded, linesRemoved);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A two-level (in-memory and on-disk) LRU cache of lazily rendered webrev pages.
+ * <p>
+ * Pages are keyed by their path relative to ~/jfxmirror/pr (e.g. "{num}/{sha}/webrev/index.html"). The
+ * in-memory level is bounded by the total size of the cached pages, as is the on-disk level (which uses
+ * the last modified time of each cached file to track when it was last used). The pages of a SHA are
+ * evicted (see {@link #evict(String, String)}) when its webrev is generated again.
+ */
+class WebrevPageCache {
+
+    private final Path cacheDir;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final Map<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes = -1;
+    private static final Logger logger = LoggerFactory.getLogger(WebrevPageCache.class);
+
+    WebrevPageCache(Path cacheDir, long maxMemoryBytes, long maxDiskBytes) {
+        Objects.requireNonNull(cacheDir, "cacheDir must not be null");
+        this.cacheDir = cacheDir;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * Returns the page with the given {@code key}, rendering it with the given {@code renderer} (and caching
+     * the result) if it is not in either level of the cache.
+     *
+     * @return the page or {@code null} if the page is not cached and {@code renderer} returned {@code null}
+     */
+    byte[] get(String key, PageRenderer renderer) throws IOException {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(renderer, "renderer must not be null");
+
+        synchronized (memory) {
+            byte[] page = memory.get(key);
+            if (page != null) {
+                return page;
+            }
+        }
+
+        Path diskPath = cacheDir.resolve(key).normalize();
+        if (!diskPath.startsWith(cacheDir)) {
+            return null;
+        }
+        byte[] page;
+        if (Files.isRegularFile(diskPath)) {
+            page = Files.readAllBytes(diskPath);
+            // Touch the file so that disk eviction knows it was recently used.
+            diskPath.toFile().setLastModified(System.currentTimeMillis());
+        } else {
+            page = renderer.render();
+            if (page == null) {
+                return null;
+            }
+            writeToDisk(diskPath, page);
+        }
+
+        putInMemory(key, page);
+        return page;
+    }
+
+    /**
+     * Evicts the pages of the webrev of the given {@code sha} of PR #{@code prNum} from both levels of the
+     * cache (before the webrev is generated again).
+     */
+    void evict(String prNum, String sha) throws IOException {
+        Objects.requireNonNull(prNum, "prNum must not be null");
+        Objects.requireNonNull(sha, "sha must not be null");
+
+        String keyPrefix = prNum + "/" + sha + "/";
+        synchronized (memory) {
+            for (Iterator<Map.Entry<String, byte[]>> entries = memory.entrySet().iterator(); entries.hasNext(); ) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                if (entry.getKey().startsWith(keyPrefix)) {
+                    memoryBytes -= entry.getValue().length;
+                    entries.remove();
+                }
+            }
+        }
+        Path shaDir = cacheDir.resolve(prNum).resolve(sha).normalize();
+        if (!shaDir.startsWith(cacheDir)) {
+            return;
+        }
+        synchronized (this) {
+            List<Path> paths;
+            try (Stream<Path> walk = Files.walk(shaDir)) {
+                paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            } catch (NoSuchFileException e) {
+                return;
+            }
+            for (Path path : paths) {
+                long size = Files.isRegularFile(path) ? Files.size(path) : 0;
+                if (Files.deleteIfExists(path) && diskBytes != -1) {
+                    diskBytes -= size;
+                }
+            }
+        }
+    }
+
+    private void putInMemory(String key, byte[] page) {
+        if (page.length > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            byte[] previous = memory.put(key, page);
+            if (previous != null) {
+                memoryBytes -= previous.length;
+            }
+            memoryBytes += page.length;
+            Iterator<byte[]> leastRecentlyUsed = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && leastRecentlyUsed.hasNext()) {
+                memoryBytes -= leastRecentlyUsed.next().length;
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    private synchronized void writeToDisk(Path diskPath, byte[] page) throws IOException {
+        if (diskBytes == -1) {
+            diskBytes = sizeOnDisk();
+        }
+        Files.createDirectories(diskPath.getParent());
+        // Write to a temporary file first so that a concurrent reader never sees a partially written page.
+        Path tempPath = Files.createTempFile(diskPath.getParent(), "page", ".tmp");
+        Files.write(tempPath, page);
+        // A page rendered by two requests at once is written twice, only count it once.
+        long replacedBytes = Files.isRegularFile(diskPath) ? Files.size(diskPath) : 0;
+        Files.move(tempPath, diskPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        diskBytes += page.length - replacedBytes;
+        if (diskBytes > maxDiskBytes) {
+            evictFromDisk();
+        }
+    }
+
+    /**
+     * Deletes the least recently used pages from disk until the cache is at 90% of its maximum size.
+     */
+    private void evictFromDisk() throws IOException {
+        List<Path> pages;
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            pages = files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .collect(Collectors.toList());
+        }
+        long target = maxDiskBytes * 9 / 10;
+        int evicted = 0;
+        for (Path page : pages) {
+            if (diskBytes <= target) {
+                break;
+            }
+            long size = Files.size(page);
+            Files.deleteIfExists(page);
+            diskBytes -= size;
+            evicted++;
+        }
+        logger.debug("Evicted " + evicted + " webrev page(s) from disk cache.");
+    }
+
+    private long sizeOnDisk() throws IOException {
+        if (!Files.exists(cacheDir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    @FunctionalInterface
+    interface PageRenderer {
+        byte[] render() throws IOException;
+    }
+}
@@ -0,0 +1,250 @@
+package org.javafxports.jfxmirror;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders individual webrev pages from a {@link WebrevIndex}. Only the pages that make sense without
+ * having the full contents of each changed file are supported (which webrev.ksh has at hand because it
+ * runs against the repository):
+ * <ul>
+ * <li>{@code index.html} - lists each changed file with links to its pages.
+ * <li>{@code {path}.sdiff.html} - side-by-side diff of each hunk.
+ * <li>{@code {path}.udiff.html} - unified diff.
+ * <li>{@code {path}.patch} - the raw patch for the file.
+ * </ul>
+ */
+class WebrevRenderer {
+
+    private static final Pattern HUNK_PATTERN = Pattern.compile("^@@ -(\\d+)(?:,\\d+)? \\+(\\d+)(?:,\\d+)? @@.*");
+    private static final String SDIFF = ".sdiff.html";
+    private static final String UDIFF = ".udiff.html";
+    private static final String PATCH = ".patch";
+
+    private WebrevRenderer() {}
+
+    /**
+     * Renders the webrev page with the given {@code page} name (relative to the webrev directory, such as
+     * "index.html" or "modules/javafx.base/src/main/java/javafx/util/Pair.java.sdiff.html").
+     *
+     * @return the rendered page or {@code null} if there is no such page
+     */
+    static byte[] render(WebrevIndex index, String page, String prNum, String prShaHead) throws IOException {
+        Objects.requireNonNull(index, "index must not be null");
+        Objects.requireNonNull(page, "page must not be null");
+
+        if (page.isEmpty() || page.equals("index.html")) {
+            return renderIndex(index, prNum, prShaHead).getBytes(UTF_8);
+        }
+
+        WebrevIndex.Entry entry;
+        if (page.endsWith(SDIFF) && (entry = index.getEntry(strip(page, SDIFF))) != null) {
+            return renderSdiff(entry, index.readSection(entry)).getBytes(UTF_8);
+        } else if (page.endsWith(UDIFF) && (entry = index.getEntry(strip(page, UDIFF))) != null) {
+            return renderUdiff(entry, index.readSection(entry)).getBytes(UTF_8);
+        } else if (page.endsWith(PATCH) && (entry = index.getEntry(strip(page, PATCH))) != null) {
+            return index.readSection(entry).getBytes(UTF_8);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the names of all of the pages that can be rendered for the given {@code index}.
+     */
+    static List<String> pages(WebrevIndex index) {
+        List<String> pages = new ArrayList<>();
+        pages.add("index.html");
+        for (WebrevIndex.Entry entry : index.getEntries()) {
+            pages.add(entry.getPath() + SDIFF);
+            pages.add(entry.getPath() + UDIFF);
+            pages.add(entry.getPath() + PATCH);
+        }
+        return pages;
+    }
+
+    private static String renderIndex(WebrevIndex index, String prNum, String prShaHead) throws IOException {
+        StringBuilder html = new StringBuilder();
+        int totalAdded = 0;
+        int totalRemoved = 0;
+        for (WebrevIndex.Entry entry : index.getEntries()) {
+            totalAdded += entry.getLinesAdded();
+            totalRemoved += entry.getLinesRemoved();
+        }
+        html.append(header("Webrev: PR #" + prNum + " (" + prShaHead + ")"))
+                .append("    <h2>Webrev: PR #").append(escape(prNum)).append(" (").append(escape(prShaHead))
+                .append(")</h2>\n")
+                .append("    <pre>").append(escape(index.readHeader().trim())).append("</pre>\n")
+                .append("    <p>").append(index.getEntries().size()).append(" file(s) changed, ")
+                .append(totalAdded).append(" line(s) added, ").append(totalRemoved).append(" line(s) removed")
+                .append(" | <a href=\"../").append(WebrevIndex.CHANGESET_FILE).append("\">Changeset</a></p>\n")
+                .append("    <table>\n");
+        for (WebrevIndex.Entry entry : index.getEntries()) {
+            String path = escape(entry.getPath());
+            // Links start with "./" so that a path of the PR (such as "javascript:...") is never a URL scheme.
+            html.append("      <tr><td>").append(escape(entry.getStatus())).append("</td><td>")
+                    .append("<a href=\"./").append(path).append(SDIFF).append("\">Sdiff</a> ")
+                    .append("<a href=\"./").append(path).append(UDIFF).append("\">Udiff</a> ")
+                    .append("<a href=\"./").append(path).append(PATCH).append("\">Patch</a></td><td>")
+                    .append(path).append("</td><td>+").append(entry.getLinesAdded()).append(" -")
+                    .append(entry.getLinesRemoved()).append("</td></tr>\n");
+        }
+        html.append("    </table>\n").append(footer());
+        return html.toString();
+    }
+
+    private static String renderUdiff(WebrevIndex.Entry entry, String section) {
+        StringBuilder html = new StringBuilder();
+        html.append(header(entry.getPath()))
+                .append("    <p>").append(indexLink(entry)).append("</p>\n")
+                .append("    <h2>").append(escape(entry.getPath())).append("</h2>\n")
+                .append("    <pre>\n");
+        for (String line : section.split("\n")) {
+            html.append(styledLine(line)).append('\n');
+        }
+        html.append("    </pre>\n").append(footer());
+        return html.toString();
+    }
+
+    private static String renderSdiff(WebrevIndex.Entry entry, String section) {
+        StringBuilder html = new StringBuilder();
+        html.append(header(entry.getPath()))
+                .append("    <p>").append(indexLink(entry)).append("</p>\n")
+                .append("    <h2>").append(escape(entry.getPath())).append("</h2>\n")
+                .append("    <table style=\"width:100%;font-family:monospace;white-space:pre\">\n");
+
+        int oldLine = 0;
+        int newLine = 0;
+        boolean inHunks = false;
+        List<String> removed = new ArrayList<>();
+        List<String> added = new ArrayList<>();
+        for (String line : section.split("\n")) {
+            Matcher hunkMatcher = HUNK_PATTERN.matcher(line);
+            if (hunkMatcher.matches()) {
+                flushChanges(html, removed, added, oldLine, newLine);
+                removed.clear();
+                added.clear();
+                oldLine = Integer.parseInt(hunkMatcher.group(1));
+                newLine = Integer.parseInt(hunkMatcher.group(2));
+                inHunks = true;
+                html.append("      <tr><td colspan=\"2\"><hr></td></tr>\n");
+                continue;
+            }
+            if (!inHunks || line.startsWith("\\")) {
+                continue;
+            }
+            if (line.startsWith("-")) {
+                removed.add(line.substring(1));
+            } else if (line.startsWith("+")) {
+                added.add(line.substring(1));
+            } else {
+                flushChanges(html, removed, added, oldLine, newLine);
+                oldLine += removed.size();
+                newLine += added.size();
+                removed.clear();
+                added.clear();
+                String context = line.isEmpty() ? "" : escape(line.substring(1));
+                html.append("      <tr><td>").append(oldLine++).append(' ').append(context)
+                        .append("</td><td>").append(newLine++).append(' ').append(context).append("</td></tr>\n");
+            }
+        }
+        flushChanges(html, removed, added, oldLine, newLine);
+        html.append("    </table>\n").append(footer());
+        return html.toString();
+    }
+
+    /**
+     * Pairs up a run of removed lines with the run of added lines that directly follows it (if any) so that
+     * changed lines are shown next to each other.
+     */
+    private static void flushChanges(StringBuilder html, List<String> removed, List<String> added,
+                                     int oldLine, int newLine) {
+        for (int i = 0; i < Math.max(removed.size(), added.size()); i++) {
+            html.append("      <tr><td style=\"color:red\">");
+            if (i < removed.size()) {
+                html.append(oldLine + i).append(' ').append(escape(removed.get(i)));
+            }
+            html.append("</td><td style=\"color:blue\">");
+            if (i < added.size()) {
+                html.append(newLine + i).append(' ').append(escape(added.get(i)));
+            }
+            html.append("</td></tr>\n");
+        }
+    }
+
+    private static String styledLine(String line) {
+        if (line.startsWith("+") && !line.startsWith("+++")) {
+            return "<span style=\"color:blue\">" + escape(line) + "</span>";
+        } else if (line.startsWith("-") && !line.startsWith("---")) {
+            return "<span style=\"color:red\">" + escape(line) + "</span>";
+        } else if (line.startsWith("@@")) {
+            return "<span style=\"color:purple\">" + escape(line) + "</span>";
+        }
+        return escape(line);
+    }
+
+    /**
+     * Returns a link back to the webrev index page from the pages of the given {@code entry}, taking into
+     * account how deep the entry's path is.
+     */
+    private static String indexLink(WebrevIndex.Entry entry) {
+        StringBuilder relative = new StringBuilder();
+        for (int i = 0; i < entry.getPath().length(); i++) {
+            if (entry.getPath().charAt(i) == '/') {
+                relative.append("../");
+            }
+        }
+        return "<a href=\"" + relative + "index.html\">Index</a> | <a href=\"./" +
+                escape(entry.getPath().substring(entry.getPath().lastIndexOf('/') + 1)) + PATCH + "\">Patch</a>";
+    }
+
+    private static String header(String title) {
+        return "<!DOCTYPE html>\n" +
+                "<html>\n" +
+                "  <head>\n" +
+                "    <meta charset=\"UTF-8\">\n" +
+                "    <title>" + escape(title) + "</title>\n" +
+                "  </head>\n" +
+                "  <body>\n";
+    }
+
+    private static String footer() {
+        return "  </body>\n</html>\n";
+    }
+
+    private static String strip(String page, String suffix) {
+        return page.substring(0, page.length() - suffix.length());
+    }
+
+    static String escape(String string) {
+        StringBuilder escaped = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\'':
+                    escaped.append("&#39;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,255 @@
+package org.javafxports.jfxmirror;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds "webrev.zip" on request by streaming the webrev of a PR through a {@link ZipOutputStream}, so that
+ * no zip file needs to be kept on disk for each SHA.
+ * <p>
+ * Entries are written in a stable order with stable timestamps so that the zip is identical every time it
+ * is built, which allows the content length to be computed once and then cached (for HEAD requests and the
+ * "Content-Length" header). A cached length is only used while the webrev it was computed from is
+ * unchanged (a SHA that is checked again gets a new webrev), and is dropped when the webrev is regenerated.
+ * Entries that are already compressed (such as images) are stored rather than deflated.
+ */
+class WebrevZip {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "zip", "gz", "jar", "png", "jpg", "jpeg", "gif"));
+    private static final int MAX_CACHED_LENGTHS = 1024;
+    private static final Map<Path, CachedLength> contentLengths =
+            new LinkedHashMap<Path, CachedLength>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, CachedLength> eldest) {
+            return size() > MAX_CACHED_LENGTHS;
+        }
+    };
+
+    private WebrevZip() {}
+
+    /**
+     * Returns {@code true} if there is a webrev (either generated by webrev.ksh or lazy) for the given
+     * per-SHA directory (e.g. ~/jfxmirror/pr/{num}/{sha}).
+     */
+    static boolean exists(Path shaDir) {
+        return Files.isDirectory(shaDir.resolve("webrev")) || WebrevIndex.exists(shaDir);
+    }
+
+    /**
+     * Writes the webrev of the given per-SHA directory as a zip to the given {@code out} stream (or, if
+     * {@code out} is {@code null}, only determines the length of the zip).
+     */
+    static void write(Path shaDir, OutputStream out) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+
+        // Taken before the zip is built, so that a webrev regenerated meanwhile does not get the old length.
+        String webrevStamp = webrevStamp(shaDir);
+        CountingOutputStream counter = new CountingOutputStream(out);
+        ZipOutputStream zip = new ZipOutputStream(counter);
+        Path webrevDir = shaDir.resolve("webrev");
+        if (Files.isDirectory(webrevDir)) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(webrevDir)) {
+                files = walk.filter(Files::isRegularFile)
+                        // Leave out the precompressed variants that are only there to be served.
+                        .filter(file -> !file.getFileName().toString().endsWith(".gz"))
+                        .sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String name = "webrev/" + webrevDir.relativize(file).toString().replace('\\', '/');
+                writeEntry(zip, name, file);
+            }
+        } else {
+            // A lazy webrev - render every page (going through the page cache so they are only rendered once).
+            WebrevIndex webrevIndex = WebrevIndex.read(shaDir);
+            long lastModified = Files.getLastModifiedTime(shaDir.resolve(WebrevIndex.INDEX_FILE)).toMillis();
+            String prNum = shaDir.getParent().getFileName().toString();
+            String prShaHead = shaDir.getFileName().toString();
+            for (String page : WebrevRenderer.pages(webrevIndex)) {
+                WebrevPageCache.PageRenderer renderer = () -> WebrevRenderer.render(
+                        webrevIndex, page, prNum, prShaHead);
+                byte[] contents = Bot.webrevPageCache == null ? renderer.render() :
+                        Bot.webrevPageCache.get(prNum + "/" + prShaHead + "/webrev/" + page, renderer);
+                writeEntry(zip, "webrev/" + page, contents, lastModified);
+            }
+        }
+        zip.finish();
+        zip.flush();
+        if (webrevStamp != null) {
+            synchronized (contentLengths) {
+                contentLengths.put(shaDir, new CachedLength(webrevStamp, counter.count));
+            }
+        }
+    }
+
+    /**
+     * Returns the length (in bytes) of the zip of the webrev of the given per-SHA directory, or {@code null}
+     * if the zip has not been built yet (since the last restart, or since the webrev changed).
+     */
+    static Long cachedContentLength(Path shaDir) throws IOException {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+
+        CachedLength cached;
+        synchronized (contentLengths) {
+            cached = contentLengths.get(shaDir);
+        }
+        if (cached == null || !cached.webrevStamp.equals(webrevStamp(shaDir))) {
+            return null;
+        }
+        return cached.length;
+    }
+
+    /**
+     * Drops the cached length of the zip of the webrev of the given per-SHA directory, which is about to be
+     * regenerated.
+     */
+    static void invalidate(Path shaDir) {
+        Objects.requireNonNull(shaDir, "shaDir must not be null");
+
+        synchronized (contentLengths) {
+            contentLengths.remove(shaDir);
+        }
+    }
+
+    /**
+     * Returns a stamp (size and last modified time) of the file the webrev of the given per-SHA directory is
+     * built from ("index.html", which webrev.ksh writes last, or the lazy webrev index), or {@code null} if
+     * there is no webrev.
+     */
+    private static String webrevStamp(Path shaDir) throws IOException {
+        Path stampFile = shaDir.resolve("webrev").resolve("index.html");
+        if (!Files.exists(stampFile)) {
+            stampFile = shaDir.resolve(WebrevIndex.INDEX_FILE);
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(stampFile, BasicFileAttributes.class);
+            return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the length (in bytes) of the zip of the webrev of the given per-SHA directory. The length is
+     * only computed (by building the zip and discarding it) if the zip has not been built yet.
+     */
+    static long contentLength(Path shaDir) throws IOException {
+        Long contentLength = cachedContentLength(shaDir);
+        if (contentLength != null) {
+            return contentLength;
+        }
+        CountingOutputStream counter = new CountingOutputStream(null);
+        write(shaDir, counter);
+        return counter.count;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, Path file) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(Files.getLastModifiedTime(file).toMillis());
+        if (isCompressed(name)) {
+            // Stored entries must have their size and CRC set before they are written, so the file is read twice.
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[8192];
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+            long size = Files.size(file);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        Files.copy(file, zip);
+        zip.closeEntry();
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, byte[] contents, long lastModified)
+            throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(lastModified);
+        if (isCompressed(name)) {
+            CRC32 crc = new CRC32();
+            crc.update(contents);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(contents.length);
+            entry.setCompressedSize(contents.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(contents);
+        zip.closeEntry();
+    }
+
+    private static boolean isCompressed(String name) {
+        return COMPRESSED_EXTENSIONS.contains(name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.US));
+    }
+
+    private static class CachedLength {
+        private final String webrevStamp;
+        private final long length;
+
+        private CachedLength(String webrevStamp, long length) {
+            this.webrevStamp = webrevStamp;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Counts the bytes written through it to the given delegate (which, if {@code null}, means the bytes are
+     * only counted).
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long count;
+
+        private CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (delegate != null) {
+                delegate.write(b);
+            }
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (delegate != null) {
+                delegate.write(b, off, len);
+            }
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (delegate != null) {
+                delegate.flush();
+            }
+        }
+    }
+}